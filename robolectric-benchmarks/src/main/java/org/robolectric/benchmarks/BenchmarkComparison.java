@@ -0,0 +1,157 @@
+package org.robolectric.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares JMH results written with {@code -rf csv} against a baseline in the same format and fails if
+ * any benchmark regressed by more than the given percentage. Benchmarks that are missing from the
+ * baseline are reported but never fail the comparison, so new benchmarks can be added before a
+ * baseline for them has been recorded. A baseline without any results, as before one has been recorded
+ * on a reference machine, skips the comparison with a warning, since nothing could regress against it.
+ *
+ * Usage: {@code BenchmarkComparison <baseline.csv> <results.csv> <threshold percent>}
+ */
+public class BenchmarkComparison {
+  private static final String BENCHMARK_COLUMN = "Benchmark";
+  private static final String MODE_COLUMN = "Mode";
+  private static final String SCORE_COLUMN = "Score";
+  private static final String UNIT_COLUMN = "Unit";
+  private static final String PARAM_COLUMN_PREFIX = "Param: ";
+  private static final String THROUGHPUT_MODE = "thrpt";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 3) {
+      throw new IllegalArgumentException("usage: BenchmarkComparison <baseline.csv> <results.csv> <threshold percent>");
+    }
+
+    Map<String, Score> baseline = read(new File(args[0]));
+    if (baseline.isEmpty()) {
+      System.err.println("WARNING: " + args[0] + " has no results to compare against, so regressions aren't checked."
+          + " Record a baseline by running the benchmarks on a reference machine and copying " + args[1] + " over it.");
+      return;
+    }
+    Map<String, Score> results = read(new File(args[1]));
+    double thresholdPercent = Double.parseDouble(args[2]);
+
+    List<String> regressions = new ArrayList<>();
+    for (Map.Entry<String, Score> entry : results.entrySet()) {
+      String key = entry.getKey();
+      Score current = entry.getValue();
+      Score previous = baseline.get(key);
+      if (previous == null) {
+        System.out.println(String.format("%s: %.3f %s (no baseline)", key, current.value, current.unit));
+        continue;
+      }
+      if (!previous.unit.equals(current.unit)) {
+        throw new IllegalStateException(key + ": baseline unit " + previous.unit + " doesn't match " + current.unit);
+      }
+
+      double regressionPercent = current.regressionPercentFrom(previous);
+      String line = String.format("%s: %.3f -> %.3f %s (%+.1f%%)", key, previous.value, current.value, current.unit, regressionPercent);
+      System.out.println(line);
+      if (regressionPercent > thresholdPercent) {
+        regressions.add(line);
+      }
+    }
+
+    if (!regressions.isEmpty()) {
+      StringBuilder message = new StringBuilder("Benchmarks regressed by more than " + thresholdPercent + "%:");
+      for (String regression : regressions) {
+        message.append("\n  ").append(regression);
+      }
+      throw new IllegalStateException(message.toString());
+    }
+  }
+
+  static Map<String, Score> read(File csvFile) throws IOException {
+    Map<String, Score> scores = new LinkedHashMap<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(csvFile), StandardCharsets.UTF_8))) {
+      String headerLine = reader.readLine();
+      if (headerLine == null) {
+        return scores;
+      }
+      List<String> header = parseLine(headerLine);
+      int benchmarkIndex = header.indexOf(BENCHMARK_COLUMN);
+      int modeIndex = header.indexOf(MODE_COLUMN);
+      int scoreIndex = header.indexOf(SCORE_COLUMN);
+      int unitIndex = header.indexOf(UNIT_COLUMN);
+      if (benchmarkIndex < 0 || modeIndex < 0 || scoreIndex < 0 || unitIndex < 0) {
+        throw new IllegalArgumentException(csvFile + " doesn't look like JMH csv output: " + headerLine);
+      }
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty()) {
+          continue;
+        }
+        List<String> row = parseLine(line);
+        StringBuilder key = new StringBuilder(row.get(benchmarkIndex)).append(" [").append(row.get(modeIndex));
+        for (int i = 0; i < header.size(); i++) {
+          if (header.get(i).startsWith(PARAM_COLUMN_PREFIX) && i < row.size() && !row.get(i).isEmpty()) {
+            key.append(", ").append(header.get(i).substring(PARAM_COLUMN_PREFIX.length())).append('=').append(row.get(i));
+          }
+        }
+        key.append(']');
+        double value = Double.parseDouble(row.get(scoreIndex));
+        scores.put(key.toString(), new Score(value, row.get(unitIndex), THROUGHPUT_MODE.equals(row.get(modeIndex))));
+      }
+    }
+    return scores;
+  }
+
+  private static List<String> parseLine(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (c == '"') {
+        if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = !quoted;
+        }
+      } else if (c == ',' && !quoted) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  static class Score {
+    final double value;
+    final String unit;
+    final boolean higherIsBetter;
+
+    Score(double value, String unit, boolean higherIsBetter) {
+      this.value = value;
+      this.unit = unit;
+      this.higherIsBetter = higherIsBetter;
+    }
+
+    /**
+     * @return How much worse this score is than {@code baseline}, in percent. Negative when it improved.
+     */
+    double regressionPercentFrom(Score baseline) {
+      if (baseline.value == 0) {
+        return 0;
+      }
+      double change = (value - baseline.value) / baseline.value * 100;
+      return higherIsBetter ? -change : change;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package org.robolectric.benchmarks;
+
+import org.robolectric.annotation.internal.Instrument;
+
+/**
+ * Class rewritten by {@link InstrumentingClassLoaderBenchmark}. It has a handful of fields,
+ * constructors and methods so that instrumentation does roughly the work it would for a small
+ * framework class.
+ */
+@Instrument
+public class InstrumentedFixture {
+  private final String name;
+  private int count;
+
+  public InstrumentedFixture() {
+    this("fixture");
+  }
+
+  public InstrumentedFixture(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int increment() {
+    return ++count;
+  }
+
+  public int add(int a, int b) {
+    return a + b;
+  }
+
+  public static long multiply(long a, long b) {
+    return a * b;
+  }
+
+  @Override
+  public String toString() {
+    return name + ":" + count;
+  }
+}
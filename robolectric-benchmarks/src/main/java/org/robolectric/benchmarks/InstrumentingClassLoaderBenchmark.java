@@ -0,0 +1,50 @@
+package org.robolectric.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+import org.robolectric.internal.bytecode.InstrumentingClassLoader;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link InstrumentingClassLoader#loadClass(String)} for a class that has to be read and
+ * rewritten (cold) and for one that is already defined in the loader (warm).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class InstrumentingClassLoaderBenchmark {
+  private static final String FIXTURE_CLASS_NAME = InstrumentedFixture.class.getName();
+
+  private InstrumentationConfiguration configuration;
+  private InstrumentingClassLoader warmClassLoader;
+
+  @Setup
+  public void setUp() throws ClassNotFoundException {
+    configuration = InstrumentationConfiguration.newBuilder().build();
+    warmClassLoader = new InstrumentingClassLoader(configuration);
+    warmClassLoader.loadClass(FIXTURE_CLASS_NAME);
+  }
+
+  @Benchmark
+  public Class<?> loadClassCold() throws ClassNotFoundException {
+    return new InstrumentingClassLoader(configuration).loadClass(FIXTURE_CLASS_NAME);
+  }
+
+  @Benchmark
+  public Class<?> loadClassWarm() throws ClassNotFoundException {
+    return warmClassLoader.loadClass(FIXTURE_CLASS_NAME);
+  }
+}
@@ -0,0 +1,74 @@
+package org.robolectric.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.res.Fs;
+import org.robolectric.res.PackageResourceLoader;
+import org.robolectric.res.ResBundle;
+import org.robolectric.res.ResName;
+import org.robolectric.res.ResourceExtractor;
+import org.robolectric.res.ResourcePath;
+import org.robolectric.res.TypedResource;
+import org.robolectric.res.XmlLoader;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing the framework resources out of the android-all jar and picking the best
+ * match for a resource among several qualified values.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+public class ResourceLoadingBenchmark {
+  private static final ResName OK_STRING = new ResName("android", "string", "ok");
+  private static final String[] QUALIFIED_DIRS = {
+      "values", "values-v21", "values-land", "values-en", "values-en-rGB", "values-sw600dp", "values-night-v23"
+  };
+
+  private ResourcePath systemResourcePath;
+  private ResBundle<String> bundle;
+  private ResName bundledName;
+
+  @Setup
+  public void setUp() {
+    URL androidAllUrl = android.R.class.getProtectionDomain().getCodeSource().getLocation();
+    Fs systemResFs = Fs.fromJar(androidAllUrl);
+    systemResourcePath = new ResourcePath(null, "android", systemResFs.join("res"), systemResFs.join("assets"));
+
+    bundle = new ResBundle<>();
+    bundledName = new ResName("org.robolectric.benchmarks", "string", "greeting");
+    for (String dir : QUALIFIED_DIRS) {
+      XmlLoader.XmlContext xmlContext = new XmlLoader.XmlContext("org.robolectric.benchmarks",
+          Fs.fileFromPath("res/" + dir + "/strings.xml"));
+      bundle.put("string", bundledName.name, dir, xmlContext);
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  @Warmup(iterations = 2)
+  @Measurement(iterations = 10)
+  public TypedResource loadSystemResources() {
+    PackageResourceLoader resourceLoader = new PackageResourceLoader(systemResourcePath, new ResourceExtractor());
+    return resourceLoader.getValue(OK_STRING, "");
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Warmup(iterations = 5)
+  @Measurement(iterations = 10)
+  public String pickQualifiedValue() {
+    return bundle.get(bundledName, "en-rGB-land-v23");
+  }
+}
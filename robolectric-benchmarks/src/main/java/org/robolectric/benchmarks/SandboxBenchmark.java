@@ -0,0 +1,84 @@
+package org.robolectric.benchmarks;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+import org.junit.runner.notification.Failure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures operations that need a sandbox by running the matching {@link SandboxedOperations} method
+ * through {@link org.robolectric.RobolectricTestRunner}. The SDK environment is created during warmup
+ * and reused afterwards, so measurements cover the steady state of a long test run.
+ *
+ * {@link #runnerOverhead()} reports the cost of a single empty test; the other benchmarks report the
+ * cost of one operation, which includes that overhead divided by {@link SandboxedOperations#OPERATIONS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SandboxBenchmark {
+  private JUnitCore junitCore;
+
+  @Setup
+  public void setUp() {
+    junitCore = new JUnitCore();
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Result runnerOverhead() {
+    return run("emptyTest");
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @OperationsPerInvocation(SandboxedOperations.OPERATIONS)
+  public Result obtainStyledAttributes() {
+    return run("obtainStyledAttributes");
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @OperationsPerInvocation(SandboxedOperations.OPERATIONS)
+  public Result inflateLayout() {
+    return run("inflateLayout");
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @OperationsPerInvocation(SandboxedOperations.OPERATIONS)
+  public Result parcelRoundTrip() {
+    return run("parcelRoundTrip");
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @OperationsPerInvocation(SandboxedOperations.OPERATIONS)
+  public Result sqliteInsertAndQuery() {
+    return run("sqliteInsertAndQuery");
+  }
+
+  private Result run(String methodName) {
+    Result result = junitCore.run(Request.method(SandboxedOperations.class, methodName));
+    if (!result.wasSuccessful()) {
+      Failure failure = result.getFailures().get(0);
+      throw new IllegalStateException(methodName + " failed: " + failure.getMessage(), failure.getException());
+    }
+    return result;
+  }
+}
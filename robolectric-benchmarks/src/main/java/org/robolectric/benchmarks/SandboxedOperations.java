@@ -0,0 +1,94 @@
+package org.robolectric.benchmarks;
+
+import android.content.ContentValues;
+import android.content.res.TypedArray;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Parcel;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.fakes.RoboAttributeSet;
+import org.robolectric.res.Attribute;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Operations that only work inside a Robolectric sandbox. {@link SandboxBenchmark} runs each of these
+ * through {@link RobolectricTestRunner}; every method repeats its operation {@link #OPERATIONS} times so
+ * the runner's own per-test cost is spread thin, and {@link #emptyTest()} measures that cost on its own.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 23)
+public class SandboxedOperations {
+  public static final int OPERATIONS = 1000;
+
+  private static final int[] TEXT_VIEW_ATTRS = {
+      android.R.attr.text, android.R.attr.textSize, android.R.attr.textColor, android.R.attr.gravity
+  };
+
+  @Test
+  public void emptyTest() {
+  }
+
+  @Test
+  public void obtainStyledAttributes() {
+    AttributeSet attributeSet = RoboAttributeSet.create(RuntimeEnvironment.application,
+        new Attribute("android:attr/text", "@android:string/ok", "android"),
+        new Attribute("android:attr/textSize", "14sp", "android"),
+        new Attribute("android:attr/gravity", "center", "android"));
+    for (int i = 0; i < OPERATIONS; i++) {
+      TypedArray typedArray = RuntimeEnvironment.application.obtainStyledAttributes(attributeSet, TEXT_VIEW_ATTRS);
+      assertNotNull(typedArray.getText(0));
+      typedArray.recycle();
+    }
+  }
+
+  @Test
+  public void inflateLayout() {
+    LayoutInflater inflater = LayoutInflater.from(RuntimeEnvironment.application);
+    for (int i = 0; i < OPERATIONS; i++) {
+      View view = inflater.inflate(android.R.layout.simple_list_item_2, null);
+      assertNotNull(view.findViewById(android.R.id.text1));
+    }
+  }
+
+  @Test
+  public void parcelRoundTrip() {
+    for (int i = 0; i < OPERATIONS; i++) {
+      Parcel parcel = Parcel.obtain();
+      parcel.writeInt(i);
+      parcel.writeString("robolectric");
+      parcel.writeLong(i * 31L);
+      parcel.setDataPosition(0);
+      assertEquals(i, parcel.readInt());
+      assertEquals("robolectric", parcel.readString());
+      assertEquals(i * 31L, parcel.readLong());
+      parcel.recycle();
+    }
+  }
+
+  @Test
+  public void sqliteInsertAndQuery() {
+    SQLiteDatabase database = SQLiteDatabase.create(null);
+    database.execSQL("CREATE TABLE items (_id INTEGER PRIMARY KEY, name TEXT, value INTEGER)");
+    ContentValues values = new ContentValues();
+    for (int i = 0; i < OPERATIONS; i++) {
+      values.put("name", "item" + i);
+      values.put("value", i);
+      long id = database.insert("items", null, values);
+
+      Cursor cursor = database.rawQuery("SELECT value FROM items WHERE _id = ?", new String[] {Long.toString(id)});
+      cursor.moveToFirst();
+      assertEquals(i, cursor.getInt(0));
+      cursor.close();
+    }
+    database.close();
+  }
+}
@@ -0,0 +1,64 @@
+package org.robolectric.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.util.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures posting to and draining a paused {@link Scheduler}, which is what every
+ * {@code Handler} and {@code Looper} in a test ends up doing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SchedulerBenchmark {
+  private static final int RUNNABLES = 100;
+
+  private Scheduler scheduler;
+  private Runnable runnable;
+  private int runCount;
+
+  @Setup
+  public void setUp() {
+    scheduler = new Scheduler();
+    scheduler.pause();
+    runnable = new Runnable() {
+      @Override
+      public void run() {
+        runCount++;
+      }
+    };
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RUNNABLES)
+  public boolean postAndAdvance() {
+    for (int i = 0; i < RUNNABLES; i++) {
+      scheduler.post(runnable);
+    }
+    return scheduler.advanceToLastPostedRunnable();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RUNNABLES)
+  public boolean postDelayedAndAdvance() {
+    for (int i = 0; i < RUNNABLES; i++) {
+      scheduler.postDelayed(runnable, RUNNABLES - i);
+    }
+    return scheduler.advanceBy(RUNNABLES);
+  }
+}
@@ -4,6 +4,8 @@ import com.ximpleware.VTDGen;
 import com.ximpleware.VTDNav;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
+
 public class DocumentLoader {
   private static final FsFile.Filter ENDS_WITH_XML = new FsFile.Filter() {
     @Override public boolean accept(@NotNull FsFile fsFile) {
@@ -11,9 +13,21 @@ public class DocumentLoader {
     }
   };
 
+  /**
+   * Counted per thread, so that files parsed in the background, or by tests running in parallel, aren't charged
+   * to the test running on another thread.
+   */
+  private static final ThreadLocal<long[]> parsedFileCount = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[1];
+    }
+  };
+
   private final FsFile resourceBase;
   private final String packageName;
   private final VTDGen vtdGen;
+  private FsFile[] resourceDirs;
 
   public DocumentLoader(ResourcePath resourcePath) {
     this.resourceBase = resourcePath.resourceBase;
@@ -21,13 +35,26 @@ public class DocumentLoader {
     vtdGen = new VTDGen();
   }
 
+  /**
+   * @return The number of resource files parsed by document loaders on the calling thread.
+   */
+  public static long getParsedFileCount() {
+    return parsedFileCount.get()[0];
+  }
+
   public void load(String folderBaseName, XmlLoader... xmlLoaders) throws Exception {
-    FsFile[] files = resourceBase.listFiles(new DirectoryMatchingFilter(folderBaseName));
-    if (files == null) {
-      throw new RuntimeException(resourceBase.join(folderBaseName) + " is not a directory");
+    if (resourceDirs == null) {
+      // List the resource directories once, rather than once per resource type.
+      resourceDirs = resourceBase.listFiles();
+      if (resourceDirs == null) {
+        throw new RuntimeException(resourceBase.join(folderBaseName) + " is not a directory");
+      }
     }
-    for (FsFile dir : files) {
-      loadFile(dir, xmlLoaders);
+    DirectoryMatchingFilter filter = new DirectoryMatchingFilter(folderBaseName);
+    for (FsFile dir : resourceDirs) {
+      if (filter.accept(dir)) {
+        loadFile(dir, xmlLoaders);
+      }
     }
   }
 
@@ -49,9 +76,17 @@ public class DocumentLoader {
   }
 
   private VTDNav parse(FsFile xmlFile) throws Exception {
-    byte[] bytes = xmlFile.getBytes();
-    vtdGen.setDoc(bytes);
+    ByteBuffer buffer = xmlFile.getByteBuffer();
+    if (buffer.hasArray()) {
+      vtdGen.setDoc(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+    } else {
+      // VTD-XML can only parse arrays, so mapped files have to be copied.
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      vtdGen.setDoc(bytes);
+    }
     vtdGen.parse(true);
+    parsedFileCount.get()[0]++;
 
     return vtdGen.getNav();
   }
@@ -8,6 +8,7 @@ import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public class FileFsFile implements FsFile {
   private File canonicalFile;
@@ -83,6 +84,11 @@ public class FileFsFile implements FsFile {
     return Util.readBytes(new FileInputStream(file));
   }
 
+  @Override
+  public ByteBuffer getByteBuffer() throws IOException {
+    return ByteBuffer.wrap(getBytes());
+  }
+
   @Override
   public FsFile join(String... pathParts) {
     File f = file;
@@ -1,5 +1,6 @@
 package org.robolectric.res;
 
+import org.robolectric.util.ByteBufferInputStream;
 import org.robolectric.util.Join;
 import org.robolectric.util.Util;
 
@@ -9,6 +10,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
@@ -52,17 +54,29 @@ abstract public class Fs {
     return newFile(new File("."));
   }
 
+  /**
+   * File system backed by a jar.
+   *
+   * <p>
+   * Setting the property {@code robolectric.jarFs.mappedCache = true} makes the {@code res/} and {@code assets/}
+   * entries of each jar be extracted once into an uncompressed local cache file, which is memory-mapped and read
+   * from instead of the jar. See {@link MappedJarCache}.
+   * </p>
+   */
   static class JarFs extends Fs {
-    private static final Map<File, NavigableMap<String, JarEntry>> CACHE =
-        new LinkedHashMap<File, NavigableMap<String, JarEntry>>() {
+    private static final String MAPPED_CACHE = "robolectric.jarFs.mappedCache";
+
+    private static final Map<File, JarEntries> CACHE =
+        new LinkedHashMap<File, JarEntries>() {
           @Override
-          protected boolean removeEldestEntry(Map.Entry<File, NavigableMap<String, JarEntry>> fileNavigableMapEntry) {
+          protected boolean removeEldestEntry(Map.Entry<File, JarEntries> fileJarEntriesEntry) {
             return size() > 10;
           }
         };
 
     private final JarFile jarFile;
     private final NavigableMap<String, JarEntry> jarEntryMap;
+    private final MappedJarCache mappedJarCache;
 
     public JarFs(File file) {
       try {
@@ -71,30 +85,53 @@ abstract public class Fs {
         throw new RuntimeException(e);
       }
 
-      NavigableMap<String, JarEntry> cachedMap;
+      File key = file.getAbsoluteFile();
+      JarEntries cachedEntries;
       synchronized (CACHE) {
-        cachedMap = CACHE.get(file.getAbsoluteFile());
+        cachedEntries = CACHE.get(key);
       }
 
-      if (cachedMap == null) {
-        cachedMap = new TreeMap<>();
+      if (cachedEntries == null || !cachedEntries.isCurrent(key)) {
+        NavigableMap<String, JarEntry> entryMap = new TreeMap<>();
         Enumeration<JarEntry> entries = jarFile.entries();
         while (entries.hasMoreElements()) {
           JarEntry jarEntry = entries.nextElement();
-          cachedMap.put(jarEntry.getName(), jarEntry);
+          entryMap.put(jarEntry.getName(), jarEntry);
         }
+        cachedEntries = new JarEntries(key, entryMap);
         synchronized (CACHE) {
-          CACHE.put(file.getAbsoluteFile(), cachedMap);
+          CACHE.put(key, cachedEntries);
         }
       }
 
-      jarEntryMap = cachedMap;
+      jarEntryMap = cachedEntries.entryMap;
+      mappedJarCache = Boolean.getBoolean(MAPPED_CACHE) ? MappedJarCache.forJar(file, jarFile, jarEntryMap) : null;
     }
 
     @Override public FsFile join(String folderBaseName) {
       return new JarFsFile(folderBaseName);
     }
 
+    /**
+     * Entries of a jar, along with the length and modification time it had when they were read, so that a
+     * rebuilt jar is read again.
+     */
+    private static class JarEntries {
+      private final long length;
+      private final long lastModified;
+      private final NavigableMap<String, JarEntry> entryMap;
+
+      JarEntries(File file, NavigableMap<String, JarEntry> entryMap) {
+        this.length = file.length();
+        this.lastModified = file.lastModified();
+        this.entryMap = entryMap;
+      }
+
+      boolean isCurrent(File file) {
+        return file.length() == length && file.lastModified() == lastModified;
+      }
+    }
+
     class JarFsFile implements FsFile {
       private final String path;
 
@@ -162,13 +199,32 @@ abstract public class Fs {
       }
 
       @Override public InputStream getInputStream() throws IOException {
+        ByteBuffer mappedBuffer = getMappedBuffer();
+        if (mappedBuffer != null) {
+          return new ByteBufferInputStream(mappedBuffer);
+        }
         return new BufferedInputStream(jarFile.getInputStream(jarEntryMap.get(path)));
       }
 
       @Override public byte[] getBytes() throws IOException {
+        ByteBuffer mappedBuffer = getMappedBuffer();
+        if (mappedBuffer != null) {
+          byte[] bytes = new byte[mappedBuffer.remaining()];
+          mappedBuffer.get(bytes);
+          return bytes;
+        }
         return Util.readBytes(jarFile.getInputStream(jarEntryMap.get(path)));
       }
 
+      @Override public ByteBuffer getByteBuffer() throws IOException {
+        ByteBuffer mappedBuffer = getMappedBuffer();
+        return mappedBuffer != null ? mappedBuffer : ByteBuffer.wrap(getBytes());
+      }
+
+      private ByteBuffer getMappedBuffer() {
+        return mappedJarCache == null ? null : mappedJarCache.get(path);
+      }
+
       @Override public FsFile join(String... pathParts) {
         return new JarFsFile(path + "/" + Join.join("/", asList(pathParts)));
       }
@@ -4,6 +4,7 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public interface FsFile {
   boolean exists();
@@ -26,6 +27,15 @@ public interface FsFile {
 
   byte[] getBytes() throws IOException;
 
+  /**
+   * Returns the contents of this file. The buffer may be a read-only view of memory shared with other callers,
+   * so its contents must not be changed.
+   *
+   * @return The contents of this file.
+   * @throws IOException If the file couldn't be read.
+   */
+  ByteBuffer getByteBuffer() throws IOException;
+
   FsFile join(String... pathParts);
 
   @Override String toString();
@@ -0,0 +1,203 @@
+package org.robolectric.res;
+
+import org.robolectric.util.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static org.robolectric.util.Util.copy;
+
+/**
+ * Uncompressed copy of the {@code res/} and {@code assets/} entries of a jar. The copy is written once to a local
+ * cache file and memory-mapped, so entries can be read without inflating them again in every JVM.
+ *
+ * <p>
+ * Entries are stored back to back in name order, so their offsets follow from the uncompressed sizes in the jar's
+ * central directory and no separate index is needed.
+ * </p>
+ *
+ * <p>
+ * Caches are identified by the jar's path and a hash of the names, sizes and CRCs of the cached entries, so a
+ * rebuilt jar gets a new cache even if its length and modification time haven't changed. Only the most recently
+ * used caches stay mapped in each JVM.
+ * </p>
+ *
+ * <p>
+ * The cache directory can be set with the property: {@code robolectric.jarFs.cacheDir}.
+ * </p>
+ */
+class MappedJarCache {
+  private static final String CACHE_DIR = "robolectric.jarFs.cacheDir";
+  private static final String[] CACHED_PREFIXES = {"res/", "assets/"};
+  private static final int MAX_MAPPED_JARS = 16;
+  private static final Map<String, MappedJarCache> CACHE = new LinkedHashMap<String, MappedJarCache>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, MappedJarCache> eldest) {
+      return size() > MAX_MAPPED_JARS;
+    }
+  };
+
+  private final MappedByteBuffer buffer;
+  private final Map<String, Slice> slices;
+
+  private MappedJarCache(MappedByteBuffer buffer, Map<String, Slice> slices) {
+    this.buffer = buffer;
+    this.slices = slices;
+  }
+
+  /**
+   * Returns the mapped cache for a jar, creating it if needed.
+   *
+   * @return The cache, or null if the jar's entries couldn't be cached.
+   */
+  static MappedJarCache forJar(File file, JarFile jarFile, NavigableMap<String, JarEntry> jarEntries) {
+    File absoluteFile = file.getAbsoluteFile();
+    long contentHash = contentHash(jarEntries);
+    String key = absoluteFile.getPath() + "@" + Long.toHexString(contentHash);
+    synchronized (CACHE) {
+      if (CACHE.containsKey(key)) {
+        return CACHE.get(key);
+      }
+
+      MappedJarCache mappedJarCache;
+      try {
+        mappedJarCache = create(absoluteFile, contentHash, jarFile, jarEntries);
+      } catch (IOException e) {
+        Logger.error("Couldn't cache entries of %s: %s", absoluteFile, e);
+        mappedJarCache = null;
+      }
+      CACHE.put(key, mappedJarCache);
+      return mappedJarCache;
+    }
+  }
+
+  /**
+   * Returns a read-only view of an entry's contents.
+   *
+   * @param entryName Name of the entry within the jar.
+   * @return The entry's contents, or null if the entry isn't cached.
+   */
+  ByteBuffer get(String entryName) {
+    Slice slice = slices.get(entryName);
+    if (slice == null) {
+      return null;
+    }
+    ByteBuffer view = buffer.duplicate();
+    view.position(slice.offset);
+    view.limit(slice.offset + slice.length);
+    return view.slice();
+  }
+
+  /**
+   * @return Hash of the names, sizes and CRCs of the cached entries, as recorded in the jar's central directory.
+   */
+  private static long contentHash(NavigableMap<String, JarEntry> jarEntries) {
+    long hash = 17;
+    for (JarEntry jarEntry : jarEntries.values()) {
+      if (!isCached(jarEntry)) continue;
+
+      hash = 31 * hash + jarEntry.getName().hashCode();
+      hash = 31 * hash + jarEntry.getSize();
+      hash = 31 * hash + jarEntry.getCrc();
+    }
+    return hash;
+  }
+
+  private static MappedJarCache create(File file, long contentHash, JarFile jarFile, NavigableMap<String, JarEntry> jarEntries) throws IOException {
+    Map<String, Slice> slices = new HashMap<>();
+    long offset = 0;
+    for (JarEntry jarEntry : jarEntries.values()) {
+      if (!isCached(jarEntry)) continue;
+
+      long size = jarEntry.getSize();
+      if (size < 0 || offset + size > Integer.MAX_VALUE) {
+        return null;
+      }
+      slices.put(jarEntry.getName(), new Slice((int) offset, (int) size));
+      offset += size;
+    }
+
+    File cacheDir = new File(System.getProperty(CACHE_DIR, new File(System.getProperty("java.io.tmpdir"), "robolectric-jar-cache").getPath()));
+    File cacheFile = new File(cacheDir, file.getName() + "-" + file.length() + "-" + Long.toHexString(contentHash) + ".bin");
+    if (!cacheFile.isFile() || cacheFile.length() != offset) {
+      write(cacheFile, jarFile, jarEntries);
+    }
+
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(cacheFile, "r");
+         FileChannel channel = randomAccessFile.getChannel()) {
+      return new MappedJarCache(channel.map(FileChannel.MapMode.READ_ONLY, 0, offset), slices);
+    }
+  }
+
+  /**
+   * Writes the cached entries to a temporary file and then moves it into place, so other processes never see a
+   * partially written cache file.
+   */
+  private static void write(File cacheFile, JarFile jarFile, NavigableMap<String, JarEntry> jarEntries) throws IOException {
+    File cacheDir = cacheFile.getParentFile();
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+      throw new IOException("couldn't create " + cacheDir);
+    }
+
+    Logger.debug("Caching entries of %s in %s", jarFile.getName(), cacheFile);
+    File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+    try {
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+        for (JarEntry jarEntry : jarEntries.values()) {
+          if (!isCached(jarEntry)) continue;
+
+          try (InputStream in = jarFile.getInputStream(jarEntry)) {
+            copy(in, out);
+          }
+        }
+      }
+
+      try {
+        Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (FileAlreadyExistsException e) {
+        // Another process finished writing the same cache file first.
+      }
+    } finally {
+      Files.deleteIfExists(tempFile.toPath());
+    }
+  }
+
+  private static boolean isCached(JarEntry jarEntry) {
+    if (jarEntry.isDirectory()) {
+      return false;
+    }
+    for (String prefix : CACHED_PREFIXES) {
+      if (jarEntry.getName().startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class Slice {
+    private final int offset;
+    private final int length;
+
+    Slice(int offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
@@ -2,8 +2,34 @@ package org.robolectric.res;
 
 import org.robolectric.util.Logger;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the resources of a single package.
+ *
+ * <p>
+ * By default, every resource is loaded the first time any resource is looked up. Setting the property
+ * {@code robolectric.resources.lazyLoading = true} makes values load on first lookup, and each directory of
+ * XML resources (such as layouts or menus) only when a resource of that type is first looked up.
+ * </p>
+ */
 public class PackageResourceLoader extends XResourceLoader {
+  private static final String LAZY_LOADING = "robolectric.resources.lazyLoading";
+  private static final String VALUES = "values";
+  private static final String RAW = "raw";
+  private static final String OTHER = "other";
+
+  /** Directories holding one XML resource per file, in the order they are loaded. */
+  private static final List<String> XML_RESOURCE_DIRS = Arrays.asList(
+      "layout", "menu", "drawable", "anim", "animator", "color", "xml", "transition", "interpolator");
+
   private final ResourcePath resourcePath;
+  private final boolean lazy;
+  private final Set<String> loadedGroups = new HashSet<>();
+  private DocumentLoader documentLoader;
 
   public PackageResourceLoader(ResourcePath resourcePath) {
     this(resourcePath, new ResourceExtractor(resourcePath));
@@ -12,6 +38,20 @@ public class PackageResourceLoader extends XResourceLoader {
   public PackageResourceLoader(ResourcePath resourcePath, ResourceIndex resourceIndex) {
     super(resourceIndex);
     this.resourcePath = resourcePath;
+    this.lazy = Boolean.getBoolean(LAZY_LOADING);
+  }
+
+  /**
+   * Creates a loader that shares the resources parsed by {@code tablesOwner}, but resolves resource ids with
+   * {@code resourceIndex}. Use this to avoid parsing the same resources again for each class loader.
+   *
+   * @param resourceIndex Resource index for this loader.
+   * @param tablesOwner Loader whose resources are shared.
+   */
+  public PackageResourceLoader(ResourceIndex resourceIndex, PackageResourceLoader tablesOwner) {
+    super(resourceIndex, tablesOwner);
+    this.resourcePath = tablesOwner.resourcePath;
+    this.lazy = tablesOwner.lazy;
   }
 
   void doInitialize() {
@@ -24,47 +64,98 @@ public class PackageResourceLoader extends XResourceLoader {
     }
   }
 
+  @Override
+  boolean doInitialize(String resType) {
+    if (!lazy) {
+      return false;
+    }
+
+    try {
+      load(VALUES);
+      load(OTHER);
+      if (XML_RESOURCE_DIRS.contains(resType)) {
+        load(resType);
+      } else if ("mipmap".equals(resType)) {
+        load("drawable");
+      } else if ("raw".equals(resType)) {
+        load(RAW);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+    return true;
+  }
+
   private void loadEverything() throws Exception {
     Logger.debug("Loading resources for %s from %s...", resourcePath.getPackageName(), resourcePath.resourceBase);
 
-    DocumentLoader documentLoader = new DocumentLoader(resourcePath);
-
-    documentLoader.load("values",
-        new ValueResourceLoader(data, "/resources/bool", "bool", ResType.BOOLEAN),
-        new ValueResourceLoader(data, "/resources/item[@type='bool']", "bool", ResType.BOOLEAN),
-        new ValueResourceLoader(data, "/resources/color", "color", ResType.COLOR),
-        new ValueResourceLoader(data, "/resources/drawable", "drawable", ResType.DRAWABLE),
-        new ValueResourceLoader(data, "/resources/item[@type='color']", "color", ResType.COLOR),
-        new ValueResourceLoader(data, "/resources/dimen", "dimen", ResType.DIMEN),
-        new ValueResourceLoader(data, "/resources/item[@type='dimen']", "dimen", ResType.DIMEN),
-        new ValueResourceLoader(data, "/resources/integer", "integer", ResType.INTEGER),
-        new ValueResourceLoader(data, "/resources/item[@type='integer']", "integer", ResType.INTEGER),
-        new ValueResourceLoader(data, "/resources/integer-array", "array", ResType.INTEGER_ARRAY),
-        new ValueResourceLoader(data, "/resources/fraction", "fraction", ResType.FRACTION),
-        new ValueResourceLoader(data, "/resources/item[@type='fraction']", "fraction", ResType.FRACTION),
-        new ValueResourceLoader(data, "/resources/item", "layout", ResType.LAYOUT),
-        new PluralResourceLoader(pluralsData),
-        new ValueResourceLoader(data, "/resources/string", "string", ResType.CHAR_SEQUENCE),
-        new ValueResourceLoader(data, "/resources/item[@type='string']", "string", ResType.CHAR_SEQUENCE),
-        new ValueResourceLoader(data, "/resources/string-array", "array", ResType.CHAR_SEQUENCE_ARRAY),
-        new AttrResourceLoader(data),
-        new StyleResourceLoader(data)
-    );
-
-    documentLoader.load("layout", new OpaqueFileLoader(data, "layout"), new XmlBlockLoader(xmlDocuments, "layout"));
-    documentLoader.load("menu", new OpaqueFileLoader(data, "menu"), new XmlBlockLoader(xmlDocuments, "menu"));
-    documentLoader.load("drawable", new OpaqueFileLoader(data, "drawable"), new XmlBlockLoader(xmlDocuments, "drawable"));
-    documentLoader.load("anim", new OpaqueFileLoader(data, "anim"), new XmlBlockLoader(xmlDocuments, "anim"));
-    documentLoader.load("animator", new OpaqueFileLoader(data, "animator"), new XmlBlockLoader(xmlDocuments, "animator"));
-    documentLoader.load("color", new ColorResourceLoader(data), new XmlBlockLoader(xmlDocuments, "color"));
-    documentLoader.load("xml", new PreferenceLoader(preferenceData), new XmlBlockLoader(xmlDocuments, "xml"));
-    documentLoader.load("transition", new OpaqueFileLoader(data, "transition"), new XmlBlockLoader(xmlDocuments, "transition"));
-    documentLoader.load("interpolator", new OpaqueFileLoader(data, "interpolator"), new XmlBlockLoader(xmlDocuments, "interpolator"));
-
-    new DrawableResourceLoader(drawableData).findDrawableResources(resourcePath);
-    new RawResourceLoader(resourcePath).loadTo(rawResources);
-
-    loadOtherResources(resourcePath);
+    load(VALUES);
+    for (String dir : XML_RESOURCE_DIRS) {
+      load(dir);
+    }
+    load(RAW);
+    load(OTHER);
+  }
+
+  /**
+   * Loads one group of resources, unless it has already been loaded. Groups are either {@link #VALUES},
+   * {@link #RAW}, {@link #OTHER}, or the name of a directory holding XML resources.
+   */
+  private void load(String group) throws Exception {
+    if (!loadedGroups.add(group)) {
+      return;
+    }
+
+    if (documentLoader == null) {
+      documentLoader = new DocumentLoader(resourcePath);
+    }
+
+    switch (group) {
+      case VALUES:
+        documentLoader.load("values",
+            new ValueResourceLoader(data, "/resources/bool", "bool", ResType.BOOLEAN),
+            new ValueResourceLoader(data, "/resources/item[@type='bool']", "bool", ResType.BOOLEAN),
+            new ValueResourceLoader(data, "/resources/color", "color", ResType.COLOR),
+            new ValueResourceLoader(data, "/resources/drawable", "drawable", ResType.DRAWABLE),
+            new ValueResourceLoader(data, "/resources/item[@type='color']", "color", ResType.COLOR),
+            new ValueResourceLoader(data, "/resources/dimen", "dimen", ResType.DIMEN),
+            new ValueResourceLoader(data, "/resources/item[@type='dimen']", "dimen", ResType.DIMEN),
+            new ValueResourceLoader(data, "/resources/integer", "integer", ResType.INTEGER),
+            new ValueResourceLoader(data, "/resources/item[@type='integer']", "integer", ResType.INTEGER),
+            new ValueResourceLoader(data, "/resources/integer-array", "array", ResType.INTEGER_ARRAY),
+            new ValueResourceLoader(data, "/resources/fraction", "fraction", ResType.FRACTION),
+            new ValueResourceLoader(data, "/resources/item[@type='fraction']", "fraction", ResType.FRACTION),
+            new ValueResourceLoader(data, "/resources/item", "layout", ResType.LAYOUT),
+            new PluralResourceLoader(pluralsData),
+            new ValueResourceLoader(data, "/resources/string", "string", ResType.CHAR_SEQUENCE),
+            new ValueResourceLoader(data, "/resources/item[@type='string']", "string", ResType.CHAR_SEQUENCE),
+            new ValueResourceLoader(data, "/resources/string-array", "array", ResType.CHAR_SEQUENCE_ARRAY),
+            new AttrResourceLoader(data),
+            new StyleResourceLoader(data)
+        );
+        break;
+      case "color":
+        documentLoader.load("color", new ColorResourceLoader(data), new XmlBlockLoader(xmlDocuments, "color"));
+        break;
+      case "xml":
+        documentLoader.load("xml", new PreferenceLoader(preferenceData), new XmlBlockLoader(xmlDocuments, "xml"));
+        break;
+      case "drawable":
+        documentLoader.load("drawable", new OpaqueFileLoader(data, "drawable"), new XmlBlockLoader(xmlDocuments, "drawable"));
+        new DrawableResourceLoader(drawableData).findDrawableResources(resourcePath);
+        break;
+      case RAW:
+        new RawResourceLoader(resourcePath).loadTo(rawResources);
+        break;
+      case OTHER:
+        loadOtherResources(resourcePath);
+        break;
+      default:
+        documentLoader.load(group, new OpaqueFileLoader(data, group), new XmlBlockLoader(xmlDocuments, group));
+        break;
+    }
   }
 
   protected void loadOtherResources(ResourcePath resourcePath) {
@@ -1,11 +1,12 @@
 package org.robolectric.res;
 
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jetbrains.annotations.NotNull;
 
 public class ResBunch {
-  private final Map<String, ResBundle<TypedResource>> types = new LinkedHashMap<>();
+  // Lookups don't lock, and may run while lazily loaded resources of other types are added.
+  private final Map<String, ResBundle<TypedResource>> types = new ConcurrentHashMap<>();
 
   public void put(String attrType, String name, TypedResource value, XmlLoader.XmlContext xmlContext) {
     ResBundle<TypedResource> bundle = getBundle(attrType);
@@ -27,8 +28,8 @@ public class ResBunch {
   }
 
   public ResBundle.Value<TypedResource> getValue(@NotNull ResName resName, String qualifiers) {
-    ResBundle<TypedResource> bundle = getBundle(resName.type);
-    return bundle.getValue(resName, qualifiers);
+    ResBundle<TypedResource> bundle = types.get(resName.type);
+    return bundle == null ? null : bundle.getValue(resName, qualifiers);
   }
 
   public int size() {
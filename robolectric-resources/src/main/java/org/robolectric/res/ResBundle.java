@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,7 +34,7 @@ public class ResBundle<T> {
   }
 
   public Value<T> getValue(ResName resName, String qualifiers) {
-    List<Value<T>> values = valuesMap.find(maybeOverride(resName));
+    List<Value<T>> values = valuesMap.get(maybeOverride(resName));
     return values != null ? pick(values, qualifiers) : null;
   }
 
@@ -133,9 +134,14 @@ public class ResBundle<T> {
   }
 
   private static class ResMap<T> {
-    private final Map<ResName, List<Value<T>>> map = new HashMap<>();
+    // Lookups don't lock, and may run while lazily loaded resources of other types are added.
+    private final Map<ResName, List<Value<T>>> map = new ConcurrentHashMap<>();
     private boolean immutable;
 
+    public List<Value<T>> get(ResName resName) {
+      return map.get(resName);
+    }
+
     public List<Value<T>> find(ResName resName) {
       List<Value<T>> values = map.get(resName);
       if (values == null) map.put(resName, values = new ArrayList<>());
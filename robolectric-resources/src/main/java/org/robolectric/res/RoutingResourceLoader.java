@@ -22,6 +22,22 @@ public class RoutingResourceLoader implements ResourceLoader {
     resourceIndex = new MergedResourceIndex(resourceIndexes.toArray(new ResourceIndex[resourceIndexes.size()]));
   }
 
+  /**
+   * Loads the resources of type {@code resType} in every package this loader routes to.
+   *
+   * @param resType Resource type, such as {@code string} or {@code layout}.
+   * @see XResourceLoader#preload(String)
+   */
+  public void preload(String resType) {
+    for (ResourceLoader resourceLoader : resourceLoaders.values()) {
+      if (resourceLoader instanceof XResourceLoader) {
+        ((XResourceLoader) resourceLoader).preload(resType);
+      } else if (resourceLoader instanceof RoutingResourceLoader) {
+        ((RoutingResourceLoader) resourceLoader).preload(resType);
+      }
+    }
+  }
+
   @Override
   public String getNameForId(int id) {
     return pickFor(id).getNameForId(id);
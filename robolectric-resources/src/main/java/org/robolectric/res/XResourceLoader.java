@@ -5,31 +5,121 @@ import org.robolectric.res.builder.XmlBlock;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 // TODO: Give me a better name
 abstract class XResourceLoader implements ResourceLoader {
-  final ResBunch data = new ResBunch();
-  final ResBundle<PluralResourceLoader.PluralRules> pluralsData = new ResBundle<>();
-  final ResBundle<String> stringData = new ResBundle<>();
-  final ResBundle<DrawableNode> drawableData = new ResBundle<>();
-  final ResBundle<PreferenceNode> preferenceData = new ResBundle<>();
-  final ResBundle<XmlBlock> xmlDocuments = new ResBundle<>();
-  final ResBundle<FsFile> rawResources = new ResBundle<>();
+  final ResBunch data;
+  final ResBundle<PluralResourceLoader.PluralRules> pluralsData;
+  final ResBundle<String> stringData;
+  final ResBundle<DrawableNode> drawableData;
+  final ResBundle<PreferenceNode> preferenceData;
+  final ResBundle<XmlBlock> xmlDocuments;
+  final ResBundle<FsFile> rawResources;
   private final ResourceIndex resourceIndex;
-  boolean isInitialized = false;
+  private final XResourceLoader tablesOwner;
+  /** Resource types that can be looked up without loading anything, when resources are loaded lazily. */
+  private final Set<String> loadedTypes = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  volatile boolean isInitialized = false;
 
   protected XResourceLoader(ResourceIndex resourceIndex) {
     this.resourceIndex = resourceIndex;
+    this.tablesOwner = null;
+    data = new ResBunch();
+    pluralsData = new ResBundle<>();
+    stringData = new ResBundle<>();
+    drawableData = new ResBundle<>();
+    preferenceData = new ResBundle<>();
+    xmlDocuments = new ResBundle<>();
+    rawResources = new ResBundle<>();
+  }
+
+  /**
+   * Creates a loader that reads from the resource tables of {@code tablesOwner}, but resolves resource ids with
+   * its own {@code resourceIndex}. The tables are loaded once, by {@code tablesOwner}, and are immutable from then on.
+   */
+  protected XResourceLoader(ResourceIndex resourceIndex, XResourceLoader tablesOwner) {
+    this.resourceIndex = resourceIndex;
+    this.tablesOwner = tablesOwner;
+    data = tablesOwner.data;
+    pluralsData = tablesOwner.pluralsData;
+    stringData = tablesOwner.stringData;
+    drawableData = tablesOwner.drawableData;
+    preferenceData = tablesOwner.preferenceData;
+    xmlDocuments = tablesOwner.xmlDocuments;
+    rawResources = tablesOwner.rawResources;
   }
 
   abstract void doInitialize();
 
-  synchronized void initialize() {
-    if (isInitialized) return;
-    doInitialize();
-    isInitialized = true;
+  /**
+   * Loads just the resources needed to look up resources of type {@code resType}. Loaders which can't load
+   * resources selectively return false, and have all of their resources loaded instead.
+   *
+   * @param resType Resource type, such as {@code string} or {@code layout}.
+   * @return True if the resources were loaded.
+   */
+  boolean doInitialize(String resType) {
+    return false;
+  }
+
+  void initialize() {
+    synchronized (tables()) {
+      if (isInitialized) return;
+      if (tablesOwner != null) {
+        tablesOwner.initialize();
+        isInitialized = true;
+        return;
+      }
+      doInitialize();
+      isInitialized = true;
+
+      makeImmutable();
+    }
+  }
 
-    makeImmutable();
+  void initialize(String resType) {
+    synchronized (tables()) {
+      if (isInitialized) return;
+      if (tablesOwner != null) {
+        tablesOwner.initialize(resType);
+      } else if (doInitialize(resType)) {
+        loadedTypes.add(resType);
+      } else {
+        initialize();
+      }
+    }
+  }
+
+  /**
+   * Makes sure resources of type {@code resType} are loaded. Only loading is synchronized; once a type is
+   * loaded, its resources are never modified again, so lookups don't need to lock.
+   */
+  private void ensureLoaded(String resType) {
+    XResourceLoader tables = tables();
+    if (!isInitialized && !tables.isInitialized && !tables.loadedTypes.contains(resType)) {
+      initialize(resType);
+    }
+  }
+
+  /**
+   * Loads the resources the first lookup of a resource of type {@code resType} would load, so that the lookup
+   * doesn't have to wait for them.
+   *
+   * @param resType Resource type, such as {@code string} or {@code layout}.
+   */
+  public void preload(String resType) {
+    initialize(resType);
+  }
+
+  /**
+   * Returns the loader which owns the resource tables this loader reads from. Loading is synchronized on it,
+   * since tables may be filled in lazily while other loaders share them.
+   */
+  private XResourceLoader tables() {
+    return tablesOwner == null ? this : tablesOwner;
   }
 
   protected void makeImmutable() {
@@ -43,20 +133,28 @@ abstract class XResourceLoader implements ResourceLoader {
     rawResources.makeImmutable();
   }
 
+  /**
+   * @return The number of resources loaded so far.
+   */
+  public int getResourceCount() {
+    return data.size() + pluralsData.size() + stringData.size() + drawableData.size()
+        + preferenceData.size() + xmlDocuments.size() + rawResources.size();
+  }
+
   @Override
   public String getNameForId(int id) {
     return resourceIndex.getResourceName(id);
   }
 
   public TypedResource getValue(@NotNull ResName resName, String qualifiers) {
-    initialize();
+    ensureLoaded(resName.type);
     ResBundle.Value<TypedResource> value = data.getValue(resName, qualifiers);
     return value == null ? null : value.getValue();
   }
 
   @Override
   public Plural getPlural(ResName resName, int quantity, String qualifiers) {
-    initialize();
+    ensureLoaded(resName.type);
     PluralResourceLoader.PluralRules pluralRules = pluralsData.get(resName, qualifiers);
     if (pluralRules == null) return null;
 
@@ -65,19 +163,19 @@ abstract class XResourceLoader implements ResourceLoader {
 
   @Override
   public XmlBlock getXml(ResName resName, String qualifiers) {
-    initialize();
+    ensureLoaded(resName.type);
     return xmlDocuments.get(resName, qualifiers);
   }
 
   @Override
   public DrawableNode getDrawableNode(ResName resName, String qualifiers) {
+    ensureLoaded(resName.type);
     return drawableData.get(resName, qualifiers);
   }
 
   @Override
   public InputStream getRawValue(ResName resName) {
-    initialize();
-
+    ensureLoaded(resName.type);
     FsFile file = rawResources.get(resName, "");
     try {
       return file == null ? null : file.getInputStream();
@@ -88,8 +186,7 @@ abstract class XResourceLoader implements ResourceLoader {
 
   @Override
   public PreferenceNode getPreferenceNode(ResName resName, String qualifiers) {
-    initialize();
-
+    ensureLoaded(resName.type);
     return preferenceData.get(resName, qualifiers);
   }
 
@@ -180,6 +180,14 @@ public class ResourceParser {
           "getNamespaceCount() not supported");
     }
 
+    /**
+     * @return The element the parser is positioned at. Parsers for the same {@link XmlBlock} share its nodes,
+     *     so a node identifies the same element each time a resource is parsed.
+     */
+    public Node getCurrentNode() {
+      return currentNode;
+    }
+
     @Override
     public String getPositionDescription() {
       return "XML file " + fileName + " line #" + getLineNumber() + " (sorry, not yet implemented)";
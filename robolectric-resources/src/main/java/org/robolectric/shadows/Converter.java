@@ -20,7 +20,7 @@ import java.util.Map;
 public class Converter<T> {
   private static int nextStringCookie = 0xbaaa5;
 
-  synchronized private static int getNextStringCookie() {
+  synchronized public static int getNextStringCookie() {
     return nextStringCookie++;
   }
 
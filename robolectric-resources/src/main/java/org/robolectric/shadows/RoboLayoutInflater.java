@@ -5,6 +5,10 @@ import android.util.AttributeSet;
 import android.view.LayoutInflater;
 import android.view.View;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /**
  * Robolectric implementation of {@link android.view.LayoutInflater}.
  */
@@ -14,6 +18,15 @@ public class RoboLayoutInflater extends LayoutInflater {
       "android.webkit."
   };
 
+  /** Marks a tag name that isn't found under any of our prefixes. */
+  private static final String NO_PREFIX = "";
+
+  /**
+   * For each class loader, the prefix each tag name was found under, so that later inflations don't probe for
+   * classes already known to be missing.
+   */
+  private static final Map<ClassLoader, Map<String, String>> sResolvedPrefixes = new WeakHashMap<>();
+
   /**
    * Instead of instantiating directly, you should retrieve an instance
    * through {@link android.content.Context#getSystemService}
@@ -36,21 +49,54 @@ public class RoboLayoutInflater extends LayoutInflater {
    call through to our super class.
    */
   @Override protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
-    for (String prefix : sClassPrefixList) {
-      try {
-        View view = createView(name, prefix, attrs);
-        if (view != null) {
-          return view;
+    Map<String, String> resolvedPrefixes = getResolvedPrefixes();
+    String resolvedPrefix;
+    synchronized (resolvedPrefixes) {
+      resolvedPrefix = resolvedPrefixes.get(name);
+    }
+
+    if (resolvedPrefix == null) {
+      for (String prefix : sClassPrefixList) {
+        try {
+          View view = createView(name, prefix, attrs);
+          if (view != null) {
+            putResolvedPrefix(resolvedPrefixes, name, prefix);
+            return view;
+          }
+        } catch (ClassNotFoundException e) {
+          // In this case we want to let the base class take a crack
+          // at it.
         }
-      } catch (ClassNotFoundException e) {
-        // In this case we want to let the base class take a crack
-        // at it.
+      }
+      putResolvedPrefix(resolvedPrefixes, name, NO_PREFIX);
+    } else if (resolvedPrefix != NO_PREFIX) {
+      View view = createView(name, resolvedPrefix, attrs);
+      if (view != null) {
+        return view;
       }
     }
 
     return super.onCreateView(name, attrs);
   }
 
+  private Map<String, String> getResolvedPrefixes() {
+    ClassLoader classLoader = getContext().getClassLoader();
+    synchronized (sResolvedPrefixes) {
+      Map<String, String> resolvedPrefixes = sResolvedPrefixes.get(classLoader);
+      if (resolvedPrefixes == null) {
+        resolvedPrefixes = new HashMap<>();
+        sResolvedPrefixes.put(classLoader, resolvedPrefixes);
+      }
+      return resolvedPrefixes;
+    }
+  }
+
+  private static void putResolvedPrefix(Map<String, String> resolvedPrefixes, String name, String prefix) {
+    synchronized (resolvedPrefixes) {
+      resolvedPrefixes.put(name, prefix);
+    }
+  }
+
   public LayoutInflater cloneInContext(Context newContext) {
     return new RoboLayoutInflater(this, newContext);
   }
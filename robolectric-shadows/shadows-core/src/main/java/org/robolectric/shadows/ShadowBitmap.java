@@ -17,6 +17,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
 
 import static org.robolectric.Shadows.shadowOf;
 
@@ -26,7 +29,7 @@ import static org.robolectric.Shadows.shadowOf;
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(Bitmap.class)
 public class ShadowBitmap {
-  /** Number of bytes used internally to represent each pixel (in the {@link #colors} array) */
+  /** Number of bytes per pixel supported by {@link #copyPixelsToBuffer} and {@link #copyPixelsFromBuffer} */
   private static final int INTERNAL_BYTES_PER_PIXEL = 4;
 
   @RealObject
@@ -50,10 +53,11 @@ public class ShadowBitmap {
   private int width;
   private int height;
   private int density;
-  private int[] colors;
+  /** Allocated on the first pixel write; {@code null} means every pixel is 0. */
+  private Pixels pixelStore;
   private Bitmap.Config config;
   private boolean mutable;
-  private String description = "";
+  private Description description = Description.EMPTY;
   private boolean recycled = false;
   private boolean hasMipMap;
 
@@ -184,7 +188,7 @@ public class ShadowBitmap {
   @Implementation
   public boolean compress(Bitmap.CompressFormat format, int quality, OutputStream stream) {
     try {
-      stream.write((description + " compressed as " + format + " with quality " + quality).getBytes());
+      stream.write((getDescription() + " compressed as " + format + " with quality " + quality).getBytes());
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -218,7 +222,6 @@ public class ShadowBitmap {
     if (displayMetrics != null) {
       shadowBitmap.density = displayMetrics.densityDpi;
     }
-    shadowBitmap.setPixels(new int[shadowBitmap.getHeight() * shadowBitmap.getWidth()], 0, shadowBitmap.getWidth(), 0, 0, shadowBitmap.getWidth(), shadowBitmap.getHeight());
     return scaledBitmap;
   }
 
@@ -238,7 +241,7 @@ public class ShadowBitmap {
     Bitmap scaledBitmap = ReflectionHelpers.callConstructor(Bitmap.class);
     ShadowBitmap shadowBitmap = shadowOf(scaledBitmap);
 
-    shadowBitmap.appendDescription(shadowOf(src).getDescription());
+    shadowBitmap.description = shadowOf(src).description;
     shadowBitmap.appendDescription(" scaled to " + dstWidth + " x " + dstHeight);
     if (filter) {
       shadowBitmap.appendDescription(" with filter " + filter);
@@ -248,7 +251,6 @@ public class ShadowBitmap {
     shadowBitmap.createdFromFilter = filter;
     shadowBitmap.width = dstWidth;
     shadowBitmap.height = dstHeight;
-    shadowBitmap.setPixels(new int[shadowBitmap.getHeight() * shadowBitmap.getWidth()], 0, 0, 0, 0, shadowBitmap.getWidth(), shadowBitmap.getHeight());
     return scaledBitmap;
   }
 
@@ -261,7 +263,7 @@ public class ShadowBitmap {
     Bitmap newBitmap = ReflectionHelpers.callConstructor(Bitmap.class);
     ShadowBitmap shadowBitmap = shadowOf(newBitmap);
 
-    shadowBitmap.appendDescription(shadowOf(src).getDescription());
+    shadowBitmap.description = shadowOf(src).description;
     shadowBitmap.appendDescription(" at (" + x + "," + y);
     shadowBitmap.appendDescription(" with width " + width + " and height " + height);
 
@@ -278,7 +280,14 @@ public class ShadowBitmap {
   @Implementation
   public void setPixels(int[] pixels, int offset, int stride,
                         int x, int y, int width, int height) {
-    this.colors = pixels;
+    Pixels store = writablePixels();
+    for (int row = 0; row < height; row++) {
+      int source = offset + row * stride;
+      int target = (y + row) * getWidth() + x;
+      for (int column = 0; column < width; column++) {
+        store.set(target + column, pixels[source + column]);
+      }
+    }
   }
 
   @Implementation
@@ -297,7 +306,7 @@ public class ShadowBitmap {
     Bitmap newBitmap = ReflectionHelpers.callConstructor(Bitmap.class);
     ShadowBitmap shadowBitmap = shadowOf(newBitmap);
 
-    shadowBitmap.appendDescription(shadowOf(src).getDescription());
+    shadowBitmap.description = shadowOf(src).description;
     shadowBitmap.appendDescription(" at (" + x + "," + y);
     shadowBitmap.appendDescription(" with width " + width + " and height " + height);
     if (matrix != null) {
@@ -330,23 +339,18 @@ public class ShadowBitmap {
 
     shadowBitmap.setMutable(false);
     shadowBitmap.createdFromColors = colors;
-    shadowBitmap.colors = new int[colors.length];
-    System.arraycopy(colors, 0, shadowBitmap.colors, 0, colors.length);
+    shadowBitmap.pixelStore = Pixels.copyOf(colors, config);
     return newBitmap;
   }
 
   @Implementation
   public int getPixel(int x, int y) {
     internalCheckPixelAccess(x, y);
-    if (colors != null) {
-      // Note that getPixel() returns a non-premultiplied ARGB value; if
-      // config is RGB_565, our return value will likely be more precise than
-      // on a physical device, since it needs to map each color component from
-      // 5 or 6 bits to 8 bits.
-      return colors[y * getWidth() + x];
-    } else {
-      return 0;
-    }
+    // Note that getPixel() returns a non-premultiplied ARGB value; RGB_565 and
+    // ALPHA_8 pixels are stored packed, so like on a device only the bits kept
+    // by those configs survive. ARGB_4444 pixels are stored unpacked, so our
+    // return value will be more precise than on a physical device.
+    return pixelStore == null ? 0 : pixelStore.get(y * getWidth() + x);
   }
 
   @Implementation
@@ -357,10 +361,7 @@ public class ShadowBitmap {
       throw new IllegalStateException("Bitmap is immutable");
     }
     internalCheckPixelAccess(x, y);
-    if (colors == null) {
-      colors = new int[getWidth() * getHeight()];
-    }
-    colors[y * getWidth() + x] = color;
+    writablePixels().set(y * getWidth() + x, color);
   }
 
   /**
@@ -376,10 +377,14 @@ public class ShadowBitmap {
         y != 0 ||
         width != getWidth() ||
         height != getHeight() ||
-        pixels.length != colors.length) {
+        pixels.length != getWidth() * getHeight()) {
       throw new RuntimeException("Not implemented.");
     }
-    System.arraycopy(colors, 0, pixels, 0, colors.length);
+    if (pixelStore == null) {
+      Arrays.fill(pixels, 0);
+    } else {
+      pixelStore.copyTo(pixels);
+    }
   }
 
   @Implementation
@@ -409,6 +414,13 @@ public class ShadowBitmap {
     shadowBitmap.createdFromBitmap = realBitmap;
     shadowBitmap.config = config;
     shadowBitmap.mutable = isMutable;
+    shadowBitmap.width = width;
+    shadowBitmap.height = height;
+    shadowBitmap.density = density;
+    shadowBitmap.hasAlpha = hasAlpha;
+    if (pixelStore != null) {
+      shadowBitmap.pixelStore = pixelStore.isPackedFor(config) ? pixelStore.share() : pixelStore.repack(config);
+    }
     return newBitmap;
   }
 
@@ -420,6 +432,9 @@ public class ShadowBitmap {
   @Implementation
   public void setConfig(Bitmap.Config config) {
     this.config = config;
+    if (pixelStore != null && !pixelStore.isPackedFor(config)) {
+      pixelStore = pixelStore.repack(config);
+    }
   }
 
   @Implementation
@@ -432,15 +447,28 @@ public class ShadowBitmap {
   }
 
   public void appendDescription(String s) {
-    description += s;
+    description = description.append(String.valueOf(s));
   }
 
   public void setDescription(String s) {
-    description = s;
+    description = Description.EMPTY.append(String.valueOf(s));
   }
 
   public String getDescription() {
-    return description;
+    // Flatten once rendered, so that the segments can be collected unless another bitmap shares them.
+    description = description.flatten();
+    return description.toString();
+  }
+
+  /**
+   * Appends the description of another bitmap without rendering it.
+   */
+  void appendDescription(ShadowBitmap other) {
+    description = description.append(other.description);
+  }
+
+  int getDescriptionLength() {
+    return description.length;
   }
 
   @Implementation
@@ -466,6 +494,7 @@ public class ShadowBitmap {
   @Implementation
   public void setWidth(int width) {
     this.width = width;
+    discardPixelsIfResized();
   }
 
   @Implementation
@@ -476,6 +505,7 @@ public class ShadowBitmap {
   @Implementation
   public void setHeight(int height) {
     this.height = height;
+    discardPixelsIfResized();
   }
 
   @Implementation
@@ -513,6 +543,10 @@ public class ShadowBitmap {
     p.writeInt(width);
     p.writeInt(height);
     p.writeSerializable(config);
+    int[] colors = new int[width * height];
+    if (pixelStore != null) {
+      pixelStore.copyTo(colors);
+    }
     p.writeIntArray(colors);
   }
 
@@ -544,12 +578,14 @@ public class ShadowBitmap {
     }
 
     ByteBuffer byteBuffer = (ByteBuffer) dst;
-    if (byteBuffer.remaining() < colors.length * INTERNAL_BYTES_PER_PIXEL) {
+    int pixelCount = getWidth() * getHeight();
+    if (byteBuffer.remaining() < pixelCount * INTERNAL_BYTES_PER_PIXEL) {
       throw new RuntimeException("Buffer not large enough for pixels");
     }
 
-    for (int i = 0; i < colors.length; i++) {
-      colors[i] = byteBuffer.getInt();
+    Pixels store = writablePixels();
+    for (int i = 0; i < pixelCount; i++) {
+      store.set(i, byteBuffer.getInt());
     }
   }
 
@@ -569,14 +605,19 @@ public class ShadowBitmap {
     }
 
     ByteBuffer byteBuffer = (ByteBuffer) dst;
-    for (int color : colors) {
-      byteBuffer.putInt(color);
+    int pixelCount = getWidth() * getHeight();
+    if (byteBuffer.remaining() < pixelCount * INTERNAL_BYTES_PER_PIXEL) {
+      throw new RuntimeException("Buffer not large enough for pixels");
+    }
+
+    for (int i = 0; i < pixelCount; i++) {
+      byteBuffer.putInt(pixelStore == null ? 0 : pixelStore.get(i));
     }
   }
 
   @Override
   public String toString() {
-    return "Bitmap{description='" + description + '\'' + ", width=" + width + ", height=" + height + '}';
+    return "Bitmap{description='" + getDescription() + '\'' + ", width=" + width + ", height=" + height + '}';
   }
 
   public Bitmap getRealBitmap() {
@@ -605,6 +646,22 @@ public class ShadowBitmap {
     appendDescription(" for resource:" + resName.getFullyQualifiedName());
   }
 
+  private Pixels writablePixels() {
+    if (pixelStore == null) {
+      pixelStore = Pixels.allocate(width * height, config);
+    } else if (pixelStore.sharedBy > 1) {
+      pixelStore.sharedBy--;
+      pixelStore = pixelStore.repack(config);
+    }
+    return pixelStore;
+  }
+
+  private void discardPixelsIfResized() {
+    if (pixelStore != null && pixelStore.size() != width * height) {
+      pixelStore = null;
+    }
+  }
+
   private void internalCheckPixelAccess(int x, int y) {
     if (x < 0) {
       throw new IllegalArgumentException("x must be >= 0");
@@ -619,4 +676,180 @@ public class ShadowBitmap {
       throw new IllegalArgumentException("y must be < bitmap.height()");
     }
   }
+
+  /**
+   * Pixel storage packed according to a bitmap's config: a byte per pixel for {@code ALPHA_8}, a
+   * short per pixel for {@code RGB_565} and an int per pixel otherwise. A copy of a bitmap shares its
+   * storage until either of them writes a pixel.
+   */
+  private static final class Pixels {
+    private final int[] argb;
+    private final short[] rgb565;
+    private final byte[] alpha;
+    private int sharedBy = 1;
+
+    private Pixels(int[] argb, short[] rgb565, byte[] alpha) {
+      this.argb = argb;
+      this.rgb565 = rgb565;
+      this.alpha = alpha;
+    }
+
+    static Pixels allocate(int size, Bitmap.Config config) {
+      if (config == Bitmap.Config.ALPHA_8) {
+        return new Pixels(null, null, new byte[size]);
+      } else if (config == Bitmap.Config.RGB_565) {
+        return new Pixels(null, new short[size], null);
+      } else {
+        return new Pixels(new int[size], null, null);
+      }
+    }
+
+    static Pixels copyOf(int[] colors, Bitmap.Config config) {
+      Pixels pixels = allocate(colors.length, config);
+      if (pixels.argb != null) {
+        System.arraycopy(colors, 0, pixels.argb, 0, colors.length);
+      } else {
+        for (int i = 0; i < colors.length; i++) {
+          pixels.set(i, colors[i]);
+        }
+      }
+      return pixels;
+    }
+
+    int size() {
+      return argb != null ? argb.length : rgb565 != null ? rgb565.length : alpha.length;
+    }
+
+    boolean isPackedFor(Bitmap.Config config) {
+      if (config == Bitmap.Config.ALPHA_8) {
+        return alpha != null;
+      } else if (config == Bitmap.Config.RGB_565) {
+        return rgb565 != null;
+      } else {
+        return argb != null;
+      }
+    }
+
+    int get(int index) {
+      if (argb != null) {
+        return argb[index];
+      } else if (rgb565 != null) {
+        int packed = rgb565[index] & 0xffff;
+        int red = packed >>> 11;
+        int green = (packed >>> 5) & 0x3f;
+        int blue = packed & 0x1f;
+        return 0xff000000
+            | ((red << 3 | red >>> 2) << 16)
+            | ((green << 2 | green >>> 4) << 8)
+            | (blue << 3 | blue >>> 2);
+      } else {
+        return (alpha[index] & 0xff) << 24;
+      }
+    }
+
+    void set(int index, int color) {
+      if (argb != null) {
+        argb[index] = color;
+      } else if (rgb565 != null) {
+        rgb565[index] = (short) (((color >>> 8) & 0xf800) | ((color >>> 5) & 0x07e0) | ((color >>> 3) & 0x001f));
+      } else {
+        alpha[index] = (byte) (color >>> 24);
+      }
+    }
+
+    void copyTo(int[] colors) {
+      if (argb != null) {
+        System.arraycopy(argb, 0, colors, 0, argb.length);
+      } else {
+        for (int i = 0; i < colors.length; i++) {
+          colors[i] = get(i);
+        }
+      }
+    }
+
+    Pixels share() {
+      sharedBy++;
+      return this;
+    }
+
+    /**
+     * @return An unshared copy of these pixels, packed for {@code config}.
+     */
+    Pixels repack(Bitmap.Config config) {
+      if (isPackedFor(config)) {
+        return new Pixels(argb == null ? null : argb.clone(),
+            rgb565 == null ? null : rgb565.clone(),
+            alpha == null ? null : alpha.clone());
+      }
+      Pixels pixels = allocate(size(), config);
+      for (int i = 0; i < pixels.size(); i++) {
+        pixels.set(i, get(i));
+      }
+      return pixels;
+    }
+  }
+
+  /**
+   * Immutable rope of description segments. Appending text or another bitmap's description takes
+   * constant time, and the text is only rendered when it is asked for.
+   */
+  private static final class Description {
+    static final Description EMPTY = new Description("");
+
+    private final String text;
+    private final Description head;
+    private final Description tail;
+    final int length;
+
+    private Description(String text) {
+      this.text = text;
+      this.head = null;
+      this.tail = null;
+      this.length = text.length();
+    }
+
+    private Description(Description head, Description tail) {
+      this.text = null;
+      this.head = head;
+      this.tail = tail;
+      this.length = head.length + tail.length;
+    }
+
+    Description append(String s) {
+      return s.isEmpty() ? this : append(new Description(s));
+    }
+
+    Description append(Description other) {
+      if (other.length == 0) {
+        return this;
+      } else if (length == 0) {
+        return other;
+      }
+      return new Description(this, other);
+    }
+
+    Description flatten() {
+      return text != null ? this : new Description(toString());
+    }
+
+    @Override
+    public String toString() {
+      if (text != null) {
+        return text;
+      }
+      StringBuilder builder = new StringBuilder(length);
+      Deque<Description> pending = new ArrayDeque<>();
+      pending.push(this);
+      while (!pending.isEmpty()) {
+        Description segment = pending.pop();
+        if (segment.text != null) {
+          builder.append(segment.text);
+        } else {
+          pending.push(segment.tail);
+          pending.push(segment.head);
+        }
+      }
+      return builder.toString();
+    }
+  }
 }
@@ -13,23 +13,24 @@ import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.Resetter;
 import org.robolectric.internal.Shadow;
+import org.robolectric.shadows.util.ImageUtil;
 import org.robolectric.util.Join;
 import org.robolectric.util.NamedStream;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
 
-import javax.imageio.ImageIO;
-import javax.imageio.ImageReader;
-import javax.imageio.stream.ImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.FileDescriptor;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.CRC32;
 import java.util.zip.Checksum;
 
@@ -41,8 +42,16 @@ import static org.robolectric.internal.Shadow.directlyOn;
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(BitmapFactory.class)
 public class ShadowBitmapFactory {
+  private static final Point UNKNOWN_SIZE = new Point(-1, -1);
+
   private static Map<String, Point> widthAndHeightMap = new HashMap<>();
-  private static boolean initialized;
+
+  /**
+   * Image sizes read from files, keyed by file path, length and modification time. The keys change whenever the
+   * content does, so the cache isn't cleared between tests. Resources are sized from their names, and byte arrays
+   * are cheaper to read the header of again than to checksum, so neither is cached.
+   */
+  private static final Map<String, Point> imageSizeCache = new ConcurrentHashMap<>();
 
   @Implementation
   public static Bitmap decodeResourceStream(Resources res, TypedValue value, InputStream is, Rect pad, BitmapFactory.Options opts) {
@@ -83,7 +92,7 @@ public class ShadowBitmapFactory {
 
   @Implementation
   public static Bitmap decodeFile(String pathName, BitmapFactory.Options options) {
-    Bitmap bitmap = create("file:" + pathName, options);
+    Bitmap bitmap = create("file:" + pathName, options, getImageSizeFromFile(pathName));
     ShadowBitmap shadowBitmap = Shadows.shadowOf(bitmap);
     shadowBitmap.createdFromPath = pathName;
     return bitmap;
@@ -105,7 +114,7 @@ public class ShadowBitmapFactory {
   @Implementation
   public static Bitmap decodeStream(InputStream is, Rect outPadding, BitmapFactory.Options opts) {
     String name = is instanceof NamedStream ? is.toString().replace("stream for ", "") : null;
-    Point imageSize = is instanceof NamedStream ? null : getImageSizeFromStream(is);
+    Point imageSize = is instanceof NamedStream ? null : ImageUtil.getImageSizeFromStream(is);
     Bitmap bitmap = create(name, opts, imageSize);
     ShadowBitmap shadowBitmap = Shadows.shadowOf(bitmap);
     shadowBitmap.createdFromStream = is;
@@ -133,7 +142,7 @@ public class ShadowBitmapFactory {
     if (offset != 0 || length != data.length) {
       desc += " bytes " + offset + ".." + length;
     }
-    return create(desc, opts);
+    return create(desc, opts, getImageSizeFromBytes(data, offset, length));
   }
 
   static Bitmap create(String name) {
@@ -174,7 +183,6 @@ public class ShadowBitmapFactory {
 
     shadowBitmap.setWidth(p.x);
     shadowBitmap.setHeight(p.y);
-    shadowBitmap.setPixels(new int[p.x * p.y], 0, 0, 0, 0, p.x, p.y);
     if (options != null) {
       options.outWidth = p.x;
       options.outHeight = p.y;
@@ -227,28 +235,39 @@ public class ShadowBitmapFactory {
     return new Point(100, 100);
   }
 
-  private static Point getImageSizeFromStream(InputStream is) {
-    if (!initialized) {
-      // Stops ImageIO from creating temp files when reading images
-      // from input stream.
-      ImageIO.setUseCache(false);
-      initialized = true;
+  private static Point getImageSizeFromFile(String pathName) {
+    File file = new File(pathName);
+    if (!file.isFile()) {
+      return null;
     }
 
-    try {
-      ImageInputStream imageStream = ImageIO.createImageInputStream(is);
-      Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
-      if (!readers.hasNext()) return null;
-
-      ImageReader reader = readers.next();
-      try {
-        reader.setInput(imageStream);
-        return new Point(reader.getWidth(0), reader.getHeight(0));
-      } finally {
-        reader.dispose();
+    String key = "file:" + file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    Point size = imageSizeCache.get(key);
+    if (size == null) {
+      try (InputStream is = new FileInputStream(file)) {
+        size = ImageUtil.getImageSizeFromStream(is);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
       }
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      size = cacheImageSize(key, size);
     }
+    return size == UNKNOWN_SIZE ? null : size;
+  }
+
+  /**
+   * Reads the size from the image header, which is cheaper than looking it up in a cache keyed by the content.
+   * Ranges outside of {@code data} get the default size, as before sizes were read from byte arrays.
+   */
+  private static Point getImageSizeFromBytes(byte[] data, int offset, int length) {
+    if (offset < 0 || length < 0 || offset > data.length - length) {
+      return null;
+    }
+    return ImageUtil.getImageSizeFromStream(new ByteArrayInputStream(data, offset, length));
+  }
+
+  private static Point cacheImageSize(String key, Point size) {
+    Point cached = size == null ? UNKNOWN_SIZE : size;
+    imageSizeCache.put(key, cached);
+    return cached;
   }
 }
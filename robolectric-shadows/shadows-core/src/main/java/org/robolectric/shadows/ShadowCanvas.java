@@ -10,10 +10,14 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.Resetter;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.robolectric.Shadows.shadowOf;
 
@@ -23,17 +27,19 @@ import static org.robolectric.Shadows.shadowOf;
  * <p> Broken. This implementation is very specific to the application for which it was developed.
  * Todo: Reimplement. Consider using the same strategy of collecting a history of draw events
  * and providing methods for writing queries based on type, number, and order of events.</p>
+ *
+ * <p>How much is recorded depends on the {@link RecordingMode}, which is {@link RecordingMode#FULL} unless
+ * the system property {@code robolectric.canvas.recording} is set to {@code off} or {@code counts}, or
+ * {@link #setRecordingMode(RecordingMode)} is called by a test.</p>
  */
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(Canvas.class)
 public class ShadowCanvas {
-  private List<PathPaintHistoryEvent> pathPaintEvents = new ArrayList<>();
-  private List<CirclePaintHistoryEvent> circlePaintEvents = new ArrayList<>();
-  private List<ArcPaintHistoryEvent> arcPaintEvents = new ArrayList<>();
-  private List<RectPaintHistoryEvent> rectPaintEvents = new ArrayList<>();
-  private List<LinePaintHistoryEvent> linePaintEvents = new ArrayList<>();
-  private List<OvalPaintHistoryEvent> ovalPaintEvents = new ArrayList<>();
-  private List<TextHistoryEvent> drawnTextEventHistory = new ArrayList<>();
+  private static final RecordingMode DEFAULT_RECORDING_MODE = RecordingMode.fromProperty(System.getProperty("robolectric.canvas.recording"));
+  private static RecordingMode recordingMode = DEFAULT_RECORDING_MODE;
+
+  private final int[] drawCounts = new int[DrawCommand.values().length];
+  private final CommandBuffer commands = new CommandBuffer();
   private Paint drawnPaint;
   private Bitmap targetBitmap = ReflectionHelpers.callConstructor(Bitmap.class);
   private float translateX;
@@ -43,6 +49,65 @@ public class ShadowCanvas {
   private int height;
   private int width;
 
+  /**
+   * How much of what is drawn on a canvas is recorded.
+   */
+  public enum RecordingMode {
+    /** Nothing is recorded, and drawing doesn't add to the bitmap's description. */
+    OFF,
+    /** Only the number of each kind of draw call is recorded. */
+    COUNTS,
+    /** Every draw call is recorded and can be queried, and drawing is described. */
+    FULL;
+
+    /**
+     * @return The mode named by {@code value}, or {@link #FULL} if it is unset or doesn't name a mode.
+     */
+    static RecordingMode fromProperty(String value) {
+      if (value == null || value.isEmpty()) {
+        return FULL;
+      }
+      try {
+        return valueOf(value.trim().toUpperCase());
+      } catch (IllegalArgumentException e) {
+        System.err.println("WARNING: robolectric.canvas.recording should be one of " + Arrays.toString(values())
+            + ", not \"" + value + "\"; recording everything");
+        return FULL;
+      }
+    }
+  }
+
+  /**
+   * Kinds of draw calls recorded in the history.
+   */
+  public enum DrawCommand {
+    PATH,
+    CIRCLE,
+    ARC,
+    RECT,
+    LINE,
+    OVAL,
+    TEXT
+  }
+
+  /**
+   * Non-Android accessor. Sets how much is recorded by every canvas until the end of the test.
+   *
+   * @param mode Recording mode.
+   */
+  public static void setRecordingMode(RecordingMode mode) {
+    recordingMode = mode;
+  }
+
+  public static RecordingMode getRecordingMode() {
+    return recordingMode;
+  }
+
+  @Resetter
+  public static void reset() {
+    recordingMode = DEFAULT_RECORDING_MODE;
+  }
+
   /**
    * Returns a textual representation of the appearance of the object.
    *
@@ -72,7 +137,9 @@ public class ShadowCanvas {
 
   @Implementation
   public void drawText(String text, float x, float y, Paint paint) {
-    drawnTextEventHistory.add(new TextHistoryEvent(x, y, paint, text));
+    if (record(DrawCommand.TEXT)) {
+      commands.add(DrawCommand.TEXT, commands.paint(paint), text, x, y);
+    }
   }
 
   @Implementation
@@ -100,11 +167,16 @@ public class ShadowCanvas {
 
   @Implementation
   public void drawColor(int color) {
-    appendDescription("draw color " + color);
+    if (recordingMode == RecordingMode.FULL) {
+      appendDescription("draw color " + color);
+    }
   }
 
   @Implementation
   public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+    if (recordingMode != RecordingMode.FULL) {
+      return;
+    }
     describeBitmap(bitmap, paint);
 
     int x = (int) (left + translateX);
@@ -120,6 +192,9 @@ public class ShadowCanvas {
 
   @Implementation
   public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+    if (recordingMode != RecordingMode.FULL) {
+      return;
+    }
     describeBitmap(bitmap, paint);
 
     StringBuilder descriptionBuilder = new StringBuilder();
@@ -136,6 +211,9 @@ public class ShadowCanvas {
 
   @Implementation
   public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+    if (recordingMode != RecordingMode.FULL) {
+      return;
+    }
     describeBitmap(bitmap, paint);
 
     appendDescription(" transformed by matrix");
@@ -143,41 +221,66 @@ public class ShadowCanvas {
 
   @Implementation
   public void drawPath(Path path, Paint paint) {
-    pathPaintEvents.add(new PathPaintHistoryEvent(new Path(path), paint));
+    if (record(DrawCommand.PATH)) {
+      commands.add(DrawCommand.PATH, commands.paint(paint), new Path(path));
 
-    separateLines();
-    appendDescription("Path " + shadowOf(path).getPoints().toString());
+      separateLines();
+      appendDescription("Path " + shadowOf(path).getPoints().toString());
+    }
   }
 
   @Implementation
   public void drawCircle(float cx, float cy, float radius, Paint paint) {
-    circlePaintEvents.add(new CirclePaintHistoryEvent(cx, cy, radius, paint));
+    if (record(DrawCommand.CIRCLE)) {
+      commands.add(DrawCommand.CIRCLE, commands.paint(paint), null, cx, cy, radius);
+    }
   }
 
   @Implementation
   public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
-    arcPaintEvents.add(new ArcPaintHistoryEvent(oval, startAngle, sweepAngle, useCenter, paint));
+    if (record(DrawCommand.ARC)) {
+      commands.add(DrawCommand.ARC, commands.paint(paint), oval, startAngle, sweepAngle, useCenter ? 1 : 0);
+    }
   }
 
   @Implementation
   public void drawRect(float left, float top, float right, float bottom, Paint paint) {
-    rectPaintEvents.add(new RectPaintHistoryEvent(left, top, right, bottom, paint));
+    if (record(DrawCommand.RECT)) {
+      commands.add(DrawCommand.RECT, commands.paintSnapshot(paint), null, left, top, right, bottom);
+    }
   }
 
   @Implementation
   public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
-    linePaintEvents.add(new LinePaintHistoryEvent(startX, startY, stopX, stopY, paint));
+    if (record(DrawCommand.LINE)) {
+      commands.add(DrawCommand.LINE, commands.paintSnapshot(paint), null, startX, startY, stopX, stopY);
+    }
   }
 
   @Implementation
   public void drawOval(RectF oval, Paint paint) {
-    ovalPaintEvents.add(new OvalPaintHistoryEvent(oval, paint));
+    if (record(DrawCommand.OVAL)) {
+      commands.add(DrawCommand.OVAL, commands.paintSnapshot(paint), null, oval.left, oval.top, oval.right, oval.bottom);
+    }
+  }
+
+  /**
+   * Counts a draw call.
+   *
+   * @return True if the call should be recorded in full.
+   */
+  private boolean record(DrawCommand command) {
+    if (recordingMode == RecordingMode.OFF) {
+      return false;
+    }
+    drawCounts[command.ordinal()]++;
+    return recordingMode == RecordingMode.FULL;
   }
 
   private void describeBitmap(Bitmap bitmap, Paint paint) {
     separateLines();
 
-    appendDescription(shadowOf(bitmap).getDescription());
+    shadowOf(targetBitmap).appendDescription(shadowOf(bitmap));
 
     if (paint != null) {
       ColorFilter colorFilter = paint.getColorFilter();
@@ -188,21 +291,21 @@ public class ShadowCanvas {
   }
 
   private void separateLines() {
-    if (getDescription().length() != 0) {
+    if (shadowOf(targetBitmap).getDescriptionLength() != 0) {
       appendDescription("\n");
     }
   }
 
   public int getPathPaintHistoryCount() {
-    return pathPaintEvents.size();
+    return getDrawCount(DrawCommand.PATH);
   }
 
   public int getCirclePaintHistoryCount() {
-    return circlePaintEvents.size();
+    return getDrawCount(DrawCommand.CIRCLE);
   }
 
   public int getArcPaintHistoryCount() {
-    return arcPaintEvents.size();
+    return getDrawCount(DrawCommand.ARC);
   }
 
   public boolean hasDrawnPath() {
@@ -210,32 +313,59 @@ public class ShadowCanvas {
   }
 
   public boolean hasDrawnCircle() {
-    return circlePaintEvents.size() > 0;
+    return getCirclePaintHistoryCount() > 0;
   }
 
   public Paint getDrawnPathPaint(int i) {
-    return pathPaintEvents.get(i).pathPaint;
+    return commands.getPaint(commands.find(DrawCommand.PATH, i));
   }
 
   public Path getDrawnPath(int i) {
-    return pathPaintEvents.get(i).drawnPath;
+    return (Path) commands.getObject(commands.find(DrawCommand.PATH, i));
   }
 
   public CirclePaintHistoryEvent getDrawnCircle(int i) {
-    return circlePaintEvents.get(i);
+    int command = commands.find(DrawCommand.CIRCLE, i);
+    return new CirclePaintHistoryEvent(commands.getFloat(command, 0), commands.getFloat(command, 1),
+        commands.getFloat(command, 2), commands.getPaint(command));
   }
 
   public ArcPaintHistoryEvent getDrawnArc(int i) {
-    return arcPaintEvents.get(i);
+    int command = commands.find(DrawCommand.ARC, i);
+    return new ArcPaintHistoryEvent((RectF) commands.getObject(command), commands.getFloat(command, 0),
+        commands.getFloat(command, 1), commands.getFloat(command, 2) != 0, commands.getPaint(command));
+  }
+
+  /**
+   * Non-Android accessor.
+   *
+   * @return Number of draw calls of the given kind, in any recording mode but {@link RecordingMode#OFF}.
+   */
+  public int getDrawCount(DrawCommand command) {
+    return drawCounts[command.ordinal()];
+  }
+
+  /**
+   * Non-Android accessor. Only available in {@link RecordingMode#FULL}.
+   *
+   * @return Number of recorded draw calls of any kind.
+   */
+  public int getDrawCommandCount() {
+    return commands.size;
+  }
+
+  /**
+   * Non-Android accessor. Only available in {@link RecordingMode#FULL}.
+   *
+   * @return Kind of the {@code i}th recorded draw call, counting calls of every kind.
+   */
+  public DrawCommand getDrawCommand(int i) {
+    return commands.getCommand(i);
   }
 
   public void resetCanvasHistory() {
-    drawnTextEventHistory.clear();
-    pathPaintEvents.clear();
-    circlePaintEvents.clear();
-    rectPaintEvents.clear();
-    linePaintEvents.clear();
-    ovalPaintEvents.clear();
+    Arrays.fill(drawCounts, 0);
+    commands.clear();
     shadowOf(targetBitmap).setDescription("");
   }
 
@@ -262,39 +392,46 @@ public class ShadowCanvas {
   }
 
   public TextHistoryEvent getDrawnTextEvent(int i) {
-    return drawnTextEventHistory.get(i);
+    int command = commands.find(DrawCommand.TEXT, i);
+    return new TextHistoryEvent(commands.getFloat(command, 0), commands.getFloat(command, 1),
+        commands.getPaint(command), (String) commands.getObject(command));
   }
 
   public int getTextHistoryCount() {
-    return drawnTextEventHistory.size();
+    return getDrawCount(DrawCommand.TEXT);
   }
 
   public RectPaintHistoryEvent getDrawnRect(int i) {
-    return rectPaintEvents.get(i);
+    int command = commands.find(DrawCommand.RECT, i);
+    return new RectPaintHistoryEvent(commands.getFloat(command, 0), commands.getFloat(command, 1),
+        commands.getFloat(command, 2), commands.getFloat(command, 3), commands.getPaint(command));
   }
 
   public RectPaintHistoryEvent getLastDrawnRect() {
-    return rectPaintEvents.get(rectPaintEvents.size() - 1);
+    return getDrawnRect(getRectPaintHistoryCount() - 1);
   }
 
   public int getRectPaintHistoryCount() {
-    return rectPaintEvents.size();
+    return getDrawCount(DrawCommand.RECT);
   }
 
   public LinePaintHistoryEvent getDrawnLine(int i) {
-    return linePaintEvents.get(i);
+    int command = commands.find(DrawCommand.LINE, i);
+    return new LinePaintHistoryEvent(commands.getFloat(command, 0), commands.getFloat(command, 1),
+        commands.getFloat(command, 2), commands.getFloat(command, 3), commands.getPaint(command));
   }
 
   public int getLinePaintHistoryCount() {
-    return linePaintEvents.size();
+    return getDrawCount(DrawCommand.LINE);
   }
 
   public int getOvalPaintHistoryCount() {
-    return ovalPaintEvents.size();
+    return getDrawCount(DrawCommand.OVAL);
   }
 
   public OvalPaintHistoryEvent getDrawnOval(int i) {
-    return ovalPaintEvents.get(i);
+    int command = commands.find(DrawCommand.OVAL, i);
+    return new OvalPaintHistoryEvent(commands.getRect(command), commands.getPaint(command));
   }
 
   public static class LinePaintHistoryEvent {
@@ -351,16 +488,6 @@ public class ShadowCanvas {
     }
   }
 
-  private static class PathPaintHistoryEvent {
-    private final Path drawnPath;
-    private final Paint pathPaint;
-
-    PathPaintHistoryEvent(Path drawnPath, Paint pathPaint) {
-      this.drawnPath = drawnPath;
-      this.pathPaint = pathPaint;
-    }
-  }
-
   public static class CirclePaintHistoryEvent {
     public final float centerX;
     public final float centerY;
@@ -405,4 +532,207 @@ public class ShadowCanvas {
       this.text = text;
     }
   }
+
+  /**
+   * Append-only record of draw calls. Geometry is kept in one float array, and each distinct paint once:
+   * calls that keep the caller's paint share it, and calls that copy it share the copy until the paint
+   * changes. History events are only created when they are queried.
+   */
+  private static class CommandBuffer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] floatOffsets = new int[INITIAL_CAPACITY];
+    private int[] paintIndexes = new int[INITIAL_CAPACITY];
+    private int[] objectIndexes = new int[INITIAL_CAPACITY];
+    private float[] floats = new float[INITIAL_CAPACITY * 4];
+    private int floatCount;
+    private int size;
+
+    private final int[][] commandsByKind = new int[DrawCommand.values().length][];
+    private final int[] kindCounts = new int[DrawCommand.values().length];
+
+    private final List<Paint> paints = new ArrayList<>();
+    private final Map<Paint, Integer> paintIndexByPaint = new IdentityHashMap<>();
+    private final Map<Paint, Integer> snapshotIndexByPaint = new IdentityHashMap<>();
+    private final List<Object> objects = new ArrayList<>();
+
+    void add(DrawCommand command, int paintIndex, Object object, float... geometry) {
+      if (size == kinds.length) {
+        int capacity = size * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        floatOffsets = Arrays.copyOf(floatOffsets, capacity);
+        paintIndexes = Arrays.copyOf(paintIndexes, capacity);
+        objectIndexes = Arrays.copyOf(objectIndexes, capacity);
+      }
+      if (floatCount + geometry.length > floats.length) {
+        floats = Arrays.copyOf(floats, Math.max(floats.length * 2, floatCount + geometry.length));
+      }
+
+      kinds[size] = (byte) command.ordinal();
+      floatOffsets[size] = floatCount;
+      paintIndexes[size] = paintIndex;
+      if (object == null) {
+        objectIndexes[size] = -1;
+      } else {
+        objectIndexes[size] = objects.size();
+        objects.add(object);
+      }
+      System.arraycopy(geometry, 0, floats, floatCount, geometry.length);
+      floatCount += geometry.length;
+
+      int kind = command.ordinal();
+      int[] byKind = commandsByKind[kind];
+      if (byKind == null) {
+        byKind = commandsByKind[kind] = new int[INITIAL_CAPACITY];
+      } else if (kindCounts[kind] == byKind.length) {
+        byKind = commandsByKind[kind] = Arrays.copyOf(byKind, byKind.length * 2);
+      }
+      byKind[kindCounts[kind]++] = size;
+      size++;
+    }
+
+    /**
+     * @return Index of {@code paint} itself, which is recorded by reference.
+     */
+    int paint(Paint paint) {
+      Integer index = paintIndexByPaint.get(paint);
+      if (index == null) {
+        index = paints.size();
+        paints.add(paint);
+        paintIndexByPaint.put(paint, index);
+      }
+      return index;
+    }
+
+    /**
+     * @return Index of a copy of {@code paint}, reusing the last copy made of it if it hasn't changed since.
+     */
+    int paintSnapshot(Paint paint) {
+      Integer index = snapshotIndexByPaint.get(paint);
+      if (index == null || !isSamePaint(paints.get(index), paint)) {
+        Paint snapshot = copyOf(paint);
+        index = paints.size();
+        paints.add(snapshot);
+        snapshotIndexByPaint.put(paint, index);
+      }
+      return index;
+    }
+
+    int find(DrawCommand command, int i) {
+      int kind = command.ordinal();
+      if (i < 0 || i >= kindCounts[kind]) {
+        if (recordingMode != RecordingMode.FULL) {
+          throw new IllegalStateException("Draw history is only recorded in RecordingMode.FULL");
+        }
+        throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + kindCounts[kind]);
+      }
+      return commandsByKind[kind][i];
+    }
+
+    DrawCommand getCommand(int command) {
+      checkIndex(command);
+      return DrawCommand.values()[kinds[command]];
+    }
+
+    float getFloat(int command, int i) {
+      return floats[floatOffsets[command] + i];
+    }
+
+    RectF getRect(int command) {
+      return new RectF(getFloat(command, 0), getFloat(command, 1), getFloat(command, 2), getFloat(command, 3));
+    }
+
+    Paint getPaint(int command) {
+      return paints.get(paintIndexes[command]);
+    }
+
+    Object getObject(int command) {
+      return objects.get(objectIndexes[command]);
+    }
+
+    void clear() {
+      size = 0;
+      floatCount = 0;
+      Arrays.fill(kindCounts, 0);
+      paints.clear();
+      paintIndexByPaint.clear();
+      snapshotIndexByPaint.clear();
+      objects.clear();
+    }
+
+    private void checkIndex(int command) {
+      if (command < 0 || command >= size) {
+        throw new IndexOutOfBoundsException("Index: " + command + ", Size: " + size);
+      }
+    }
+
+    /**
+     * Copies every property {@link ShadowPaint} tracks, and the effects the real {@link Paint} keeps, so that
+     * {@link #isSamePaint(Paint, Paint)} holds for the copy until the original changes.
+     */
+    private static Paint copyOf(Paint paint) {
+      Paint copy = new Paint(paint.getFlags());
+      copy.setColor(paint.getColor());
+      copy.setAlpha(paint.getAlpha());
+      copy.setStyle(paint.getStyle());
+      copy.setStrokeCap(paint.getStrokeCap());
+      copy.setStrokeJoin(paint.getStrokeJoin());
+      copy.setStrokeWidth(paint.getStrokeWidth());
+      copy.setStrokeMiter(paint.getStrokeMiter());
+      ShadowPaint shadowPaint = shadowOf(paint);
+      copy.setShadowLayer(shadowPaint.getShadowRadius(), shadowPaint.getShadowDx(), shadowPaint.getShadowDy(),
+          shadowPaint.getShadowColor());
+      copy.setShader(paint.getShader());
+      copy.setColorFilter(paint.getColorFilter());
+      copy.setPathEffect(paint.getPathEffect());
+      copy.setXfermode(paint.getXfermode());
+      copy.setMaskFilter(paint.getMaskFilter());
+      copy.setRasterizer(paint.getRasterizer());
+      copy.setTypeface(paint.getTypeface());
+      copy.setTextSize(paint.getTextSize());
+      copy.setTextAlign(paint.getTextAlign());
+      copy.setTextScaleX(paint.getTextScaleX());
+      copy.setTextSkewX(paint.getTextSkewX());
+      copy.setAntiAlias(paint.isAntiAlias());
+      copy.setDither(paint.isDither());
+      shadowOf(copy).setLetterSpacing(shadowOf(paint).getLetterSpacing());
+      return copy;
+    }
+
+    private static boolean isSamePaint(Paint snapshot, Paint paint) {
+      ShadowPaint snapshotShadow = shadowOf(snapshot);
+      ShadowPaint paintShadow = shadowOf(paint);
+      return snapshot.getColor() == paint.getColor()
+          && snapshot.getAlpha() == paint.getAlpha()
+          && snapshot.getStrokeWidth() == paint.getStrokeWidth()
+          && snapshot.getTextSize() == paint.getTextSize()
+          && snapshot.getStyle() == paint.getStyle()
+          && snapshot.getStrokeCap() == paint.getStrokeCap()
+          && snapshot.getStrokeJoin() == paint.getStrokeJoin()
+          && snapshot.getTextAlign() == paint.getTextAlign()
+          && snapshot.getFlags() == paint.getFlags()
+          && snapshot.isAntiAlias() == paint.isAntiAlias()
+          && snapshot.isDither() == paint.isDither()
+          && snapshot.getShader() == paint.getShader()
+          && snapshot.getColorFilter() == paint.getColorFilter()
+          && snapshot.getPathEffect() == paint.getPathEffect()
+          && snapshot.getTypeface() == paint.getTypeface()
+          && snapshot.getXfermode() == paint.getXfermode()
+          && snapshot.getMaskFilter() == paint.getMaskFilter()
+          && snapshot.getRasterizer() == paint.getRasterizer()
+          && snapshot.getTextScaleX() == paint.getTextScaleX()
+          && snapshot.getTextSkewX() == paint.getTextSkewX()
+          && snapshot.getStrokeMiter() == paint.getStrokeMiter()
+          && isSameShadowLayer(snapshotShadow, paintShadow)
+          && snapshotShadow.getLetterSpacing() == paintShadow.getLetterSpacing();
+    }
+
+    private static boolean isSameShadowLayer(ShadowPaint snapshot, ShadowPaint paint) {
+      return snapshot.getShadowRadius() == paint.getShadowRadius()
+          && snapshot.getShadowDx() == paint.getShadowDx()
+          && snapshot.getShadowDy() == paint.getShadowDy()
+          && snapshot.getShadowColor() == paint.getShadowColor();
+    }
+  }
 }
@@ -16,6 +16,7 @@ import android.database.ContentObserver;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.Handler;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
@@ -26,6 +27,7 @@ import org.robolectric.internal.Shadow;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.manifest.ContentProviderData;
 import org.robolectric.util.NamedStream;
+import org.robolectric.util.ReflectionHelpers;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -35,8 +37,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import static org.robolectric.Shadows.shadowOf;
@@ -56,12 +61,15 @@ public class ShadowContentResolver {
   private final List<UpdateStatement> updateStatements = new ArrayList<>();
   private final List<DeleteStatement> deleteStatements = new ArrayList<>();
   private List<NotifiedUri> notifiedUris = new ArrayList<>();
+  private int maxNotifiedUris = Integer.MAX_VALUE;
+  private boolean postNotifications;
   private Map<Uri, BaseCursor> uriCursorMap = new HashMap<>();
   private Map<Uri, InputStream> inputStreamMap = new HashMap<>();
   private final Map<String, ArrayList<ContentProviderOperation>> contentProviderOperations = new HashMap<>();
   private ContentProviderResult[] contentProviderResults;
 
-  private final Map<Uri, CopyOnWriteArraySet<ContentObserver>> contentObservers = new HashMap<>();
+  private ObserverNode contentObservers = new ObserverNode();
+  private final Map<ContentObserver, List<ObserverNode>> observerNodes = new HashMap<>();
 
   private static final Map<String, Map<Account, Status>>  syncableAccounts =
       new HashMap<>();
@@ -273,20 +281,23 @@ public class ShadowContentResolver {
     }
   }
 
+  /**
+   * Notifies the observers registered for {@code uri}, for any of its descendants, and for any of its
+   * ancestors with {@code notifyForDescendents}, as the platform does.
+   */
   @Implementation
   public void notifyChange(Uri uri, ContentObserver observer, boolean syncToNetwork) {
-    notifiedUris.add(new NotifiedUri(uri, observer, syncToNetwork));
+    recordNotifiedUri(new NotifiedUri(uri, observer, syncToNetwork));
 
-    CopyOnWriteArraySet<ContentObserver> observers = contentObservers.get(uri);
-    if (observers != null) {
-      for (ContentObserver obs : observers) {
-        if ( obs != null && obs != observer  ) {
-          obs.dispatchChange( false, uri );
-        }
+    Set<ContentObserver> observers = new LinkedHashSet<>();
+    contentObservers.collectObservers(getSegments(uri), 0, observers);
+    for (ContentObserver obs : observers) {
+      if ( obs != null && obs != observer  ) {
+        dispatchChange(obs, false, uri);
       }
     }
     if ( observer != null && observer.deliverSelfNotifications() ) {
-      observer.dispatchChange( true, uri );
+      dispatchChange(observer, true, uri);
     }
   }
 
@@ -490,7 +501,62 @@ public class ShadowContentResolver {
   }
 
   public List<NotifiedUri> getNotifiedUris() {
-    return notifiedUris;
+    int size = notifiedUris.size();
+    return size > maxNotifiedUris ? notifiedUris.subList(size - maxNotifiedUris, size) : notifiedUris;
+  }
+
+  /**
+   * Non-Android accessor. Limits {@link #getNotifiedUris()} to the most recent notifications, so that tests
+   * which sync a lot don't keep every notification.
+   *
+   * @param maxNotifiedUris Maximum number of notifications to keep.
+   */
+  public void setMaxNotifiedUris(int maxNotifiedUris) {
+    if (maxNotifiedUris < 0) {
+      throw new IllegalArgumentException("maxNotifiedUris must be >= 0");
+    }
+    this.maxNotifiedUris = maxNotifiedUris;
+    trimNotifiedUris();
+  }
+
+  /**
+   * Non-Android accessor. When enabled, observers are called from their {@link Handler}, or from the main
+   * looper's scheduler if they have none, instead of from {@link ContentResolver#notifyChange}. This is
+   * closer to notifications delivered by the system, and lets tests control when observers run.
+   *
+   * @param postNotifications True to post notifications to the scheduler.
+   */
+  public void setPostNotifications(boolean postNotifications) {
+    this.postNotifications = postNotifications;
+  }
+
+  private void recordNotifiedUri(NotifiedUri notifiedUri) {
+    notifiedUris.add(notifiedUri);
+    // Trim in batches so that each notification is removed in amortized constant time.
+    if (notifiedUris.size() - maxNotifiedUris > maxNotifiedUris) {
+      trimNotifiedUris();
+    }
+  }
+
+  private void trimNotifiedUris() {
+    int size = notifiedUris.size();
+    if (size > maxNotifiedUris) {
+      notifiedUris.subList(0, size - maxNotifiedUris).clear();
+    }
+  }
+
+  private void dispatchChange(final ContentObserver observer, final boolean selfChange, final Uri uri) {
+    // An observer with a handler posts to it from dispatchChange, so only observers without one are posted here.
+    if (postNotifications && ReflectionHelpers.getField(observer, "mHandler") == null) {
+      RuntimeEnvironment.getMasterScheduler().post(new Runnable() {
+        @Override
+        public void run() {
+          observer.dispatchChange(selfChange, uri);
+        }
+      });
+    } else {
+      observer.dispatchChange(selfChange, uri);
+    }
   }
 
   public ArrayList<ContentProviderOperation> getContentProviderOperations(String authority) {
@@ -506,12 +572,17 @@ public class ShadowContentResolver {
 
   @Implementation
   public void registerContentObserver( Uri uri, boolean notifyForDescendents, ContentObserver observer) {
-    CopyOnWriteArraySet<ContentObserver> observers = contentObservers.get(uri);
-    if (observers == null) {
-      observers = new CopyOnWriteArraySet<>();
-      contentObservers.put(uri, observers);
+    ObserverNode node = contentObservers.getOrCreate(getSegments(uri));
+    node.add(observer, notifyForDescendents);
+
+    List<ObserverNode> nodes = observerNodes.get(observer);
+    if (nodes == null) {
+      nodes = new ArrayList<>();
+      observerNodes.put(observer, nodes);
+    }
+    if (!nodes.contains(node)) {
+      nodes.add(node);
     }
-    observers.add(observer);
   }
 
   @Implementation
@@ -522,8 +593,11 @@ public class ShadowContentResolver {
   @Implementation
   public void unregisterContentObserver( ContentObserver observer ) {
     if ( observer != null ) {
-      for (CopyOnWriteArraySet<ContentObserver> observers : contentObservers.values()) {
-        observers.remove(observer);
+      List<ObserverNode> nodes = observerNodes.remove(observer);
+      if (nodes != null) {
+        for (ObserverNode node : nodes) {
+          node.remove(observer);
+        }
       }
     }
   }
@@ -533,7 +607,8 @@ public class ShadowContentResolver {
    * Commonly used in test case setup.
    */
   public void clearContentObservers() {
-    contentObservers.clear();
+    contentObservers = new ObserverNode();
+    observerNodes.clear();
   }
 
   /**
@@ -558,8 +633,21 @@ public class ShadowContentResolver {
    * @return The content observers
    */
   public Collection<ContentObserver> getContentObservers( Uri uri ) {
-    CopyOnWriteArraySet<ContentObserver> observers = contentObservers.get(uri);
-    return (observers == null) ? Collections.<ContentObserver>emptyList() : observers;
+    ObserverNode node = contentObservers.get(getSegments(uri));
+    return (node == null) ? Collections.<ContentObserver>emptyList() : node.observers;
+  }
+
+  /**
+   * @return The authority of {@code uri} followed by its path segments, which identify it in the
+   * observer tree like on the platform.
+   */
+  private static List<String> getSegments(Uri uri) {
+    List<String> pathSegments = uri.getPathSegments();
+    List<String> segments = new ArrayList<>(pathSegments.size() + 1);
+    String authority = uri.getAuthority();
+    segments.add(authority == null ? "" : authority);
+    segments.addAll(pathSegments);
+    return segments;
   }
 
   @Implementation
@@ -681,6 +769,76 @@ public class ShadowContentResolver {
     }
   }
 
+  /**
+   * Node of the tree of registered observers, with one level per URI segment. Notifying a URI walks
+   * down its path, so it takes time proportional to its depth and to the number of observers notified.
+   */
+  private static class ObserverNode {
+    private final Map<String, ObserverNode> children = new LinkedHashMap<>();
+    private final CopyOnWriteArraySet<ContentObserver> observers = new CopyOnWriteArraySet<>();
+    private final Set<ContentObserver> descendantObservers = new LinkedHashSet<>();
+
+    public ObserverNode get(List<String> segments) {
+      ObserverNode node = this;
+      for (String segment : segments) {
+        node = node.children.get(segment);
+        if (node == null) {
+          return null;
+        }
+      }
+      return node;
+    }
+
+    public ObserverNode getOrCreate(List<String> segments) {
+      ObserverNode node = this;
+      for (String segment : segments) {
+        ObserverNode child = node.children.get(segment);
+        if (child == null) {
+          child = new ObserverNode();
+          node.children.put(segment, child);
+        }
+        node = child;
+      }
+      return node;
+    }
+
+    public void add(ContentObserver observer, boolean notifyForDescendents) {
+      observers.add(observer);
+      if (notifyForDescendents) {
+        descendantObservers.add(observer);
+      } else {
+        descendantObservers.remove(observer);
+      }
+    }
+
+    public void remove(ContentObserver observer) {
+      observers.remove(observer);
+      descendantObservers.remove(observer);
+    }
+
+    /**
+     * Collects the observers of the URI with the given segments, starting from the segment at {@code index}.
+     */
+    public void collectObservers(List<String> segments, int index, Collection<ContentObserver> collected) {
+      if (index == segments.size()) {
+        collectAll(collected);
+        return;
+      }
+      collected.addAll(descendantObservers);
+      ObserverNode child = children.get(segments.get(index));
+      if (child != null) {
+        child.collectObservers(segments, index + 1, collected);
+      }
+    }
+
+    private void collectAll(Collection<ContentObserver> collected) {
+      collected.addAll(observers);
+      for (ObserverNode child : children.values()) {
+        child.collectAll(collected);
+      }
+    }
+  }
+
   private static class UnregisteredInputStream extends InputStream implements NamedStream {
     private final Uri uri;
 
@@ -8,21 +8,53 @@ import org.robolectric.annotation.Resetter;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Shadow for {@link android.util.Log}.
+ *
+ * <p>Every log item is kept until the next test, as before. Logging can be configured with the following
+ * properties:</p>
+ * <ul>
+ *   <li>{@code robolectric.logging.capacity}: if set, log items are kept in a ring buffer of this size instead,
+ *   so a chatty test doesn't grow the heap without bound. Items that don't fit are counted by
+ *   {@link #getDroppedLogCount()}.</li>
+ *   <li>{@code robolectric.logging.dropPolicy}: {@code oldest} (default) to keep the most recent items once
+ *   the ring buffer is full, or {@code newest} to keep the first ones.</li>
+ *   <li>{@code robolectric.logging.filterByLoggable}: if {@code true}, items for which {@link #isLoggable}
+ *   is false are dropped before anything is allocated.</li>
+ *   <li>{@code robolectric.logging.async}: if {@code true}, the stream set up from {@code robolectric.logging}
+ *   is written to by a background thread.</li>
+ * </ul>
  */
 @Implements(Log.class)
 public class ShadowLog {
   private static final int extraLogLength = "l/: \n".length();
-  private static Map<String,List<LogItem>> logsByTag = new HashMap<>();
-  private static List<LogItem> logs = new ArrayList<>();
-  public static PrintStream stream;
-  private static final Map<String, Integer> tagToLevel = new HashMap<>();
+  private static final int CAPACITY = Math.max(0, Integer.getInteger("robolectric.logging.capacity", 0));
+  private static final boolean BOUNDED = CAPACITY > 0;
+  private static final boolean DROP_NEWEST = "newest".equalsIgnoreCase(System.getProperty("robolectric.logging.dropPolicy"));
+  private static final boolean FILTER_BY_LOGGABLE = Boolean.getBoolean("robolectric.logging.filterByLoggable");
+  private static final int WRITER_BATCH_SIZE = 256;
+
+  private static final AtomicReferenceArray<LogItem> ringBuffer = BOUNDED ? new AtomicReferenceArray<LogItem>(CAPACITY) : null;
+  private static final List<LogItem> unboundedLogs = BOUNDED ? null : Collections.synchronizedList(new ArrayList<LogItem>());
+  private static final List<LogItem> logs = new LogList();
+  private static final AtomicLong logCount = new AtomicLong();
+  private static Map<String, List<LogItem>> logsByTag;
+  private static long logsByTagCount = -1;
+  public static volatile PrintStream stream;
+  private static volatile StreamWriter streamWriter;
+  private static final Map<String, Integer> tagToLevel = new ConcurrentHashMap<>();
 
   @Implementation
   public static void e(String tag, String msg) {
@@ -91,9 +123,10 @@ public class ShadowLog {
   }
 
   @Implementation
-  public static synchronized boolean isLoggable(String tag, int level) {
-    if (tagToLevel.containsKey(tag)) {
-      return level >= tagToLevel.get(tag);
+  public static boolean isLoggable(String tag, int level) {
+    Integer tagLevel = tag == null ? null : tagToLevel.get(tag);
+    if (tagLevel != null) {
+      return level >= tagLevel;
     }
     return stream != null || level >= Log.INFO;
   }
@@ -111,32 +144,48 @@ public class ShadowLog {
    * @param tag A log tag
    * @param level A log level, from {@link android.util.Log}
    */
-  public static synchronized void setLoggable(String tag, int level) {
+  public static void setLoggable(String tag, int level) {
     tagToLevel.put(tag, level);
   }
 
-  private static synchronized void addLog(int level, String tag, String msg, Throwable throwable) {
-    if (stream != null) {
-      logToStream(stream, level, tag, msg, throwable);
+  private static void addLog(int level, String tag, String msg, Throwable throwable) {
+    if (FILTER_BY_LOGGABLE && !isLoggable(tag, level)) {
+      return;
+    }
+    PrintStream stream = ShadowLog.stream;
+    if (BOUNDED && DROP_NEWEST && logCount.get() >= CAPACITY && stream == null) {
+      logCount.incrementAndGet();
+      return;
     }
 
     LogItem item = new LogItem(level, tag, msg, throwable);
-    List<LogItem> itemList;
+    if (stream != null) {
+      StreamWriter writer = streamWriter;
+      if (writer != null && writer.stream == stream) {
+        writer.enqueue(item);
+      } else {
+        logToStream(stream, item);
+      }
+    }
 
-    if (!logsByTag.containsKey(tag)) {
-      itemList = new ArrayList<>();
-      logsByTag.put(tag, itemList);
-    } else {
-      itemList = logsByTag.get(tag);
+    long index = logCount.getAndIncrement();
+    if (!BOUNDED) {
+      unboundedLogs.add(item);
+    } else if (!DROP_NEWEST || index < CAPACITY) {
+      ringBuffer.set((int) (index % CAPACITY), item);
     }
+  }
 
-    itemList.add(item);
-    logs.add(item);
+  private static void logToStream(PrintStream ps, LogItem item) {
+    ps.println(format(item));
+    if (item.throwable != null) {
+      item.throwable.printStackTrace(ps);
+    }
   }
 
-  private static void logToStream(PrintStream ps, int level, String tag, String msg, Throwable throwable) {
+  private static String format(LogItem item) {
     final char c;
-    switch (level) {
+    switch (item.type) {
       case Log.ASSERT: c = 'A'; break;
       case Log.DEBUG:  c = 'D'; break;
       case Log.ERROR:  c = 'E'; break;
@@ -145,37 +194,117 @@ public class ShadowLog {
       case Log.VERBOSE:c = 'V'; break;
       default:         c = '?';
     }
-    ps.println(c + "/" + tag + ": " + msg);
-    if (throwable != null) {
-      throwable.printStackTrace(ps);
-    }
+    return c + "/" + item.tag + ": " + item.msg;
   }
 
   /**
-   * Non-Android accessor.  Returns ordered list of all log entries.
+   * Non-Android accessor.  Returns ordered list of all log items. The list is a live view: it includes items
+   * logged after it was returned, and {@link List#clear()} removes every log item. It can't be changed
+   * otherwise.
    * @return List of log items
    */
-  public static synchronized List<LogItem> getLogs() {
+  public static List<LogItem> getLogs() {
     return logs;
   }
 
   /**
-   * Non-Android accessor.  Returns ordered list of all log items for a specific tag.
+   * Non-Android accessor.  Returns ordered list of all log items for a specific tag. The index of items by
+   * tag is only built when it is asked for, and rebuilt if anything has been logged since.
    *
    * @param tag The tag to get logs for
    * @return The list of log items for the tag
    */
   public static synchronized List<LogItem> getLogsForTag( String tag ) {
+    long count = logCount.get();
+    if (logsByTag == null || logsByTagCount != count) {
+      logsByTag = new HashMap<>();
+      for (LogItem item : snapshot()) {
+        List<LogItem> itemList = logsByTag.get(item.tag);
+        if (itemList == null) {
+          itemList = new ArrayList<>();
+          logsByTag.put(item.tag, itemList);
+        }
+        itemList.add(item);
+      }
+      logsByTagCount = count;
+    }
     return logsByTag.get(tag);
   }
 
+  /**
+   * Non-Android accessor.  Returns the number of log items that didn't fit in the buffer since the last reset.
+   * @return Number of dropped log items
+   */
+  public static long getDroppedLogCount() {
+    return BOUNDED ? Math.max(0, logCount.get() - CAPACITY) : 0;
+  }
+
   @Resetter
   public static synchronized void reset() {
-    logs.clear();
-    logsByTag.clear();
+    clearLogs();
     tagToLevel.clear();
   }
 
+  private static synchronized void clearLogs() {
+    long count = logCount.getAndSet(0);
+    if (BOUNDED) {
+      for (int i = 0; i < Math.min(count, CAPACITY); i++) {
+        ringBuffer.set(i, null);
+      }
+    } else {
+      unboundedLogs.clear();
+    }
+    logsByTag = null;
+    logsByTagCount = -1;
+  }
+
+  /**
+   * @return Copy of the log items, only guaranteed to be exact if no other thread is logging.
+   */
+  private static List<LogItem> snapshot() {
+    if (!BOUNDED) {
+      synchronized (unboundedLogs) {
+        return new ArrayList<>(unboundedLogs);
+      }
+    }
+    List<LogItem> items = new ArrayList<>(logs.size());
+    for (LogItem item : logs) {
+      if (item != null) {
+        items.add(item);
+      }
+    }
+    return items;
+  }
+
+  /**
+   * The log items, in the order they were logged.
+   */
+  private static class LogList extends AbstractList<LogItem> {
+    @Override
+    public LogItem get(int index) {
+      if (!BOUNDED) {
+        return unboundedLogs.get(index);
+      }
+      long count = logCount.get();
+      long retained = Math.min(count, CAPACITY);
+      if (index < 0 || index >= retained) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + retained);
+      }
+      long first = DROP_NEWEST ? 0 : count - retained;
+      return ringBuffer.get((int) ((first + index) % CAPACITY));
+    }
+
+    @Override
+    public int size() {
+      return BOUNDED ? (int) Math.min(logCount.get(), CAPACITY) : unboundedLogs.size();
+    }
+
+    @Override
+    public void clear() {
+      clearLogs();
+    }
+  }
+
   public static void setupLogging() {
     String logging = System.getProperty("robolectric.logging");
     if (logging != null && stream == null) {
@@ -200,10 +329,66 @@ public class ShadowLog {
           e.printStackTrace();
         }
       }
+      if (stream != null && Boolean.getBoolean("robolectric.logging.async")) {
+        streamWriter = new StreamWriter(stream);
+      }
       ShadowLog.stream = stream;
     }
   }
 
+  /**
+   * Writes log items to a stream from a background thread, in batches.
+   */
+  private static class StreamWriter implements Runnable {
+    private final PrintStream stream;
+    private final BlockingQueue<LogItem> queue = new LinkedBlockingQueue<>();
+
+    public StreamWriter(PrintStream stream) {
+      this.stream = stream;
+      Thread thread = new Thread(this, "ShadowLog writer");
+      thread.setDaemon(true);
+      thread.start();
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        @Override public void run() {
+          drain();
+        }
+      });
+    }
+
+    public void enqueue(LogItem item) {
+      queue.add(item);
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          LogItem first = queue.take();
+          synchronized (this) {
+            write(first);
+            drain();
+          }
+        }
+      } catch (InterruptedException ignored) {
+      }
+    }
+
+    private synchronized void drain() {
+      List<LogItem> batch = new ArrayList<>(WRITER_BATCH_SIZE);
+      while (queue.drainTo(batch, WRITER_BATCH_SIZE) > 0) {
+        for (LogItem item : batch) {
+          write(item);
+        }
+        batch.clear();
+      }
+      stream.flush();
+    }
+
+    private void write(LogItem item) {
+      logToStream(stream, item);
+    }
+  }
+
   public static class LogItem {
     public final int type;
     public final String tag;
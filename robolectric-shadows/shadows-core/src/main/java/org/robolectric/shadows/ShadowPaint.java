@@ -39,6 +39,7 @@ public class ShadowPaint {
   private Typeface typeface;
   private float textSize;
   private Paint.Align textAlign = Paint.Align.LEFT;
+  private float letterSpacing;
 
   public void __constructor__(int flags) {
     this.flags = flags;
@@ -256,6 +257,19 @@ public class ShadowPaint {
     return antiAlias;
   }
 
+  /**
+   * Letter spacing was added in Lollipop; the real implementation is native.
+   */
+  @Implementation
+  public float getLetterSpacing() {
+    return letterSpacing;
+  }
+
+  @Implementation
+  public void setLetterSpacing(float letterSpacing) {
+    this.letterSpacing = letterSpacing;
+  }
+
   @Implementation
   public PathEffect getPathEffect() {
     return pathEffect;
@@ -30,6 +30,7 @@ import org.robolectric.res.ResType;
 import org.robolectric.res.ResourceLoader;
 import org.robolectric.res.TypedResource;
 import org.robolectric.res.builder.ResourceParser;
+import org.robolectric.res.builder.ResourceParser.XmlResourceParserImpl;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.res.builder.XmlBlock;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
@@ -39,19 +40,45 @@ import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import static org.robolectric.internal.Shadow.directlyOn;
 import static org.robolectric.Shadows.shadowOf;
 
 /**
  * Shadow for {@link android.content.res.Resources}.
+ *
+ * Resolved attributes are cached per element, attrs array, style and theme, so inflating the same layout
+ * again copies the values instead of resolving them again. The cache is cleared when a theme style is applied
+ * and between tests.
  */
 @Implements(Resources.class)
 public class ShadowResources {
+  private static final int MAX_TYPED_ARRAY_TEMPLATES = 1024;
+  /** Stands in for the element when attributes are resolved without an AttributeSet. */
+  private static final Object NO_ELEMENT = new Object();
+
   private static Resources system = null;
   private static List<LongSparseArray<?>> resettableArrays;
+  private static final Map<TemplateKey, TypedArrayTemplate> typedArrayTemplates = Collections.synchronizedMap(
+      new LinkedHashMap<TemplateKey, TypedArrayTemplate>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<TemplateKey, TypedArrayTemplate> eldest) {
+          return size() > MAX_TYPED_ARRAY_TEMPLATES;
+        }
+      });
+  private static final ThreadLocal<TypedValue> scratchTypedValue = new ThreadLocal<TypedValue>() {
+    @Override
+    protected TypedValue initialValue() {
+      return new TypedValue();
+    }
+  };
 
   private float density = 1.0f;
   private DisplayMetrics displayMetrics;
@@ -67,6 +94,11 @@ public class ShadowResources {
       sparseArray.clear();
     }
     system = null;
+    clearTypedArrayTemplates();
+  }
+
+  static void clearTypedArrayTemplates() {
+    typedArrayTemplates.clear();
   }
 
   private static List<LongSparseArray<?>> obtainResettableArrays() {
@@ -100,24 +132,60 @@ public class ShadowResources {
   }
 
   private TypedArray attrsToTypedArray(AttributeSet set, int[] attrs, int defStyleAttr, int themeResourceId, int defStyleRes) {
+    Object element = null;
     if (set == null) {
+      element = NO_ELEMENT;
       set = RoboAttributeSet.create(RuntimeEnvironment.application);
+    } else if (set instanceof XmlResourceParserImpl) {
+      element = ((XmlResourceParserImpl) set).getCurrentNode();
     }
 
-    List<Attribute> attributes = shadowOf(realResources.getAssets()).buildAttributes(set, attrs, defStyleAttr, themeResourceId, defStyleRes);
-    TypedArray typedArray = createTypedArray(attributes, attrs);
+    ShadowAssetManager shadowAssetManager = shadowOf(realResources.getAssets());
+    TemplateKey key = element == null || attrs == null ? null : new TemplateKey(element, attrs, defStyleAttr,
+        themeResourceId, defStyleRes, shadowAssetManager.getResourceLoader(), shadowAssetManager.getQualifiers());
+    TypedArrayTemplate template = key == null ? null : typedArrayTemplates.get(key);
+
+    TypedArray typedArray;
+    if (template != null) {
+      typedArray = template.create(realResources, attrs);
+    } else {
+      Map<ResName, Attribute> attributes = shadowAssetManager.buildAttributeMap(set, attrs, defStyleAttr, themeResourceId, defStyleRes);
+      ShadowTypedArray.Buffers buffers = fillBuffers(attributes, attrs);
+      if (key != null) {
+        typedArrayTemplates.put(key, new TypedArrayTemplate(buffers, attrs.length));
+      }
+      typedArray = ShadowTypedArray.create(realResources, attrs, buffers, buffers.indices[0]);
+    }
     shadowOf(typedArray).positionDescription = set.getPositionDescription();
     return typedArray;
   }
 
   public TypedArray createTypedArray(List<Attribute> set, int[] attrs) {
+    Map<ResName, Attribute> attributes = new HashMap<>();
+    for (Attribute attribute : set) {
+      // Attribute.find() returns the first match, so keep the first of any duplicates.
+      if (!attributes.containsKey(attribute.resName)) {
+        attributes.put(attribute.resName, attribute);
+      }
+    }
+    return createTypedArray(attributes, attrs);
+  }
+
+  private TypedArray createTypedArray(Map<ResName, Attribute> set, int[] attrs) {
+    ShadowTypedArray.Buffers buffers = fillBuffers(set, attrs);
+    return ShadowTypedArray.create(realResources, attrs, buffers, buffers.indices[0]);
+  }
+
+  private ShadowTypedArray.Buffers fillBuffers(Map<ResName, Attribute> set, int[] attrs) {
     ShadowAssetManager shadowAssetManager = shadowOf(realResources.getAssets());
     ResourceLoader resourceLoader = shadowAssetManager.getResourceLoader();
 
-    CharSequence[] stringData = new CharSequence[attrs.length];
-    int[] data = new int[attrs.length * ShadowAssetManager.STYLE_NUM_ENTRIES];
-    int[] indices = new int[attrs.length + 1];
+    ShadowTypedArray.Buffers buffers = ShadowTypedArray.obtainBuffers(attrs.length);
+    CharSequence[] stringData = buffers.stringData;
+    int[] data = buffers.data;
+    int[] indices = buffers.indices;
     int nextIndex = 0;
+    TypedValue typedValue = scratchTypedValue.get();
 
     for (int i = 0; i < attrs.length; i++) {
       int offset = i * ShadowAssetManager.STYLE_NUM_ENTRIES;
@@ -125,11 +193,11 @@ public class ShadowResources {
       int attr = attrs[i];
       ResName attrName = resourceLoader.getResourceIndex().getResName(attr);
       if (attrName != null) {
-        Attribute attribute = Attribute.find(set, attrName);
-        TypedValue typedValue = new TypedValue();
-        Converter.convertAndFill(attribute, typedValue, resourceLoader, shadowAssetManager.getQualifiers(), true);
-
+        Attribute attribute = set.get(attrName);
         if (attribute != null && !attribute.isNull()) {
+          clear(typedValue);
+          Converter.convertAndFill(attribute, typedValue, resourceLoader, shadowAssetManager.getQualifiers(), true);
+
           //noinspection PointlessArithmeticExpression
           data[offset + ShadowAssetManager.STYLE_TYPE] = typedValue.type;
           data[offset + ShadowAssetManager.STYLE_DATA] = typedValue.type == TypedValue.TYPE_STRING ? i : typedValue.data;
@@ -144,10 +212,24 @@ public class ShadowResources {
         }
       }
     }
+    clear(typedValue);
 
     indices[0] = nextIndex;
 
-    return ShadowTypedArray.create(realResources, attrs, data, indices, nextIndex, stringData);
+    return buffers;
+  }
+
+  /**
+   * Puts a reused TypedValue back into the state of a new one.
+   */
+  private static void clear(TypedValue typedValue) {
+    typedValue.type = TypedValue.TYPE_NULL;
+    typedValue.string = null;
+    typedValue.data = 0;
+    typedValue.assetCookie = 0;
+    typedValue.resourceId = 0;
+    typedValue.changingConfigurations = -1;
+    typedValue.density = 0;
   }
 
   @Implementation
@@ -342,6 +424,84 @@ public class ShadowResources {
     return drawable;
   }
 
+  private static class TemplateKey {
+    private final Object element;
+    private final int[] attrs;
+    private final int defStyleAttr;
+    private final int themeResourceId;
+    private final int defStyleRes;
+    private final ResourceLoader resourceLoader;
+    private final String qualifiers;
+
+    TemplateKey(Object element, int[] attrs, int defStyleAttr, int themeResourceId, int defStyleRes,
+                ResourceLoader resourceLoader, String qualifiers) {
+      this.element = element;
+      this.attrs = attrs;
+      this.defStyleAttr = defStyleAttr;
+      this.themeResourceId = themeResourceId;
+      this.defStyleRes = defStyleRes;
+      this.resourceLoader = resourceLoader;
+      this.qualifiers = qualifiers;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      TemplateKey that = (TemplateKey) o;
+
+      // Elements, attrs arrays and resource loaders are compared by identity.
+      return element == that.element && attrs == that.attrs && defStyleAttr == that.defStyleAttr
+          && themeResourceId == that.themeResourceId && defStyleRes == that.defStyleRes
+          && resourceLoader == that.resourceLoader
+          && (qualifiers == null ? that.qualifiers == null : qualifiers.equals(that.qualifiers));
+    }
+
+    @Override
+    public int hashCode() {
+      int result = System.identityHashCode(element);
+      result = 31 * result + System.identityHashCode(attrs);
+      result = 31 * result + defStyleAttr;
+      result = 31 * result + themeResourceId;
+      result = 31 * result + defStyleRes;
+      result = 31 * result + System.identityHashCode(resourceLoader);
+      result = 31 * result + (qualifiers == null ? 0 : qualifiers.hashCode());
+      return result;
+    }
+  }
+
+  /**
+   * Values resolved for a set of attributes, copied into each TypedArray created from them.
+   */
+  private static class TypedArrayTemplate {
+    private final int[] data;
+    private final int[] indices;
+    private final CharSequence[] stringData;
+
+    TypedArrayTemplate(ShadowTypedArray.Buffers buffers, int length) {
+      data = Arrays.copyOf(buffers.data, length * ShadowAssetManager.STYLE_NUM_ENTRIES);
+      indices = Arrays.copyOf(buffers.indices, length + 1);
+      stringData = Arrays.copyOf(buffers.stringData, length);
+    }
+
+    TypedArray create(Resources resources, int[] attrs) {
+      ShadowTypedArray.Buffers buffers = ShadowTypedArray.obtainBuffers(stringData.length);
+      System.arraycopy(data, 0, buffers.data, 0, data.length);
+      System.arraycopy(indices, 0, buffers.indices, 0, indices.length);
+      System.arraycopy(stringData, 0, buffers.stringData, 0, stringData.length);
+
+      // Each value gets a new cookie, as it would if resolved again, so Resources doesn't serve it from its caches.
+      for (int i = 1; i <= indices[0]; i++) {
+        int cookie = indices[i] * ShadowAssetManager.STYLE_NUM_ENTRIES + ShadowAssetManager.STYLE_ASSET_COOKIE;
+        if (buffers.data[cookie] != 0) {
+          buffers.data[cookie] = Converter.getNextStringCookie();
+        }
+      }
+      return ShadowTypedArray.create(resources, attrs, buffers, indices[0]);
+    }
+  }
+
   @Implements(Resources.NotFoundException.class)
   public static class ShadowNotFoundException {
     @RealObject Resources.NotFoundException realObject;
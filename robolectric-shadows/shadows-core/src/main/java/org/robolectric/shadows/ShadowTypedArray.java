@@ -7,19 +7,37 @@ import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.RealObject;
 import org.robolectric.annotation.HiddenApi;
+import org.robolectric.annotation.Resetter;
 import org.robolectric.util.ReflectionHelpers;
 import org.robolectric.util.ReflectionHelpers.ClassParameter;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.robolectric.internal.Shadow.directlyOn;
+
 /**
  * Shadow for {@link android.content.res.TypedArray}.
  */
 @SuppressWarnings({"UnusedDeclaration"})
 @Implements(TypedArray.class)
 public class ShadowTypedArray {
+  private static final int MAX_POOLED_BUFFERS = 16;
+  private static final ArrayDeque<Buffers> bufferPool = new ArrayDeque<>();
+
   @RealObject private TypedArray realTypedArray;
   private CharSequence[] stringData;
+  private Buffers buffers;
   public String positionDescription;
 
+  @Resetter
+  public static void reset() {
+    synchronized (bufferPool) {
+      bufferPool.clear();
+    }
+  }
+
   public static TypedArray create(Resources realResources, int[] attrs, int[] data, int[] indices, int len, CharSequence[] stringData) {
     TypedArray typedArray = ReflectionHelpers.callConstructor(TypedArray.class,
         ClassParameter.from(Resources.class, realResources),
@@ -30,6 +48,33 @@ public class ShadowTypedArray {
     return typedArray;
   }
 
+  /**
+   * Creates a TypedArray backed by pooled arrays, which are returned to the pool when it is recycled.
+   */
+  static TypedArray create(Resources realResources, int[] attrs, Buffers buffers, int len) {
+    TypedArray typedArray = create(realResources, attrs, buffers.data, buffers.indices, len, buffers.stringData);
+    Shadows.shadowOf(typedArray).buffers = buffers;
+    return typedArray;
+  }
+
+  /**
+   * @param length Number of attributes the arrays must hold.
+   * @return Cleared arrays for a TypedArray, taken from the pool if it has any that are large enough.
+   */
+  static Buffers obtainBuffers(int length) {
+    synchronized (bufferPool) {
+      Iterator<Buffers> iterator = bufferPool.iterator();
+      while (iterator.hasNext()) {
+        Buffers buffers = iterator.next();
+        if (buffers.stringData.length >= length) {
+          iterator.remove();
+          return buffers;
+        }
+      }
+    }
+    return new Buffers(length);
+  }
+
   @HiddenApi @Implementation
   public CharSequence loadStringValueAt(int index) {
     return stringData[index / ShadowAssetManager.STYLE_NUM_ENTRIES];
@@ -39,4 +84,45 @@ public class ShadowTypedArray {
   public String getPositionDescription() {
     return positionDescription;
   }
+
+  @Implementation
+  public void recycle() {
+    directlyOn(realTypedArray, TypedArray.class).recycle();
+
+    if (buffers != null) {
+      // The framework may hand this TypedArray out again with its own arrays, so it must stop sharing ours.
+      ReflectionHelpers.setField(realTypedArray, "mData", new int[0]);
+      ReflectionHelpers.setField(realTypedArray, "mIndices", new int[1]);
+      stringData = null;
+
+      buffers.clear();
+      synchronized (bufferPool) {
+        if (bufferPool.size() < MAX_POOLED_BUFFERS) {
+          bufferPool.push(buffers);
+        }
+      }
+      buffers = null;
+    }
+  }
+
+  /**
+   * Arrays backing a TypedArray created by {@link ShadowResources}.
+   */
+  static class Buffers {
+    final int[] data;
+    final int[] indices;
+    final CharSequence[] stringData;
+
+    Buffers(int length) {
+      data = new int[length * ShadowAssetManager.STYLE_NUM_ENTRIES];
+      indices = new int[length + 1];
+      stringData = new CharSequence[length];
+    }
+
+    void clear() {
+      Arrays.fill(data, 0);
+      Arrays.fill(indices, 0);
+      Arrays.fill(stringData, null);
+    }
+  }
 }
@@ -0,0 +1,287 @@
+package org.robolectric.shadows.util;
+
+import android.graphics.Point;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+
+/**
+ * Reads the dimensions of an image from its header, without decoding it.
+ *
+ * PNG, JPEG, GIF, WebP and BMP headers are parsed directly, reading only the bytes up to the
+ * width and height. Other formats, and headers longer than the parser reads, such as JPEGs with
+ * large metadata segments, fall back to {@link ImageIO}.
+ */
+public class ImageUtil {
+  /** How far into a stream the header parser reads before leaving the image to {@link ImageIO}. */
+  private static final int MAX_HEADER_BYTES = 64 * 1024;
+
+  private static boolean initialized;
+
+  /**
+   * @param is Stream positioned at the start of an image.
+   * @return Width and height of the image, or {@code null} if it isn't an image in a known format or the
+   *     stream ends before its size.
+   */
+  public static Point getImageSizeFromStream(InputStream is) {
+    InputStream markable = is.markSupported() ? is : new BufferedInputStream(is);
+    markable.mark(MAX_HEADER_BYTES);
+    try {
+      Point size = readHeader(new HeaderStream(markable));
+      if (size != null) {
+        return size;
+      }
+      markable.reset();
+    } catch (HeaderTooLongException e) {
+      try {
+        markable.reset();
+      } catch (IOException resetFailed) {
+        throw new RuntimeException(resetFailed);
+      }
+    } catch (EOFException e) {
+      return null;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return readWithImageIO(markable);
+  }
+
+  static Point readHeader(HeaderStream in) throws IOException {
+    int b0 = in.readByte();
+    int b1 = in.readByte();
+
+    if (b0 == 0x89 && b1 == 'P') {
+      return readPng(in);
+    } else if (b0 == 0xff && b1 == 0xd8) {
+      return readJpeg(in);
+    } else if (b0 == 'G' && b1 == 'I') {
+      return readGif(in);
+    } else if (b0 == 'R' && b1 == 'I') {
+      return readWebp(in);
+    } else if (b0 == 'B' && b1 == 'M') {
+      return readBmp(in);
+    }
+    return null;
+  }
+
+  private static Point readPng(HeaderStream in) throws IOException {
+    // Rest of the signature, then the IHDR chunk's length and type.
+    if (!in.matches("NG\r\n\u001a\n")) {
+      return null;
+    }
+    in.skip(4);
+    if (!in.matches("IHDR")) {
+      return null;
+    }
+    int width = in.readIntBigEndian();
+    int height = in.readIntBigEndian();
+    return new Point(width, height);
+  }
+
+  private static Point readJpeg(HeaderStream in) throws IOException {
+    while (true) {
+      int marker = in.readByte();
+      if (marker != 0xff) {
+        return null;
+      }
+      while (marker == 0xff) {
+        marker = in.readByte();
+      }
+
+      if (marker == 0x01 || (marker >= 0xd0 && marker <= 0xd8)) {
+        // Markers without a payload.
+        continue;
+      }
+      if (marker == 0xd9 || marker == 0xda) {
+        // End of image or start of scan before any frame header.
+        return null;
+      }
+
+      int length = in.readShortBigEndian();
+      if (isStartOfFrame(marker)) {
+        in.skip(1); // sample precision
+        int height = in.readShortBigEndian();
+        int width = in.readShortBigEndian();
+        return new Point(width, height);
+      }
+      in.skip(length - 2);
+    }
+  }
+
+  private static boolean isStartOfFrame(int marker) {
+    return marker >= 0xc0 && marker <= 0xcf && marker != 0xc4 && marker != 0xc8 && marker != 0xcc;
+  }
+
+  private static Point readGif(HeaderStream in) throws IOException {
+    String signature = in.readFourCc();
+    if (!signature.equals("F87a") && !signature.equals("F89a")) {
+      return null;
+    }
+    int width = in.readShortLittleEndian();
+    int height = in.readShortLittleEndian();
+    return new Point(width, height);
+  }
+
+  private static Point readWebp(HeaderStream in) throws IOException {
+    if (!in.matches("FF")) {
+      return null;
+    }
+    in.skip(4); // file size
+    if (!in.matches("WEBP")) {
+      return null;
+    }
+
+    String chunk = in.readFourCc();
+    in.skip(4); // chunk size
+    switch (chunk) {
+      case "VP8 ": {
+        in.skip(3); // frame tag
+        if (in.readByte() != 0x9d || in.readByte() != 0x01 || in.readByte() != 0x2a) {
+          return null;
+        }
+        int width = in.readShortLittleEndian() & 0x3fff;
+        int height = in.readShortLittleEndian() & 0x3fff;
+        return new Point(width, height);
+      }
+      case "VP8L": {
+        if (in.readByte() != 0x2f) {
+          return null;
+        }
+        int b0 = in.readByte();
+        int b1 = in.readByte();
+        int b2 = in.readByte();
+        int b3 = in.readByte();
+        int width = 1 + (((b1 & 0x3f) << 8) | b0);
+        int height = 1 + (((b3 & 0x0f) << 10) | (b2 << 2) | ((b1 & 0xc0) >> 6));
+        return new Point(width, height);
+      }
+      case "VP8X": {
+        in.skip(4); // flags and reserved bytes
+        int width = 1 + in.readInt24LittleEndian();
+        int height = 1 + in.readInt24LittleEndian();
+        return new Point(width, height);
+      }
+      default:
+        return null;
+    }
+  }
+
+  private static Point readBmp(HeaderStream in) throws IOException {
+    in.skip(12); // file size, reserved bytes and pixel data offset
+    int headerSize = in.readIntLittleEndian();
+    if (headerSize == 12) {
+      int width = in.readShortLittleEndian();
+      int height = in.readShortLittleEndian();
+      return new Point(width, height);
+    }
+    int width = in.readIntLittleEndian();
+    int height = in.readIntLittleEndian();
+    return new Point(width, Math.abs(height));
+  }
+
+  private static Point readWithImageIO(InputStream is) {
+    if (!initialized) {
+      // Stops ImageIO from creating temp files when reading images
+      // from input stream.
+      ImageIO.setUseCache(false);
+      initialized = true;
+    }
+
+    try {
+      ImageInputStream imageStream = ImageIO.createImageInputStream(is);
+      Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+      if (!readers.hasNext()) return null;
+
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(imageStream);
+        return new Point(reader.getWidth(0), reader.getHeight(0));
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Thrown when a header goes on for longer than the parser reads. Unlike {@link EOFException}, the image
+   * may well be complete.
+   */
+  private static class HeaderTooLongException extends IOException {
+    HeaderTooLongException() {
+      super("Image header is longer than " + MAX_HEADER_BYTES + " bytes");
+    }
+  }
+
+  /**
+   * Reads header fields from a stream, failing once the header is longer than the parser reads.
+   */
+  static class HeaderStream {
+    private final InputStream in;
+    private int position;
+
+    HeaderStream(InputStream in) {
+      this.in = in;
+    }
+
+    int readByte() throws IOException {
+      if (position >= MAX_HEADER_BYTES) {
+        throw new HeaderTooLongException();
+      }
+      int b = in.read();
+      if (b < 0) {
+        throw new EOFException();
+      }
+      position++;
+      return b;
+    }
+
+    void skip(int count) throws IOException {
+      for (int i = 0; i < count; i++) {
+        readByte();
+      }
+    }
+
+    /**
+     * @return True if the next bytes are {@code expected}.
+     */
+    boolean matches(String expected) throws IOException {
+      boolean matches = true;
+      for (int i = 0; i < expected.length(); i++) {
+        matches &= readByte() == expected.charAt(i);
+      }
+      return matches;
+    }
+
+    String readFourCc() throws IOException {
+      return "" + (char) readByte() + (char) readByte() + (char) readByte() + (char) readByte();
+    }
+
+    int readShortBigEndian() throws IOException {
+      return readByte() << 8 | readByte();
+    }
+
+    int readShortLittleEndian() throws IOException {
+      return readByte() | readByte() << 8;
+    }
+
+    int readInt24LittleEndian() throws IOException {
+      return readByte() | readByte() << 8 | readByte() << 16;
+    }
+
+    int readIntBigEndian() throws IOException {
+      return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
+    }
+
+    int readIntLittleEndian() throws IOException {
+      return readByte() | readByte() << 8 | readByte() << 16 | readByte() << 24;
+    }
+  }
+}
@@ -4,33 +4,48 @@ import com.almworks.sqlite4java.SQLite;
 import com.almworks.sqlite4java.SQLiteException;
 import org.robolectric.res.Fs;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
-import java.math.BigInteger;
+import java.io.RandomAccessFile;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Locale;
+import java.util.jar.JarEntry;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Initializes sqlite native libraries.
+ *
+ * The library is extracted to a directory named after its content, so an extracted library never has to be
+ * compared with the one on the classpath: if a file of the right size exists at that path, it is the same
+ * library. When the library comes from a jar, its content is identified by the CRC and size the jar already
+ * stores for it, without reading it. Extraction writes a temporary file and renames it into place while
+ * holding a file lock, so JVMs starting in parallel never load a partly written library.
  */
 public class SQLiteLibraryLoader {
   private static SQLiteLibraryLoader instance;
   private static final String SQLITE4JAVA = "sqlite4java";
   private static final String OS_WIN = "windows", OS_LINUX = "linux", OS_MAC = "mac";
+  private static final long LOCK_RETRY_MILLIS = 10;
 
   private final LibraryNameMapper libraryNameMapper;
   private boolean loaded;
+  private LibraryContent libraryContent;
 
   public SQLiteLibraryLoader() {
     this(DEFAULT_MAPPER);
@@ -60,11 +75,10 @@ public class SQLiteLibraryLoader {
     final long startTime = System.currentTimeMillis();
     final File extractedLibrary = getNativeLibraryPath();
 
-    if (isExtractedLibUptodate(extractedLibrary)) {
-      loadFromDirectory(extractedLibrary.getParentFile());
-    } else {
-      extractAndLoad(getLibraryStream(), extractedLibrary);
+    if (!isExtractedLibUptodate(extractedLibrary)) {
+      extract(extractedLibrary);
     }
+    loadFromDirectory(extractedLibrary.getParentFile());
 
     logWithTime("SQLite natives prepared in", startTime);
   }
@@ -74,7 +88,7 @@ public class SQLiteLibraryLoader {
     if (tempPath == null) {
       throw new IllegalStateException("Java temporary directory is not defined (java.io.tmpdir)");
     }
-    return new File(Fs.fileFromPath(tempPath).join("robolectric-libs", getLibName()).getPath());
+    return new File(Fs.fileFromPath(tempPath).join("robolectric-libs", getLibraryContent().key, getLibName()).getPath());
   }
 
   public void mustReload() {
@@ -85,13 +99,53 @@ public class SQLiteLibraryLoader {
     return "/" + getNativesResourcesPathPart() + "/" + getNativesResourcesFilePart();
   }
 
-  private InputStream getLibraryStream() {
+  private URL getLibraryResource() {
     final String classpathResourceName = getLibClasspathResourceName();
-    final InputStream libraryStream = SQLiteLibraryLoader.class.getResourceAsStream(classpathResourceName);
-    if (libraryStream == null) {
+    final URL libraryResource = SQLiteLibraryLoader.class.getResource(classpathResourceName);
+    if (libraryResource == null) {
       throw new RuntimeException("Cannot find '" + classpathResourceName + "' in classpath");
     }
-    return libraryStream;
+    return libraryResource;
+  }
+
+  private LibraryContent getLibraryContent() {
+    if (libraryContent == null) {
+      try {
+        libraryContent = identify(getLibraryResource());
+      } catch (IOException e) {
+        throw new RuntimeException("Cannot read SQLite library " + getLibClasspathResourceName(), e);
+      }
+    }
+    return libraryContent;
+  }
+
+  private static LibraryContent identify(URL resource) throws IOException {
+    URLConnection connection = resource.openConnection();
+    if (connection instanceof JarURLConnection) {
+      JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+      if (entry != null && entry.getCrc() != -1 && entry.getSize() != -1) {
+        return new LibraryContent("crc-" + Long.toHexString(entry.getCrc()) + "-" + Long.toHexString(entry.getSize()), entry.getSize());
+      }
+    }
+
+    // Not stored in a jar, so there's no checksum to use; hash the content instead.
+    try (InputStream in = resource.openStream()) {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      DigestInputStream digestInputStream = new DigestInputStream(in, digest);
+      byte[] buffer = new byte[8192];
+      long size = 0;
+      int n;
+      while ((n = digestInputStream.read(buffer)) != -1) {
+        size += n;
+      }
+      StringBuilder key = new StringBuilder("sha1-");
+      for (byte b : digest.digest()) {
+        key.append(String.format("%02x", b));
+      }
+      return new LibraryContent(key.toString(), size);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 algorithm is not available: " + e);
+    }
   }
 
   private void logWithTime(final String message, final long startTime) {
@@ -103,37 +157,62 @@ public class SQLiteLibraryLoader {
   }
 
   private boolean isExtractedLibUptodate(File extractedLib) {
-    if (extractedLib.exists()) {
-      try {
-        String existingMd5 = md5sum(new FileInputStream(extractedLib));
-        String actualMd5 = md5sum(getLibraryStream());
-        return existingMd5.equals(actualMd5);
-      } catch (IOException e) {
-        return false;
-      }
-    } else {
-      return false;
-    }
+    // The path is named after the content, so only a partial or damaged file can differ.
+    return extractedLib.length() == getLibraryContent().size;
   }
 
-  private void extractAndLoad(final InputStream input, final File output) {
+  private void extract(final File output) {
     File libPath = output.getParentFile();
-    if (!libPath.exists() && !libPath.mkdirs()) {
+    if (!libPath.mkdirs() && !libPath.isDirectory()) {
       throw new RuntimeException("could not create " + libPath);
     }
 
-    FileOutputStream outputStream = null;
-    try {
-      outputStream = new FileOutputStream(output);
-      copy(input, outputStream);
+    File tempFile = null;
+    try (RandomAccessFile lockFile = new RandomAccessFile(new File(libPath, ".lock"), "rw");
+         FileLock lock = lock(lockFile.getChannel())) {
+      if (isExtractedLibUptodate(output)) {
+        // Extracted by another JVM or sandbox while we waited for the lock.
+        return;
+      }
+
+      tempFile = File.createTempFile(output.getName(), ".tmp", libPath);
+      InputStream input = getLibraryResource().openStream();
+      FileOutputStream outputStream = null;
+      try {
+        outputStream = new FileOutputStream(tempFile);
+        copy(input, outputStream);
+      } finally {
+        closeQuietly(outputStream);
+        closeQuietly(input);
+      }
+      Files.move(tempFile.toPath(), output.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
     } catch (IOException e) {
-      throw new RuntimeException("Cannot extractAndLoad SQLite library into " + output, e);
+      throw new RuntimeException("Cannot extract SQLite library into " + output, e);
     } finally {
-      closeQuietly(outputStream);
-      closeQuietly(input);
+      if (tempFile != null && tempFile.exists()) {
+        tempFile.delete();
+      }
     }
+  }
 
-    loadFromDirectory(libPath);
+  /**
+   * Waits for an exclusive lock on the file. A file lock keeps out other JVMs, but a second lock on the same
+   * file in this JVM throws {@link OverlappingFileLockException} instead of waiting. Each sandbox has its own
+   * copy of this class, so a class lock can't keep other threads out either; they retry until the lock is free.
+   */
+  private static FileLock lock(FileChannel channel) throws IOException {
+    while (true) {
+      try {
+        return channel.lock();
+      } catch (OverlappingFileLockException e) {
+        try {
+          Thread.sleep(LOCK_RETRY_MILLIS);
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting to extract SQLite library");
+        }
+      }
+    }
   }
 
   private void loadFromDirectory(final File libPath) {
@@ -183,24 +262,6 @@ public class SQLiteLibraryLoader {
     }
   }
 
-  private String md5sum(InputStream input) throws IOException {
-    BufferedInputStream in = new BufferedInputStream(input);
-
-    try {
-      MessageDigest digest = java.security.MessageDigest.getInstance("MD5");
-      DigestInputStream digestInputStream = new DigestInputStream(in, digest);
-      while (digestInputStream.read() >= 0) ;
-      ByteArrayOutputStream md5out = new ByteArrayOutputStream();
-      md5out.write(digest.digest());
-      return new BigInteger(md5out.toByteArray()).toString();
-    } catch (NoSuchAlgorithmException e) {
-      throw new IllegalStateException("MD5 algorithm is not available: " + e);
-    }
-    finally {
-      in.close();
-    }
-  }
-
   public static void copy(final InputStream input, final OutputStream output) throws IOException {
     byte[] buffer = new byte[4096];
     int n;
@@ -222,4 +283,14 @@ public class SQLiteLibraryLoader {
   public interface LibraryNameMapper {
     String mapLibraryName(String name);
   }
+
+  private static class LibraryContent {
+    final String key;
+    final long size;
+
+    LibraryContent(String key, long size) {
+      this.key = key;
+      this.size = size;
+    }
+  }
 }
@@ -183,6 +183,15 @@ public class FakeHttp {
     getFakeHttpLayer().clearPendingHttpResponses();
   }
 
+  /**
+   * Sets the fixtures that responses are replayed from, or recorded to.
+   *
+   * @param fixtureStore fixture store, or null to stop using one.
+   */
+  public static void setFixtureStore(HttpFixtureStore fixtureStore) {
+    getFakeHttpLayer().setFixtureStore(fixtureStore);
+  }
+
   public static void reset() {
     instance = new FakeHttpLayer();
   }
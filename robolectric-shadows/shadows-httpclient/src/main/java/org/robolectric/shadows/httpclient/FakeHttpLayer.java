@@ -15,29 +15,48 @@ import org.apache.http.protocol.HttpContext;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 public class FakeHttpLayer {
-  private final List<HttpResponseGenerator> pendingHttpResponses = new ArrayList<>();
-  private final List<HttpRequestInfo> httpRequestInfos = new ArrayList<>();
-  private final List<HttpResponse> httpResponses = new ArrayList<>();
-  private final List<HttpEntityStub.ResponseRule> httpResponseRules = new ArrayList<>();
+  private final Deque<HttpResponseGenerator> pendingHttpResponses = new ArrayDeque<>();
+  private final History<HttpRequestInfo> httpRequestInfos = new History<>();
+  private final History<HttpResponse> httpResponses = new History<>();
+  private final ResponseRuleIndex httpResponseRules = new ResponseRuleIndex();
   private HttpResponse defaultHttpResponse;
   private boolean interceptHttpRequests = true;
   private boolean logHttpRequests = false;
-  private List<byte[]> httpResposeContent = new ArrayList<>();
+  private History<byte[]> httpResposeContent = new History<>();
   private boolean interceptResponseContent;
+  private HttpFixtureStore fixtureStore;
 
   public HttpRequestInfo getLastSentHttpRequestInfo() {
-    List<HttpRequestInfo> requestInfos = getSentHttpRequestInfos();
-    if (requestInfos.isEmpty()) {
+    if (httpRequestInfos.isEmpty()) {
       return null;
     }
-    return requestInfos.get(requestInfos.size() - 1);
+    return httpRequestInfos.get(httpRequestInfos.size() - 1);
+  }
+
+  /**
+   * Limits how many sent requests, responses and intercepted response contents are kept. Once a limit is
+   * reached, the oldest entry is dropped for each new one, so indexes passed to
+   * {@link #getSentHttpRequestInfo(int)} count from the oldest entry still kept.
+   *
+   * @param limit Maximum number of entries of each kind to keep.
+   */
+  public void setRetainedHistoryLimit(int limit) {
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive: " + limit);
+    }
+    httpRequestInfos.setLimit(limit);
+    httpResponses.setLimit(limit);
+    httpResposeContent.setLimit(limit);
   }
 
   public void addPendingHttpResponse(int statusCode, String responseBody, Header... headers) {
@@ -84,7 +103,7 @@ public class FakeHttpLayer {
   }
 
   public void addHttpResponseRule(HttpEntityStub.ResponseRule responseRule) {
-    httpResponseRules.add(0, responseRule);
+    httpResponseRules.add(responseRule);
   }
 
   public void setDefaultHttpResponse(HttpResponse defaultHttpResponse) {
@@ -97,12 +116,18 @@ public class FakeHttpLayer {
 
   private HttpResponse findResponse(HttpRequest httpRequest) throws HttpException, IOException {
     if (!pendingHttpResponses.isEmpty()) {
-      return pendingHttpResponses.remove(0).getResponse(httpRequest);
+      return pendingHttpResponses.poll().getResponse(httpRequest);
+    }
+
+    HttpEntityStub.ResponseRule httpResponseRule = httpResponseRules.find(httpRequest);
+    if (httpResponseRule != null) {
+      return httpResponseRule.getResponse();
     }
 
-    for (HttpEntityStub.ResponseRule httpResponseRule : httpResponseRules) {
-      if (httpResponseRule.matches(httpRequest)) {
-        return httpResponseRule.getResponse();
+    if (fixtureStore != null) {
+      HttpResponse fixture = fixtureStore.find(httpRequest);
+      if (fixture != null) {
+        return fixture;
       }
     }
 
@@ -180,7 +205,11 @@ public class FakeHttpLayer {
   }
 
   public HttpRequestInfo getNextSentHttpRequestInfo() {
-    return httpRequestInfos.size() > 0 ? httpRequestInfos.remove(0) : null;
+    return httpRequestInfos.size() > 0 ? httpRequestInfos.removeFirst() : null;
+  }
+
+  public int getSentHttpRequestInfoCount() {
+    return httpRequestInfos.size();
   }
 
   public void logHttpRequests() {
@@ -273,6 +302,209 @@ public class FakeHttpLayer {
     return interceptResponseContent;
   }
 
+  /**
+   * Sets the fixtures that responses are replayed from, or recorded to. While a recording store is set,
+   * requests are sent to the real server instead of being intercepted.
+   *
+   * @param fixtureStore Fixture store, or null to stop using one.
+   */
+  public void setFixtureStore(HttpFixtureStore fixtureStore) {
+    this.fixtureStore = fixtureStore;
+  }
+
+  public HttpFixtureStore getFixtureStore() {
+    return fixtureStore;
+  }
+
+  public boolean isRecordingFixtures() {
+    return fixtureStore != null && fixtureStore.isRecording();
+  }
+
+  /**
+   * Response rules, newest first. Rules whose matcher requires an exact URI, or an exact host and path, are
+   * indexed by them, so that a request is only matched against the rules that could apply to it and the
+   * rules that can't be indexed.
+   */
+  private static class ResponseRuleIndex {
+    private static final String ANY_METHOD = "*";
+
+    private final Map<String, List<IndexedRule>> rulesByUri = new HashMap<>();
+    private final Map<String, List<IndexedRule>> rulesByHostAndPath = new HashMap<>();
+    private final List<IndexedRule> unindexedRules = new ArrayList<>();
+    private int size;
+
+    void add(HttpEntityStub.ResponseRule rule) {
+      IndexedRule indexedRule = new IndexedRule(rule, size++);
+      RequestMatcher matcher = rule instanceof RequestMatcherResponseRule ? ((RequestMatcherResponseRule) rule).requestMatcher : null;
+
+      // Subclasses may match differently, so only the matchers defined here are indexed.
+      Class<?> matcherClass = matcher == null ? null : matcher.getClass();
+      if (matcherClass == DefaultRequestMatcher.class) {
+        DefaultRequestMatcher defaultMatcher = (DefaultRequestMatcher) matcher;
+        addTo(rulesByUri, key(defaultMatcher.method, defaultMatcher.uri), indexedRule);
+      } else if (matcherClass == UriRequestMatcher.class) {
+        addTo(rulesByUri, key(ANY_METHOD, ((UriRequestMatcher) matcher).uri), indexedRule);
+      } else if (matcherClass == RequestMatcherBuilder.class
+          && ((RequestMatcherBuilder) matcher).getHostname() != null && ((RequestMatcherBuilder) matcher).getPath() != null) {
+        RequestMatcherBuilder builder = (RequestMatcherBuilder) matcher;
+        String method = builder.getMethod() == null ? ANY_METHOD : builder.getMethod();
+        addTo(rulesByHostAndPath, key(method, builder.getHostname() + builder.getPath()), indexedRule);
+      } else {
+        unindexedRules.add(indexedRule);
+      }
+    }
+
+    /**
+     * @return The newest rule matching {@code request}, or null if none do.
+     */
+    HttpEntityStub.ResponseRule find(HttpRequest request) {
+      String method = request.getRequestLine().getMethod();
+      String uri = request.getRequestLine().getUri();
+
+      IndexedRule match = null;
+      match = newestMatch(rulesByUri.get(key(method, uri)), request, match);
+      match = newestMatch(rulesByUri.get(key(ANY_METHOD, uri)), request, match);
+      if (!rulesByHostAndPath.isEmpty()) {
+        String hostAndPath = hostAndPath(uri);
+        if (hostAndPath != null) {
+          match = newestMatch(rulesByHostAndPath.get(key(method, hostAndPath)), request, match);
+          match = newestMatch(rulesByHostAndPath.get(key(ANY_METHOD, hostAndPath)), request, match);
+        }
+      }
+      match = newestMatch(unindexedRules, request, match);
+      return match == null ? null : match.rule;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+
+    void clear() {
+      rulesByUri.clear();
+      rulesByHostAndPath.clear();
+      unindexedRules.clear();
+      size = 0;
+    }
+
+    /**
+     * @return The newest rule in {@code rules} that matches {@code request} and is newer than {@code newest}.
+     */
+    private static IndexedRule newestMatch(List<IndexedRule> rules, HttpRequest request, IndexedRule newest) {
+      if (rules == null) {
+        return newest;
+      }
+      for (int i = rules.size() - 1; i >= 0; i--) {
+        IndexedRule rule = rules.get(i);
+        if (newest != null && rule.order < newest.order) {
+          break;
+        }
+        if (rule.rule.matches(request)) {
+          return rule;
+        }
+      }
+      return newest;
+    }
+
+    private static String hostAndPath(String uri) {
+      try {
+        URI parsed = URI.create(uri);
+        return parsed.getHost() + parsed.getRawPath();
+      } catch (IllegalArgumentException e) {
+        return null;
+      }
+    }
+
+    private static String key(String method, String uriOrPath) {
+      return method + " " + uriOrPath;
+    }
+
+    private static void addTo(Map<String, List<IndexedRule>> index, String key, IndexedRule rule) {
+      List<IndexedRule> rules = index.get(key);
+      if (rules == null) {
+        rules = new ArrayList<>();
+        index.put(key, rules);
+      }
+      rules.add(rule);
+    }
+
+    private static class IndexedRule {
+      final HttpEntityStub.ResponseRule rule;
+      final int order;
+
+      IndexedRule(HttpEntityStub.ResponseRule rule, int order) {
+        this.rule = rule;
+        this.order = order;
+      }
+    }
+  }
+
+  /**
+   * List of recorded entries that drops its oldest entry once it holds more than its limit.
+   */
+  private static class History<T> extends AbstractList<T> {
+    private Object[] elements = new Object[16];
+    private int head;
+    private int size;
+    private int limit = Integer.MAX_VALUE;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return (T) elements[(head + index) % elements.length];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean add(T element) {
+      if (size == limit) {
+        removeFirst();
+      }
+      if (size == elements.length) {
+        Object[] grown = new Object[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+          grown[i] = elements[(head + i) % elements.length];
+        }
+        elements = grown;
+        head = 0;
+      }
+      elements[(head + size) % elements.length] = element;
+      size++;
+      modCount++;
+      return true;
+    }
+
+    T removeFirst() {
+      T first = get(0);
+      elements[head] = null;
+      head = (head + 1) % elements.length;
+      size--;
+      modCount++;
+      return first;
+    }
+
+    @Override
+    public void clear() {
+      elements = new Object[16];
+      head = 0;
+      size = 0;
+      modCount++;
+    }
+
+    void setLimit(int limit) {
+      this.limit = limit;
+      while (size > limit) {
+        removeFirst();
+      }
+    }
+  }
+
   public static class RequestMatcherResponseRule implements HttpEntityStub.ResponseRule {
     private RequestMatcher requestMatcher;
     private HttpResponse responseToGive;
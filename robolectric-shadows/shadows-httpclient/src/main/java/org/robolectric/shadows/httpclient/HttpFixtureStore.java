@@ -0,0 +1,344 @@
+package org.robolectric.shadows.httpclient;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * Request/response pairs recorded from a real server and replayed by the {@link FakeHttpLayer}.
+ *
+ * <p>To record fixtures, set a store created with {@link #forRecording(File)} on the fake HTTP layer and point
+ * the code under test at a server, such as a loopback server started by the test. Requests are then sent to
+ * that server, and each response is kept and returned to the caller. {@link #save()} writes them to the file.</p>
+ *
+ * <p>To replay them, set a store returned by {@link #forReplay(File)}. Responses are looked up by request after
+ * pending responses and response rules. A fixture file is mapped into memory once per JVM and shared by every
+ * test that replays it, and lookups go through a hash index stored in the file, so nothing is parsed up front.</p>
+ *
+ * <p>Requests are keyed by method, path, query parameters in sorted order and, for requests with a repeatable
+ * body, a checksum of the body. Scheme, host and port are left out, so fixtures recorded against a server on
+ * any port are replayed for the real host.</p>
+ */
+public class HttpFixtureStore {
+  private static final int MAGIC = 0x52464958; // "RFIX"
+  private static final int VERSION = 1;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private static final ConcurrentMap<String, HttpFixtureStore> replayStores = new ConcurrentHashMap<>();
+
+  private final File file;
+  private final Map<String, RecordedResponse> recorded;
+  private final ByteBuffer mapped;
+  private final int indexOffset;
+  private final int slotCount;
+  private final int size;
+
+  private HttpFixtureStore(File file) {
+    this.file = file;
+    this.recorded = Collections.synchronizedMap(new LinkedHashMap<String, RecordedResponse>());
+    this.mapped = null;
+    this.indexOffset = 0;
+    this.slotCount = 0;
+    this.size = 0;
+  }
+
+  private HttpFixtureStore(File file, ByteBuffer mapped) throws IOException {
+    this.file = file;
+    this.recorded = null;
+    this.mapped = mapped;
+
+    int footer = mapped.limit() - 12;
+    if (mapped.limit() < 20 || mapped.getInt(0) != MAGIC || mapped.getInt(footer + 8) != MAGIC) {
+      throw new IOException(file + " is not an HTTP fixture file");
+    }
+    if (mapped.getInt(4) != VERSION) {
+      throw new IOException(file + " has unsupported fixture version " + mapped.getInt(4));
+    }
+    this.indexOffset = mapped.getInt(footer);
+    this.size = mapped.getInt(footer + 4);
+    this.slotCount = mapped.getInt(indexOffset);
+  }
+
+  /**
+   * @param file File to write fixtures to when {@link #save()} is called.
+   * @return An empty store that records responses from a real server.
+   */
+  public static HttpFixtureStore forRecording(File file) {
+    return new HttpFixtureStore(file);
+  }
+
+  /**
+   * @param file Fixture file written by a recording store.
+   * @return A store that replays the fixtures in {@code file}, shared with every other caller in this JVM
+   *     until the file changes.
+   */
+  public static HttpFixtureStore forReplay(File file) {
+    String key = file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    HttpFixtureStore store = replayStores.get(key);
+    if (store == null) {
+      HttpFixtureStore loaded = load(file);
+      store = replayStores.putIfAbsent(key, loaded);
+      if (store == null) {
+        store = loaded;
+      }
+    }
+    return store;
+  }
+
+  private static HttpFixtureStore load(File file) {
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      FileChannel channel = randomAccessFile.getChannel();
+      return new HttpFixtureStore(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } catch (IOException e) {
+      throw new RuntimeException("Couldn't load HTTP fixtures from " + file, e);
+    }
+  }
+
+  public boolean isRecording() {
+    return recorded != null;
+  }
+
+  public int size() {
+    return isRecording() ? recorded.size() : size;
+  }
+
+  /**
+   * Keeps a response received from a real server. Its body is read into memory and, unless it can be read
+   * again, replaced, so the returned response must be used in place of {@code response}.
+   *
+   * @param request Request sent to the server.
+   * @param response Response received from the server.
+   * @return Response with the same status, headers and body as {@code response}.
+   * @throws IOException If the response body can't be read.
+   */
+  public HttpResponse record(HttpRequest request, HttpResponse response) throws IOException {
+    if (!isRecording()) {
+      throw new IllegalStateException("Fixtures loaded from " + file + " can't be recorded to");
+    }
+    HttpEntity entity = response.getEntity();
+    byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+    if (entity != null && !entity.isRepeatable()) {
+      ByteArrayEntity bufferedEntity = new ByteArrayEntity(body);
+      bufferedEntity.setContentType(entity.getContentType());
+      bufferedEntity.setContentEncoding(entity.getContentEncoding());
+      response.setEntity(bufferedEntity);
+    }
+
+    List<Header> headers = new ArrayList<>();
+    for (Header header : response.getAllHeaders()) {
+      headers.add(new BasicHeader(header.getName(), header.getValue()));
+    }
+    recorded.put(requestKey(request), new RecordedResponse(response.getStatusLine().getStatusCode(), headers, body));
+    return response;
+  }
+
+  /**
+   * @param request Request to find a response for.
+   * @return The recorded response to {@code request}, or null if none was recorded.
+   */
+  public HttpResponse find(HttpRequest request) {
+    String key = requestKey(request);
+    if (isRecording()) {
+      RecordedResponse response = recorded.get(key);
+      return response == null ? null : new TestHttpResponse(response.statusCode, response.body,
+          response.headers.toArray(new Header[response.headers.size()]));
+    }
+
+    int record = findRecord(key.getBytes(UTF_8));
+    return record < 0 ? null : readResponse(record);
+  }
+
+  /**
+   * Writes the recorded fixtures to the store's file, replacing it.
+   *
+   * @throws IOException If the file can't be written.
+   */
+  public void save() throws IOException {
+    if (!isRecording()) {
+      throw new IllegalStateException("Fixtures loaded from " + file + " can't be saved");
+    }
+
+    List<Map.Entry<String, RecordedResponse>> entries;
+    synchronized (recorded) {
+      entries = new ArrayList<>(recorded.entrySet());
+    }
+
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("Couldn't create " + parent);
+    }
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      int slots = Integer.highestOneBit(Math.max(1, entries.size()) * 2) * 2;
+      int[] index = new int[slots];
+      for (Map.Entry<String, RecordedResponse> entry : entries) {
+        byte[] key = entry.getKey().getBytes(UTF_8);
+        int slot = slotFor(entry.getKey(), slots);
+        while (index[slot] != 0) {
+          slot = (slot + 1) & (slots - 1);
+        }
+        index[slot] = out.size() + 1;
+
+        RecordedResponse response = entry.getValue();
+        writeBytes(out, key);
+        out.writeInt(response.statusCode);
+        out.writeInt(response.headers.size());
+        for (Header header : response.headers) {
+          writeBytes(out, header.getName().getBytes(UTF_8));
+          writeBytes(out, header.getValue().getBytes(UTF_8));
+        }
+        writeBytes(out, response.body);
+      }
+
+      int indexOffset = out.size();
+      out.writeInt(slots);
+      for (int offset : index) {
+        out.writeInt(offset);
+      }
+      out.writeInt(indexOffset);
+      out.writeInt(entries.size());
+      out.writeInt(MAGIC);
+    }
+  }
+
+  /**
+   * @return The key fixtures for {@code request} are stored under.
+   */
+  static String requestKey(HttpRequest request) {
+    StringBuilder key = new StringBuilder(request.getRequestLine().getMethod()).append(' ');
+    String uri = request.getRequestLine().getUri();
+    try {
+      URI parsed = URI.create(uri);
+      key.append(parsed.getRawPath() == null || parsed.getRawPath().isEmpty() ? "/" : parsed.getRawPath());
+      String query = parsed.getRawQuery();
+      if (query != null && !query.isEmpty()) {
+        String[] params = query.split("&");
+        Arrays.sort(params);
+        key.append('?');
+        for (int i = 0; i < params.length; i++) {
+          key.append(i > 0 ? "&" : "").append(params[i]);
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      key.append(uri);
+    }
+
+    if (request instanceof HttpEntityEnclosingRequest) {
+      HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+      if (entity != null && entity.isRepeatable()) {
+        try {
+          CRC32 crc = new CRC32();
+          crc.update(EntityUtils.toByteArray(entity));
+          key.append(" #").append(Long.toHexString(crc.getValue()));
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }
+    return key.toString();
+  }
+
+  private int findRecord(byte[] key) {
+    int slot = slotFor(new String(key, UTF_8), slotCount);
+    while (true) {
+      int offset = mapped.getInt(indexOffset + 4 + slot * 4);
+      if (offset == 0) {
+        return -1;
+      }
+      if (keyEquals(offset - 1, key)) {
+        return offset - 1;
+      }
+      slot = (slot + 1) & (slotCount - 1);
+    }
+  }
+
+  private boolean keyEquals(int record, byte[] key) {
+    if (mapped.getInt(record) != key.length) {
+      return false;
+    }
+    for (int i = 0; i < key.length; i++) {
+      if (mapped.get(record + 4 + i) != key[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private HttpResponse readResponse(int record) {
+    int position = record + 4 + mapped.getInt(record);
+    int statusCode = mapped.getInt(position);
+    int headerCount = mapped.getInt(position + 4);
+    position += 8;
+
+    Header[] headers = new Header[headerCount];
+    for (int i = 0; i < headerCount; i++) {
+      String name = readString(position);
+      position += 4 + mapped.getInt(position);
+      String value = readString(position);
+      position += 4 + mapped.getInt(position);
+      headers[i] = new BasicHeader(name, value);
+    }
+
+    ByteBuffer body = mapped.duplicate();
+    body.position(position + 4);
+    body.limit(position + 4 + mapped.getInt(position));
+    return new TestHttpResponse(statusCode, body, headers);
+  }
+
+  private String readString(int position) {
+    byte[] bytes = new byte[mapped.getInt(position)];
+    ByteBuffer buffer = mapped.duplicate();
+    buffer.position(position + 4);
+    buffer.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static int slotFor(String key, int slots) {
+    int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (slots - 1);
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static class RecordedResponse {
+    final int statusCode;
+    final List<Header> headers;
+    final byte[] body;
+
+    RecordedResponse(int statusCode, List<Header> headers, byte[] body) {
+      this.statusCode = statusCode;
+      this.headers = headers;
+      this.body = body;
+    }
+  }
+}
@@ -147,7 +147,7 @@ public class ShadowDefaultRequestDirector {
   }
 
   public static HttpRequestInfo getLatestSentHttpRequestInfo() {
-    int requestCount = FakeHttp.getFakeHttpLayer().getSentHttpRequestInfos().size();
+    int requestCount = FakeHttp.getFakeHttpLayer().getSentHttpRequestInfoCount();
     return FakeHttp.getFakeHttpLayer().getSentHttpRequestInfo(requestCount - 1);
   }
 
@@ -163,17 +163,22 @@ public class ShadowDefaultRequestDirector {
 
   @Implementation
   public HttpResponse execute(HttpHost httpHost, HttpRequest httpRequest, HttpContext httpContext) throws HttpException, IOException {
-    if (FakeHttp.getFakeHttpLayer().isInterceptingHttpRequests()) {
-      return FakeHttp.getFakeHttpLayer().emulateRequest(httpHost, httpRequest, httpContext, realObject);
+    FakeHttpLayer fakeHttpLayer = FakeHttp.getFakeHttpLayer();
+    if (fakeHttpLayer.isInterceptingHttpRequests() && !fakeHttpLayer.isRecordingFixtures()) {
+      return fakeHttpLayer.emulateRequest(httpHost, httpRequest, httpContext, realObject);
     } else {
-      FakeHttp.getFakeHttpLayer().addRequestInfo(new HttpRequestInfo(httpRequest, httpHost, httpContext, redirector));
+      fakeHttpLayer.addRequestInfo(new HttpRequestInfo(httpRequest, httpHost, httpContext, redirector));
       HttpResponse response = redirector.execute(httpHost, httpRequest, httpContext);
 
-      if (FakeHttp.getFakeHttpLayer().isInterceptingResponseContent()) {
+      if (fakeHttpLayer.isRecordingFixtures()) {
+        response = fakeHttpLayer.getFixtureStore().record(httpRequest, response);
+      }
+
+      if (fakeHttpLayer.isInterceptingResponseContent()) {
         interceptResponseContent(response);
       }
 
-      FakeHttp.getFakeHttpLayer().addHttpResponse(response);
+      fakeHttpLayer.addHttpResponse(response);
       return response;
     }
   }
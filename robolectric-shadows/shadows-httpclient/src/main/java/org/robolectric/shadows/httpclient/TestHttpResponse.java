@@ -8,11 +8,17 @@ import org.apache.http.ProtocolVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpParams;
+import org.robolectric.util.ByteBufferInputStream;
+import org.robolectric.util.Util;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -21,7 +27,7 @@ import java.util.NoSuchElementException;
 public class TestHttpResponse extends HttpResponseStub {
 
   private int statusCode;
-  private byte[] responseBody;
+  private ResponseBody responseBody;
   private TestStatusLine statusLine = new TestStatusLine();
   private TestHttpEntity httpEntity = new TestHttpEntity();
   private int openEntityContentStreamCount = 0;
@@ -30,12 +36,12 @@ public class TestHttpResponse extends HttpResponseStub {
 
   public TestHttpResponse() {
     this.statusCode = 200;
-    this.responseBody = new byte[0];
+    this.responseBody = new ByteArrayBody(new byte[0]);
   }
 
   public TestHttpResponse(int statusCode, String responseBody) {
     this.statusCode = statusCode;
-    this.responseBody = responseBody.getBytes();
+    this.responseBody = new ByteArrayBody(responseBody.getBytes());
   }
 
   public TestHttpResponse(int statusCode, String responseBody, Header... headers) {
@@ -44,12 +50,40 @@ public class TestHttpResponse extends HttpResponseStub {
 
   public TestHttpResponse(int statusCode, byte[] responseBody, Header... headers) {
     this.statusCode = statusCode;
-    this.responseBody = responseBody.clone();
+    this.responseBody = new ByteArrayBody(responseBody.clone());
+    this.headers = headers;
+  }
+
+  /**
+   * Creates a response whose body is streamed from a file each time its content is read, so large bodies
+   * are never held in memory.
+   *
+   * @param statusCode HTTP status code.
+   * @param responseBody File containing the body.
+   * @param headers Response headers.
+   */
+  public TestHttpResponse(int statusCode, File responseBody, Header... headers) {
+    this.statusCode = statusCode;
+    this.responseBody = new FileBody(responseBody);
+    this.headers = headers;
+  }
+
+  /**
+   * Creates a response whose body is read from the remaining bytes of a buffer. The buffer is shared, not
+   * copied, so a memory-mapped file can be served without loading it onto the heap.
+   *
+   * @param statusCode HTTP status code.
+   * @param responseBody Buffer containing the body.
+   * @param headers Response headers.
+   */
+  public TestHttpResponse(int statusCode, ByteBuffer responseBody, Header... headers) {
+    this.statusCode = statusCode;
+    this.responseBody = new ByteBufferBody(responseBody.slice());
     this.headers = headers;
   }
 
   protected void setResponseBody(String responseBody) {
-    this.responseBody = responseBody.getBytes();
+    this.responseBody = new ByteArrayBody(responseBody.getBytes());
   }
 
   @Override public StatusLine getStatusLine() {
@@ -185,10 +219,10 @@ public class TestHttpResponse extends HttpResponseStub {
 
   public class TestHttpEntity extends HttpEntityStub {
 
-    private ByteArrayInputStream inputStream;
+    private InputStream inputStream;
 
     @Override public long getContentLength() {
-      return responseBody.length;
+      return responseBody.getLength();
     }
 
     @Override public Header getContentType() {
@@ -209,7 +243,7 @@ public class TestHttpResponse extends HttpResponseStub {
 
     @Override public InputStream getContent() throws IOException, IllegalStateException {
       openEntityContentStreamCount++;
-      inputStream = new ByteArrayInputStream(responseBody) {
+      inputStream = new FilterInputStream(responseBody.open()) {
         @Override
         public void close() throws IOException {
           openEntityContentStreamCount--;
@@ -220,7 +254,7 @@ public class TestHttpResponse extends HttpResponseStub {
     }
 
     @Override public void writeTo(OutputStream outputStream) throws IOException {
-      outputStream.write(responseBody);
+      responseBody.writeTo(outputStream);
     }
 
     @Override public void consumeContent() throws IOException {
@@ -244,4 +278,76 @@ public class TestHttpResponse extends HttpResponseStub {
       return "TestStatusLine[" + getReasonPhrase() + "]";
     }
   }
+
+  private interface ResponseBody {
+    long getLength();
+
+    InputStream open() throws IOException;
+
+    void writeTo(OutputStream outputStream) throws IOException;
+  }
+
+  private static class ByteArrayBody implements ResponseBody {
+    private final byte[] bytes;
+
+    ByteArrayBody(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override public long getLength() {
+      return bytes.length;
+    }
+
+    @Override public InputStream open() {
+      return new ByteArrayInputStream(bytes);
+    }
+
+    @Override public void writeTo(OutputStream outputStream) throws IOException {
+      outputStream.write(bytes);
+    }
+  }
+
+  private static class FileBody implements ResponseBody {
+    private final File file;
+
+    FileBody(File file) {
+      this.file = file;
+    }
+
+    @Override public long getLength() {
+      return file.length();
+    }
+
+    @Override public InputStream open() throws IOException {
+      return new FileInputStream(file);
+    }
+
+    @Override public void writeTo(OutputStream outputStream) throws IOException {
+      Util.copy(open(), outputStream);
+    }
+  }
+
+  private static class ByteBufferBody implements ResponseBody {
+    private final ByteBuffer buffer;
+
+    ByteBufferBody(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override public long getLength() {
+      return buffer.remaining();
+    }
+
+    @Override public InputStream open() {
+      return new ByteBufferInputStream(buffer);
+    }
+
+    @Override public void writeTo(OutputStream outputStream) throws IOException {
+      if (buffer.hasArray()) {
+        outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+      } else {
+        Util.copy(open(), outputStream);
+      }
+    }
+  }
 }
@@ -1,6 +1,7 @@
 package org.robolectric.shadows.httpclient;
 
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
@@ -87,4 +88,40 @@ public class FakeHttpLayerTest {
     assertThat(requestMatcherBuilder.matches(noMatch)).isFalse();
     assertThat(requestMatcherBuilder.matches(match)).isTrue();
   }
+
+  @Test
+  public void emulateRequest_shouldPreferNewestMatchingRule() throws Exception {
+    FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
+    fakeHttpLayer.addHttpResponseRule("http://example.com/foo", "uri rule");
+    fakeHttpLayer.addHttpResponseRule(new FakeHttpLayer.RequestMatcherBuilder().host("example.com").path("foo"),
+        new TestHttpResponse(200, "builder rule"));
+    fakeHttpLayer.addHttpResponseRule("GET", "http://example.com/bar", new TestHttpResponse(200, "method rule"));
+
+    assertThat(responseBody(fakeHttpLayer, new HttpGet("http://example.com/foo"))).isEqualTo("builder rule");
+    assertThat(responseBody(fakeHttpLayer, new HttpGet("http://example.com/foo?a=b"))).isEqualTo("builder rule");
+    assertThat(responseBody(fakeHttpLayer, new HttpGet("http://example.com/bar"))).isEqualTo("method rule");
+
+    fakeHttpLayer.addHttpResponseRule("http://example.com/foo", "newer uri rule");
+    assertThat(responseBody(fakeHttpLayer, new HttpGet("http://example.com/foo"))).isEqualTo("newer uri rule");
+  }
+
+  @Test
+  public void setRetainedHistoryLimit_shouldDropOldestRequests() throws Exception {
+    FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
+    fakeHttpLayer.setDefaultHttpResponse(200, "ok");
+    fakeHttpLayer.setRetainedHistoryLimit(2);
+
+    responseBody(fakeHttpLayer, new HttpGet("http://example.com/1"));
+    responseBody(fakeHttpLayer, new HttpGet("http://example.com/2"));
+    responseBody(fakeHttpLayer, new HttpGet("http://example.com/3"));
+
+    assertThat(fakeHttpLayer.getSentHttpRequestInfoCount()).isEqualTo(2);
+    assertThat(fakeHttpLayer.getSentHttpRequestInfo(0).getHttpRequest().getRequestLine().getUri()).isEqualTo("http://example.com/2");
+    assertThat(fakeHttpLayer.getLastSentHttpRequestInfo().getHttpRequest().getRequestLine().getUri()).isEqualTo("http://example.com/3");
+    assertThat(fakeHttpLayer.getHttpResponses()).hasSize(2);
+  }
+
+  private static String responseBody(FakeHttpLayer fakeHttpLayer, HttpRequest request) throws Exception {
+    return EntityUtils.toString(fakeHttpLayer.emulateRequest(null, request, null, null).getEntity());
+  }
 }
@@ -0,0 +1,86 @@
+package org.robolectric.shadows.httpclient;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpFixtureStoreTest {
+  private File file;
+
+  @Before
+  public void setUp() throws Exception {
+    file = File.createTempFile("fixtures", ".bin");
+    file.deleteOnExit();
+  }
+
+  @Test
+  public void shouldReplaySavedResponses() throws Exception {
+    HttpFixtureStore recording = HttpFixtureStore.forRecording(file);
+    recording.record(new HttpGet("http://127.0.0.1:8080/users?b=2&a=1"),
+        new TestHttpResponse(200, "users", new BasicHeader("Content-Type", "application/json")));
+    recording.record(new HttpGet("http://127.0.0.1:8080/missing"), new TestHttpResponse(404, "not found"));
+    recording.save();
+
+    HttpFixtureStore replay = HttpFixtureStore.forReplay(file);
+    assertThat(replay.isRecording()).isFalse();
+    assertThat(replay.size()).isEqualTo(2);
+
+    HttpResponse users = replay.find(new HttpGet("http://example.com/users?a=1&b=2"));
+    assertThat(users.getStatusLine().getStatusCode()).isEqualTo(200);
+    assertThat(users.getFirstHeader("Content-Type").getValue()).isEqualTo("application/json");
+    assertThat(EntityUtils.toString(users.getEntity())).isEqualTo("users");
+
+    assertThat(replay.find(new HttpGet("http://example.com/missing")).getStatusLine().getStatusCode()).isEqualTo(404);
+    assertThat(replay.find(new HttpGet("http://example.com/other"))).isNull();
+  }
+
+  @Test
+  public void shouldKeyRequestsByBody() throws Exception {
+    HttpPost first = new HttpPost("http://example.com/items");
+    first.setEntity(new StringEntity("first"));
+    HttpPost second = new HttpPost("http://example.com/items");
+    second.setEntity(new StringEntity("second"));
+
+    HttpFixtureStore recording = HttpFixtureStore.forRecording(file);
+    recording.record(first, new TestHttpResponse(201, "created first"));
+    recording.record(second, new TestHttpResponse(201, "created second"));
+    recording.save();
+
+    HttpFixtureStore replay = HttpFixtureStore.forReplay(file);
+    assertThat(EntityUtils.toString(replay.find(second).getEntity())).isEqualTo("created second");
+    assertThat(EntityUtils.toString(replay.find(first).getEntity())).isEqualTo("created first");
+  }
+
+  @Test
+  public void shouldShareReplayStoresForTheSameFile() throws Exception {
+    HttpFixtureStore.forRecording(file).save();
+
+    assertThat(HttpFixtureStore.forReplay(file)).isSameAs(HttpFixtureStore.forReplay(file));
+  }
+
+  @Test
+  public void fakeHttpLayer_shouldServeFixturesAfterRules() throws Exception {
+    HttpFixtureStore recording = HttpFixtureStore.forRecording(file);
+    recording.record(new HttpGet("http://127.0.0.1:8080/a"), new TestHttpResponse(200, "fixture a"));
+    recording.record(new HttpGet("http://127.0.0.1:8080/b"), new TestHttpResponse(200, "fixture b"));
+    recording.save();
+
+    FakeHttpLayer fakeHttpLayer = new FakeHttpLayer();
+    fakeHttpLayer.setFixtureStore(HttpFixtureStore.forReplay(file));
+    fakeHttpLayer.addHttpResponseRule("http://example.com/b", "rule b");
+
+    assertThat(EntityUtils.toString(fakeHttpLayer.emulateRequest(null, new HttpGet("http://example.com/a"), null, null).getEntity()))
+        .isEqualTo("fixture a");
+    assertThat(EntityUtils.toString(fakeHttpLayer.emulateRequest(null, new HttpGet("http://example.com/b"), null, null).getEntity()))
+        .isEqualTo("rule b");
+  }
+}
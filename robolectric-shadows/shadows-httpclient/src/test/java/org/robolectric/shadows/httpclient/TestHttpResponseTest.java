@@ -4,9 +4,14 @@ import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
 import org.apache.http.HttpResponse;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
 import org.junit.Test;
 import org.robolectric.shadows.httpclient.TestHttpResponse;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class TestHttpResponseTest {
@@ -123,4 +128,27 @@ public class TestHttpResponseTest {
     assertThat(response.getHeaders("foo")[1].getValue()).isEqualTo("baz");
   }
 
+
+  @Test
+  public void shouldStreamBodyFromByteBuffer() throws Exception {
+    TestHttpResponse resp = new TestHttpResponse(200, ByteBuffer.wrap("buffered body".getBytes()));
+
+    assertThat(resp.getEntity().getContentLength()).isEqualTo(13);
+    assertThat(EntityUtils.toString(resp.getEntity())).isEqualTo("buffered body");
+    assertThat(EntityUtils.toString(resp.getEntity())).isEqualTo("buffered body");
+    assertThat(resp.entityContentStreamsHaveBeenClosed()).isTrue();
+  }
+
+  @Test
+  public void shouldStreamBodyFromFile() throws Exception {
+    File file = File.createTempFile("response", ".txt");
+    file.deleteOnExit();
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write("file body".getBytes());
+    }
+    TestHttpResponse resp = new TestHttpResponse(200, file);
+
+    assertThat(resp.getEntity().getContentLength()).isEqualTo(9);
+    assertThat(EntityUtils.toString(resp.getEntity())).isEqualTo("file body");
+  }
 }
@@ -2,23 +2,47 @@ package org.robolectric;
 
 import android.os.Build;
 
+import org.junit.runner.Description;
 import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.Suite;
 import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
+import org.junit.runners.model.RunnerScheduler;
 import org.robolectric.annotation.Config;
+import org.robolectric.internal.InstrumentingClassLoaderFactory;
 import org.robolectric.internal.SdkConfig;
+import org.robolectric.internal.SdkEnvironmentCache;
 import org.robolectric.manifest.AndroidManifest;
+import org.robolectric.util.Logger;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Set;
 
 /**
  * A test runner for Robolectric that will run a test against multiple API versions.
+ *
+ * <p>API versions run one after another by default. Since each API version runs in its own class loader, they
+ * can also be run in parallel, by setting the property {@code robolectric.multiApi.threads} to the number of API
+ * versions to run at once, or to {@code auto} to run as many as there are processors and as fit in the memory
+ * budget of the SDK environment cache. Classes that aren't loaded through the sandbox, such as mocking
+ * libraries and JUnit itself, are shared between API versions running in parallel, so tests that rely on their
+ * static state may interfere with each other. Events from each API version are reported together once it
+ * finishes, so listeners never see tests of different API versions interleaved, but they don't see progress
+ * while an API version runs either.</p>
  */
 public class MultiApiRobolectricTestRunner extends Suite {
+  private static final String THREADS = "robolectric.multiApi.threads";
+  private static final String AUTO_THREADS = "auto";
 
   protected static class TestRunnerForApiVersion extends RobolectricTestRunner {
 
@@ -31,6 +55,13 @@ public class MultiApiRobolectricTestRunner extends Suite {
       this.name = apiVersion.toString();
     }
 
+    @Override
+    protected boolean shouldPrewarm() {
+      // API versions run in parallel, each in its own SdkEnvironment; pre-warming them all at once would
+      // exceed the SdkEnvironment cache.
+      return false;
+    }
+
     @Override
     protected String getName() {
       return "[" + apiVersion + "]";
@@ -90,6 +121,7 @@ public class MultiApiRobolectricTestRunner extends Suite {
   }
 
   private final ArrayList<Runner> runners = new ArrayList<>();
+  private boolean runInParallel;
 
   /*
    * Only called reflectively. Do not use programmatically.
@@ -114,4 +146,151 @@ public class MultiApiRobolectricTestRunner extends Suite {
   protected List<Runner> getChildren() {
     return runners;
   }
+
+  /**
+   * @return The number of API versions to run at once.
+   */
+  protected int getThreadCount() {
+    String threads = System.getProperty(THREADS, "1");
+    if (!AUTO_THREADS.equalsIgnoreCase(threads)) {
+      try {
+        return Math.max(1, Integer.parseInt(threads.trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException(THREADS + " must be a number or \"" + AUTO_THREADS + "\", not \"" + threads + "\"");
+      }
+    }
+    long environmentsInBudget = SdkEnvironmentCache.getConfiguredMaxRetainedBytes() / InstrumentingClassLoaderFactory.estimateEnvironmentSize();
+    long limit = Math.min(environmentsInBudget, Runtime.getRuntime().availableProcessors());
+    return (int) Math.max(1, Math.min(limit, runners.size()));
+  }
+
+  @Override
+  public void run(RunNotifier notifier) {
+    int threadCount = getThreadCount();
+    runInParallel = threadCount > 1;
+    if (runInParallel) {
+      Logger.debug("Running %s on %d threads", getTestClass().getName(), threadCount);
+      setScheduler(new ParallelScheduler(threadCount));
+    }
+    super.run(notifier);
+  }
+
+  @Override
+  protected void runChild(Runner runner, RunNotifier notifier) {
+    if (!runInParallel) {
+      super.runChild(runner, notifier);
+      return;
+    }
+
+    RunNotifier childNotifier = new RunNotifier();
+    RecordingListener recordingListener = new RecordingListener();
+    childNotifier.addListener(recordingListener);
+    try {
+      super.runChild(runner, childNotifier);
+    } catch (Throwable e) {
+      // Nothing would report this on the scheduler's thread, and the API version's tests would go missing.
+      childNotifier.fireTestFailure(new Failure(runner.getDescription(), e));
+    } finally {
+      synchronized (this) {
+        recordingListener.replay(notifier);
+      }
+    }
+  }
+
+  private static class ParallelScheduler implements RunnerScheduler {
+    private final ExecutorService executorService;
+
+    ParallelScheduler(int threadCount) {
+      final AtomicInteger threadNumber = new AtomicInteger();
+      executorService = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "Robolectric API runner " + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+
+    @Override
+    public void schedule(Runnable childStatement) {
+      executorService.execute(childStatement);
+    }
+
+    @Override
+    public void finished() {
+      executorService.shutdown();
+      try {
+        executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        executorService.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Keeps the events of one API version, to be reported once it has finished.
+   */
+  private static class RecordingListener extends RunListener {
+    private enum Kind {
+      STARTED, FINISHED, FAILURE, ASSUMPTION_FAILURE, IGNORED
+    }
+
+    private final List<Kind> kinds = new ArrayList<>();
+    private final List<Object> subjects = new ArrayList<>();
+
+    @Override
+    public void testStarted(Description description) {
+      record(Kind.STARTED, description);
+    }
+
+    @Override
+    public void testFinished(Description description) {
+      record(Kind.FINISHED, description);
+    }
+
+    @Override
+    public void testFailure(Failure failure) {
+      record(Kind.FAILURE, failure);
+    }
+
+    @Override
+    public void testAssumptionFailure(Failure failure) {
+      record(Kind.ASSUMPTION_FAILURE, failure);
+    }
+
+    @Override
+    public void testIgnored(Description description) {
+      record(Kind.IGNORED, description);
+    }
+
+    private void record(Kind kind, Object subject) {
+      kinds.add(kind);
+      subjects.add(subject);
+    }
+
+    void replay(RunNotifier notifier) {
+      for (int i = 0; i < kinds.size(); i++) {
+        Object subject = subjects.get(i);
+        switch (kinds.get(i)) {
+          case STARTED:
+            notifier.fireTestStarted((Description) subject);
+            break;
+          case FINISHED:
+            notifier.fireTestFinished((Description) subject);
+            break;
+          case FAILURE:
+            notifier.fireTestFailure((Failure) subject);
+            break;
+          case ASSUMPTION_FAILURE:
+            notifier.fireTestAssumptionFailed((Failure) subject);
+            break;
+          case IGNORED:
+            notifier.fireTestIgnored((Description) subject);
+            break;
+        }
+      }
+    }
+  }
 }
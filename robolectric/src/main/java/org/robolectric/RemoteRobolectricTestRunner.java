@@ -0,0 +1,239 @@
+package org.robolectric;
+
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.robolectric.internal.worker.RobolectricWorker;
+import org.robolectric.internal.worker.WorkerProtocol;
+import org.robolectric.manifest.AndroidManifest;
+import org.robolectric.res.FsFile;
+import org.robolectric.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Runs a test class in a {@link RobolectricWorker}, if one is running, and reports its results as if the tests
+ * ran here. Set the property {@code robolectric.worker.port} to the worker's port to use it. Without a worker,
+ * or if the worker can't run the class, for example because the class path or the app's resources have changed,
+ * the tests run in this JVM with the runner returned by {@link #getRunnerClass()}.
+ *
+ * <p>The worker is only contacted once the class is run, so JUnit may create any number of these runners
+ * before running them. The description is that of the local runner, which the worker's runner matches.</p>
+ *
+ * <p>Filtering and sorting aren't supported; every test in the class is run.</p>
+ */
+public class RemoteRobolectricTestRunner extends Runner {
+  private static final String WORKER_PORT = "robolectric.worker.port";
+  private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+  private static final int REPLY_TIMEOUT_MILLIS = 30000;
+
+  private final Class<?> testClass;
+  private final Runner localRunner;
+  private final Integer port;
+  private final Map<String, Description> descriptionsByName = new HashMap<>();
+
+  public RemoteRobolectricTestRunner(Class<?> testClass) throws InitializationError {
+    this.testClass = testClass;
+    this.localRunner = createLocalRunner();
+    this.port = Integer.getInteger(WORKER_PORT);
+    if (port != null && localRunner instanceof RobolectricTestRunner) {
+      // The tests will most likely run in the worker, so there's no point preparing an environment here.
+      ((RobolectricTestRunner) localRunner).skipPrewarm();
+    }
+  }
+
+  /**
+   * @return Runner to run the test class with, in the worker or, without one, in this JVM. It must have a public
+   *     constructor taking the test class.
+   */
+  protected Class<? extends Runner> getRunnerClass() {
+    return RobolectricTestRunner.class;
+  }
+
+  /**
+   * @return Paths of the manifests and resource and asset directories used by the tests, including those of
+   *     libraries, so that the worker can tell whether what it has parsed from them is stale.
+   */
+  private static Set<String> resourcePaths(Runner runner) {
+    Set<String> paths = new LinkedHashSet<>();
+    if (runner instanceof RobolectricTestRunner) {
+      RobolectricTestRunner robolectricRunner = (RobolectricTestRunner) runner;
+      Set<AndroidManifest> appManifests = new LinkedHashSet<>();
+      for (FrameworkMethod child : robolectricRunner.getChildren()) {
+        AndroidManifest appManifest = robolectricRunner.getAppManifest(robolectricRunner.getConfig(child.getMethod()));
+        if (appManifest != null) {
+          appManifests.add(appManifest);
+        }
+      }
+      for (AndroidManifest appManifest : new ArrayList<>(appManifests)) {
+        addLibraryManifests(appManifest, appManifests);
+      }
+      for (AndroidManifest appManifest : appManifests) {
+        addPath(appManifest.getAndroidManifestFile(), paths);
+        addPath(appManifest.getResDirectory(), paths);
+        addPath(appManifest.getAssetsDirectory(), paths);
+      }
+    }
+    return paths;
+  }
+
+  private static void addPath(FsFile file, Set<String> paths) {
+    if (file != null) {
+      paths.add(new File(file.getPath()).getAbsolutePath());
+    }
+  }
+
+  private static void addLibraryManifests(AndroidManifest appManifest, Set<AndroidManifest> appManifests) {
+    for (AndroidManifest libraryManifest : appManifest.getLibraryManifests()) {
+      if (appManifests.add(libraryManifest)) {
+        addLibraryManifests(libraryManifest, appManifests);
+      }
+    }
+  }
+
+  private Runner createLocalRunner() throws InitializationError {
+    try {
+      return getRunnerClass().getConstructor(Class.class).newInstance(testClass);
+    } catch (ReflectiveOperationException e) {
+      if (e.getCause() instanceof InitializationError) {
+        throw (InitializationError) e.getCause();
+      }
+      throw new InitializationError(e);
+    }
+  }
+
+  @Override
+  public Description getDescription() {
+    return localRunner.getDescription();
+  }
+
+  @Override
+  public void run(RunNotifier notifier) {
+    if (port == null || !runInWorker(port, notifier)) {
+      localRunner.run(notifier);
+    }
+  }
+
+  /**
+   * @return False if the worker can't run the class, so that it has to run here.
+   */
+  private boolean runInWorker(int port, RunNotifier notifier) {
+    Set<String> resourcePaths;
+    try {
+      resourcePaths = resourcePaths(localRunner);
+    } catch (RuntimeException e) {
+      Logger.info("Running %s locally: couldn't find the resources it uses: %s", testClass.getName(), e);
+      return false;
+    }
+
+    Socket socket = new Socket();
+    DataInputStream in;
+    try {
+      socket.connect(new InetSocketAddress(InetAddress.getByName(null), port), CONNECT_TIMEOUT_MILLIS);
+      socket.setSoTimeout(REPLY_TIMEOUT_MILLIS);
+      in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+      out.writeInt(WorkerProtocol.VERSION);
+      WorkerProtocol.writeString(out, WorkerProtocol.classPathHash(System.getProperty("java.class.path")));
+      WorkerProtocol.writeStrings(out, resourcePaths);
+      WorkerProtocol.writeString(out, getRunnerClass().getName());
+      WorkerProtocol.writeString(out, testClass.getName());
+      out.flush();
+
+      byte status = in.readByte();
+      if (status != WorkerProtocol.STATUS_OK) {
+        Logger.info("Running %s locally: %s", testClass.getName(), WorkerProtocol.readString(in));
+        close(socket);
+        return false;
+      }
+    } catch (IOException e) {
+      Logger.info("Running %s locally: couldn't reach Robolectric worker on port %d: %s", testClass.getName(), port, e);
+      close(socket);
+      return false;
+    }
+
+    try {
+      // A test may take any time to run, so there's no limit on waiting for its events.
+      socket.setSoTimeout(0);
+      forwardEvents(in, notifier);
+    } catch (IOException e) {
+      notifier.fireTestFailure(new Failure(getDescription(), new IOException("Lost connection to Robolectric worker", e)));
+    } finally {
+      close(socket);
+    }
+    return true;
+  }
+
+  private static void close(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // Nothing left to read.
+    }
+  }
+
+  private void forwardEvents(DataInputStream in, RunNotifier notifier) throws IOException {
+    while (true) {
+      byte event = in.readByte();
+      if (event == WorkerProtocol.EVENT_DONE) {
+        return;
+      }
+
+      Description eventDescription = descriptionFor(WorkerProtocol.readString(in));
+      switch (event) {
+        case WorkerProtocol.EVENT_STARTED:
+          notifier.fireTestStarted(eventDescription);
+          break;
+        case WorkerProtocol.EVENT_FINISHED:
+          notifier.fireTestFinished(eventDescription);
+          break;
+        case WorkerProtocol.EVENT_FAILURE:
+          notifier.fireTestFailure(new Failure(eventDescription, WorkerProtocol.readThrowable(in)));
+          break;
+        case WorkerProtocol.EVENT_ASSUMPTION_FAILURE:
+          notifier.fireTestAssumptionFailed(new Failure(eventDescription, WorkerProtocol.readThrowable(in)));
+          break;
+        case WorkerProtocol.EVENT_IGNORED:
+          notifier.fireTestIgnored(eventDescription);
+          break;
+        default:
+          throw new IOException("Unknown worker event " + event);
+      }
+    }
+  }
+
+  /**
+   * Events may name descriptions that aren't in the tree, such as the failure of a whole class.
+   */
+  private Description descriptionFor(String displayName) {
+    if (descriptionsByName.isEmpty()) {
+      addDescriptions(getDescription());
+    }
+    Description eventDescription = descriptionsByName.get(displayName);
+    return eventDescription != null ? eventDescription : Description.createSuiteDescription(displayName);
+  }
+
+  private void addDescriptions(Description description) {
+    descriptionsByName.put(description.getDisplayName(), description);
+    for (Description child : description.getChildren()) {
+      addDescriptions(child);
+    }
+  }
+}
@@ -21,6 +21,7 @@ import java.util.ServiceLoader;
 public class Robolectric {
   private static ShadowsAdapter shadowsAdapter = null;
   private static Iterable<ShadowProvider> providers;
+  private static long resetterInvocationCount;
 
   public static void reset() {
     if (providers == null) {
@@ -28,12 +29,20 @@ public class Robolectric {
     }
     for (ShadowProvider provider : providers) {
       provider.reset();
+      resetterInvocationCount++;
     }
     RuntimeEnvironment.application = null;
     RuntimeEnvironment.setRobolectricPackageManager(null);
     RuntimeEnvironment.setActivityThread(null);
   }
 
+  /**
+   * @return The number of times a {@link ShadowProvider} has been reset in this class loader.
+   */
+  public static long getResetterInvocationCount() {
+    return resetterInvocationCount;
+  }
+
   public static ShadowsAdapter getShadowsAdapter() {
     synchronized(ShadowsAdapter.class) {
       if(shadowsAdapter == null) {
@@ -27,7 +27,11 @@ import org.robolectric.internal.ParallelUniverse;
 import org.robolectric.internal.ParallelUniverseInterface;
 import org.robolectric.internal.SdkConfig;
 import org.robolectric.internal.SdkEnvironment;
+import org.robolectric.internal.metrics.RunnerMetrics;
+import org.robolectric.internal.metrics.TestMetrics;
+import org.robolectric.internal.metrics.TestMetrics.Phase;
 import org.robolectric.manifest.AndroidManifest;
+import org.robolectric.res.DocumentLoader;
 import org.robolectric.res.Fs;
 import org.robolectric.res.FsFile;
 import org.robolectric.res.OverlayResourceLoader;
@@ -48,25 +52,86 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.*;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Installs a {@link org.robolectric.internal.bytecode.InstrumentingClassLoader} and
  * {@link org.robolectric.res.ResourceLoader} in order to provide a simulation of the Android runtime environment.
+ *
+ * <p>When a runner is first asked for its description, which JUnit does for every runner before it runs any
+ * of them, it starts preparing the environment of its first test in the background: the app manifest, the
+ * {@link SdkEnvironment}, commonly used framework classes, and system and app resources. The first test then
+ * only waits for whatever isn't ready yet. The runner's overridable methods for these steps may therefore be
+ * called on another thread. Pre-warming can be disabled with the property {@code robolectric.prewarm = false},
+ * or by overriding {@link #shouldPrewarm()}.</p>
  */
 public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   private static final String CONFIG_PROPERTIES = "robolectric.properties";
+  private static final String GROUP_TESTS_BY_ENVIRONMENT = "robolectric.groupTestsByEnvironment";
+  private static final String PREWARM = "robolectric.prewarm";
+  private static final String[] PREWARMED_CLASSES = {
+      "android.app.Activity",
+      "android.app.Application",
+      "android.content.ContextWrapper",
+      "android.content.res.Resources",
+      "android.os.Handler",
+      "android.os.Looper",
+      "android.view.View",
+      "android.view.ViewGroup",
+      "android.widget.TextView",
+  };
+  private static final String[] PREWARMED_RESOURCE_TYPES = {"style", "layout"};
+  private static final ExecutorService prewarmExecutor = Executors.newFixedThreadPool(3, new ThreadFactory() {
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "Robolectric pre-warm " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
   private static final Config DEFAULT_CONFIG = new Config.Implementation(defaultsFor(Config.class));
-  private static final Map<Pair<AndroidManifest, SdkConfig>, ResourceLoader> resourceLoadersByManifestAndConfig = new HashMap<>();
+  /**
+   * App resource loaders, by manifest and by the system resource loader they route "android" resources to. Keyed
+   * by the system resource loader rather than the SDK, since it belongs to a single environment; entries are
+   * dropped when that environment is released.
+   */
+  private static final Map<Pair<AndroidManifest, ResourceLoader>, ResourceLoader> resourceLoadersByManifestAndSystemResources = new HashMap<>();
   private static final Map<ManifestIdentifier, AndroidManifest> appManifestsByFile = new HashMap<>();
 
   /** Caches process R classes to avoid building their expensive index repeatedly */
   private final Map<String, ResourceIndex> rClassToIndex = new HashMap<>();
 
+  private final AtomicBoolean prewarmStarted = new AtomicBoolean();
+
+  /** Config from {@link #getConfigProperties()}, read once, since every test method's config starts with it. */
+  private Config globalConfig;
+  private boolean globalConfigLoaded;
+
   private TestLifecycle<Application> testLifecycle;
   private DependencyResolver dependencyResolver;
 
   static {
     new SecureRandom(); // this starts up the Poller SunPKCS11-Darwin thread early, outside of any Robolectric classloader
+
+    SdkEnvironment.addReleaseListener(new SdkEnvironment.ReleaseListener() {
+      @Override
+      public void onRelease(SdkEnvironment sdkEnvironment, ResourceLoader systemResourceLoader) {
+        synchronized (resourceLoadersByManifestAndSystemResources) {
+          Iterator<Pair<AndroidManifest, ResourceLoader>> keys = resourceLoadersByManifestAndSystemResources.keySet().iterator();
+          while (keys.hasNext()) {
+            if (keys.next().second == systemResourceLoader) {
+              keys.remove();
+            }
+          }
+        }
+      }
+    });
   }
 
   private final HashSet<Class<?>> loadedTestClasses = new HashSet<>();
@@ -82,6 +147,126 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     super(testClass);
   }
 
+  @Override
+  public Description getDescription() {
+    startPrewarm();
+    return super.getDescription();
+  }
+
+  @Override
+  public void run(RunNotifier notifier) {
+    startPrewarm();
+    super.run(notifier);
+  }
+
+  /**
+   * Stops this runner from pre-warming, for when its tests will run elsewhere.
+   */
+  void skipPrewarm() {
+    prewarmStarted.set(true);
+  }
+
+  private void startPrewarm() {
+    if (prewarmStarted.compareAndSet(false, true) && shouldPrewarm()) {
+      prewarm();
+    }
+  }
+
+  /**
+   * @return True if the environment of the first test should be prepared in the background.
+   */
+  protected boolean shouldPrewarm() {
+    return Boolean.parseBoolean(System.getProperty(PREWARM, "true"));
+  }
+
+  /**
+   * Prepares the environment of the first test to run. Failures are ignored; the test prepares whatever is
+   * missing itself, and reports any errors.
+   */
+  private void prewarm() {
+    final String testClassName = getTestClass().getName();
+    final Config config;
+    try {
+      List<FrameworkMethod> children = getChildren();
+      if (children.isEmpty()) {
+        return;
+      }
+      config = getConfig(children.get(0).getMethod());
+    } catch (Throwable e) {
+      Logger.debug("Couldn't pre-warm environment for %s: %s", testClassName, e);
+      return;
+    }
+
+    prewarmExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        SdkEnvironment environment = null;
+        try {
+          final AndroidManifest appManifest = getAppManifest(config);
+          final SdkConfig sdkConfig = new SdkConfig(pickSdkVersion(config, appManifest));
+          environment = new InstrumentingClassLoaderFactory(createClassLoaderConfig(config), getJarResolver())
+              .beginUsingSdkEnvironment(sdkConfig);
+          final SdkEnvironment sdkEnvironment = environment;
+
+          sdkEnvironment.beginUse();
+          prewarmExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+              try {
+                ClassLoader robolectricClassLoader = sdkEnvironment.getRobolectricClassLoader();
+                for (String className : PREWARMED_CLASSES) {
+                  try {
+                    robolectricClassLoader.loadClass(className);
+                  } catch (Throwable e) {
+                    Logger.debug("Couldn't pre-load %s: %s", className, e);
+                  }
+                }
+              } finally {
+                sdkEnvironment.endUse();
+              }
+            }
+          });
+
+          final ResourceLoader systemResourceLoader = sdkEnvironment.getSystemResourceLoader(getJarResolver());
+          if (appManifest != null) {
+            sdkEnvironment.beginUse();
+            prewarmExecutor.execute(new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  preloadResources(getAppResourceLoader(sdkConfig, systemResourceLoader, appManifest));
+                } catch (Throwable e) {
+                  Logger.debug("Couldn't pre-load app resources for %s: %s", testClassName, e);
+                } finally {
+                  sdkEnvironment.endUse();
+                }
+              }
+            });
+          }
+          preloadResources(systemResourceLoader);
+        } catch (Throwable e) {
+          Logger.debug("Couldn't pre-warm environment for %s: %s", testClassName, e);
+        } finally {
+          if (environment != null) {
+            environment.endUse();
+          }
+        }
+      }
+    });
+  }
+
+  private static void preloadResources(ResourceLoader resourceLoader) {
+    for (String resType : PREWARMED_RESOURCE_TYPES) {
+      if (resourceLoader instanceof PackageResourceLoader) {
+        ((PackageResourceLoader) resourceLoader).preload(resType);
+      } else if (resourceLoader instanceof OverlayResourceLoader) {
+        ((OverlayResourceLoader) resourceLoader).preload(resType);
+      } else if (resourceLoader instanceof RoutingResourceLoader) {
+        ((RoutingResourceLoader) resourceLoader).preload(resType);
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private void assureTestLifecycle(SdkEnvironment sdkEnvironment) {
     try {
@@ -92,7 +277,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
   }
 
-  protected DependencyResolver getJarResolver() {
+  protected synchronized DependencyResolver getJarResolver() {
     if (dependencyResolver == null) {
       if (Boolean.getBoolean("robolectric.offline")) {
         String dependencyDir = System.getProperty("robolectric.dependency.dir", ".");
@@ -161,6 +346,9 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
         } finally {
           afterClass();
           loadedTestClasses.clear();
+          if (RunnerMetrics.isEnabled()) {
+            RunnerMetrics.classFinished(getTestClass().getJavaClass());
+          }
         }
       }
     };
@@ -174,6 +362,41 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
   }
 
+  /**
+   * Orders test methods so that tests which share a configuration run back to back. This avoids
+   * switching between {@link SdkEnvironment}s, manifests and shadow maps more often than necessary.
+   * Groups keep the order in which their first test was declared, and tests keep their declared
+   * order within a group, so the reported order is stable from run to run.
+   *
+   * <p>Grouping can be disabled by setting the property: {@code robolectric.groupTestsByEnvironment = false}.</p>
+   *
+   * @return Test methods, grouped by configuration.
+   */
+  @Override
+  protected List<FrameworkMethod> getChildren() {
+    List<FrameworkMethod> children = super.getChildren();
+    if (!Boolean.parseBoolean(System.getProperty(GROUP_TESTS_BY_ENVIRONMENT, "true"))) {
+      return children;
+    }
+
+    Map<EnvironmentIdentifier, List<FrameworkMethod>> childrenByEnvironment = new LinkedHashMap<>();
+    for (FrameworkMethod child : children) {
+      EnvironmentIdentifier identifier = new EnvironmentIdentifier(getConfig(child.getMethod()));
+      List<FrameworkMethod> group = childrenByEnvironment.get(identifier);
+      if (group == null) {
+        group = new ArrayList<>();
+        childrenByEnvironment.put(identifier, group);
+      }
+      group.add(child);
+    }
+
+    List<FrameworkMethod> groupedChildren = new ArrayList<>(children.size());
+    for (List<FrameworkMethod> group : childrenByEnvironment.values()) {
+      groupedChildren.addAll(group);
+    }
+    return groupedChildren;
+  }
+
   @Override
   protected void runChild(FrameworkMethod method, RunNotifier notifier) {
     Description description = describeChild(method);
@@ -184,17 +407,32 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
       eachNotifier.fireTestIgnored();
     } else if(shouldRunApiVersion(config)) {
       eachNotifier.fireTestStarted();
+      testMetrics = new TestMetrics(getTestClass().getName(), description.getMethodName());
+      SdkEnvironment sdkEnvironment = null;
       try {
+        long start = System.nanoTime();
         AndroidManifest appManifest = getAppManifest(config);
+        testMetrics.recordPhase(Phase.APP_MANIFEST, start);
+
+        start = System.nanoTime();
         InstrumentingClassLoaderFactory instrumentingClassLoaderFactory = new InstrumentingClassLoaderFactory(createClassLoaderConfig(config), getJarResolver());
-        SdkEnvironment sdkEnvironment = instrumentingClassLoaderFactory.getSdkEnvironment(new SdkConfig(pickSdkVersion(config, appManifest)));
+        sdkEnvironment = instrumentingClassLoaderFactory.beginUsingSdkEnvironment(new SdkConfig(pickSdkVersion(config, appManifest)));
+        testMetrics.recordPhase(Phase.SDK_ENVIRONMENT, start);
+
         methodBlock(method, config, appManifest, sdkEnvironment).evaluate();
       } catch (AssumptionViolatedException e) {
         eachNotifier.addFailedAssumption(e);
       } catch (Throwable e) {
         eachNotifier.addFailure(e);
       } finally {
+        if (sdkEnvironment != null) {
+          sdkEnvironment.endUse();
+        }
         eachNotifier.fireTestFinished();
+        if (RunnerMetrics.isEnabled()) {
+          RunnerMetrics.testFinished(testMetrics);
+        }
+        testMetrics = null;
       }
     }
   }
@@ -208,15 +446,22 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   }
 
   private ParallelUniverseInterface parallelUniverseInterface;
+  private TestMetrics testMetrics;
 
   Statement methodBlock(final FrameworkMethod method, final Config config, final AndroidManifest appManifest, final SdkEnvironment sdkEnvironment) {
     return new Statement() {
       @Override
       public void evaluate() throws Throwable {
+        final TestMetrics metrics = testMetrics != null ? testMetrics : new TestMetrics(getTestClass().getName(), method.getName());
+        long instrumentedClassesBefore = InstrumentingClassLoader.getInstrumentedClassCount();
+        long parsedFilesBefore = DocumentLoader.getParsedFileCount();
+
         // Configure shadows *BEFORE* setting the ClassLoader. This is necessary because
         // creating the ShadowMap loads all ShadowProviders via ServiceLoader and this is
         // not available once we install the Robolectric class loader.
+        long start = System.nanoTime();
         configureShadows(sdkEnvironment, config);
+        metrics.recordPhase(Phase.CONFIGURE_SHADOWS, start);
 
         Thread.currentThread().setContextClassLoader(sdkEnvironment.getRobolectricClassLoader());
 
@@ -232,6 +477,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
         }
 
         parallelUniverseInterface = getHooksInterface(sdkEnvironment);
+        long resettersBefore = getResetterInvocationCount(sdkEnvironment);
         try {
           try {
             // Only invoke @BeforeClass once per class
@@ -240,7 +486,9 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
             }
             assureTestLifecycle(sdkEnvironment);
 
+            start = System.nanoTime();
             parallelUniverseInterface.resetStaticState(config);
+            metrics.recordPhase(Phase.RESET_STATIC_STATE, start);
             parallelUniverseInterface.setSdkConfig(sdkEnvironment.getSdkConfig());
 
             int sdkVersion = pickSdkVersion(config, appManifest);
@@ -250,9 +498,14 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
             ReflectionHelpers.setStaticField(sdkEnvironment.bootstrappedClass(Build.VERSION.class),
                 "RELEASE", sdkConfig.getAndroidVersion());
 
+            start = System.nanoTime();
             ResourceLoader systemResourceLoader = sdkEnvironment.getSystemResourceLoader(getJarResolver());
+            metrics.recordPhase(Phase.SYSTEM_RESOURCE_LOADER, start);
+
+            start = System.nanoTime();
             setUpApplicationState(bootstrappedMethod, parallelUniverseInterface, systemResourceLoader, appManifest, config);
             testLifecycle.beforeTest(bootstrappedMethod);
+            metrics.recordPhase(Phase.SET_UP_APPLICATION_STATE, start);
           } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException(e);
@@ -261,28 +514,44 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
           final Statement statement = helperTestRunner.methodBlock(new FrameworkMethod(bootstrappedMethod));
 
           // todo: this try/finally probably isn't right -- should mimic RunAfters? [xw]
+          start = System.nanoTime();
           try {
             statement.evaluate();
           } finally {
+            metrics.recordPhase(Phase.TEST_BODY, start);
+            start = System.nanoTime();
             try {
               parallelUniverseInterface.tearDownApplication();
             } finally {
               try {
                 internalAfterTest(bootstrappedMethod);
               } finally {
+                metrics.recordPhase(Phase.TEAR_DOWN_APPLICATION, start);
+                start = System.nanoTime();
                 parallelUniverseInterface.resetStaticState(config); // afterward too, so stuff doesn't hold on to classes?
+                metrics.recordPhase(Phase.FINAL_RESET_STATIC_STATE, start);
                 // todo: is this really needed?
                 Thread.currentThread().setContextClassLoader(RobolectricTestRunner.class.getClassLoader());
               }
             }
           }
         } finally {
+          metrics.addResettersInvoked(getResetterInvocationCount(sdkEnvironment) - resettersBefore);
+          metrics.addClassesInstrumented(InstrumentingClassLoader.getInstrumentedClassCount() - instrumentedClassesBefore);
+          metrics.addResourceFilesParsed(DocumentLoader.getParsedFileCount() - parsedFilesBefore);
           parallelUniverseInterface = null;
         }
       }
     };
   }
 
+  /**
+   * Reads the count from the environment's own copy of {@link Robolectric}, since each environment has one.
+   */
+  private static long getResetterInvocationCount(SdkEnvironment sdkEnvironment) {
+    return ReflectionHelpers.<Long>callStaticMethod(sdkEnvironment.bootstrappedClass(Robolectric.class), "getResetterInvocationCount");
+  }
+
   private void invokeBeforeClass(final Class clazz) throws Throwable {
     if (!loadedTestClasses.contains(clazz)) {
       loadedTestClasses.add(clazz);
@@ -343,7 +612,7 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   public Config getConfig(Method method) {
     Config config = DEFAULT_CONFIG;
 
-    Config globalConfig = Config.Implementation.fromProperties(getConfigProperties());
+    Config globalConfig = getGlobalConfig();
     if (globalConfig != null) {
       config = new Config.Implementation(config, globalConfig);
     }
@@ -376,6 +645,14 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     return config;
   }
 
+  private synchronized Config getGlobalConfig() {
+    if (!globalConfigLoaded) {
+      globalConfig = Config.Implementation.fromProperties(getConfigProperties());
+      globalConfigLoaded = true;
+    }
+    return globalConfig;
+  }
+
   protected Properties getConfigProperties() {
     ClassLoader classLoader = getClass().getClassLoader();
     try (InputStream resourceAsStream = classLoader.getResourceAsStream(CONFIG_PROPERTIES)) {
@@ -466,13 +743,15 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
   }
 
   public final ResourceLoader getAppResourceLoader(SdkConfig sdkConfig, ResourceLoader systemResourceLoader, final AndroidManifest appManifest) {
-    Pair<AndroidManifest, SdkConfig> androidManifestSdkConfigPair = new Pair<>(appManifest, sdkConfig);
-    ResourceLoader resourceLoader = resourceLoadersByManifestAndConfig.get(androidManifestSdkConfigPair);
-    if (resourceLoader == null) {
-      resourceLoader = createAppResourceLoader(systemResourceLoader, appManifest);
-      resourceLoadersByManifestAndConfig.put(androidManifestSdkConfigPair, resourceLoader);
+    Pair<AndroidManifest, ResourceLoader> key = new Pair<>(appManifest, systemResourceLoader);
+    synchronized (resourceLoadersByManifestAndSystemResources) {
+      ResourceLoader resourceLoader = resourceLoadersByManifestAndSystemResources.get(key);
+      if (resourceLoader == null) {
+        resourceLoader = createAppResourceLoader(systemResourceLoader, appManifest);
+        resourceLoadersByManifestAndSystemResources.put(key, resourceLoader);
+      }
+      return resourceLoader;
     }
-    return resourceLoader;
   }
 
   protected ResourceLoader createAppResourceLoader(ResourceLoader systemResourceLoader, AndroidManifest appManifest) {
@@ -574,6 +853,70 @@ public class RobolectricTestRunner extends BlockJUnit4ClassRunner {
     }
   }
 
+  /**
+   * Identifies the parts of a {@link Config} that select the environment a test runs in: the SDK, the
+   * instrumentation and shadows, and the manifest and resources.
+   */
+  private static class EnvironmentIdentifier {
+    private final List<Integer> sdk;
+    private final String manifest;
+    private final String qualifiers;
+    private final String resourceDir;
+    private final String assetDir;
+    private final String buildDir;
+    private final String packageName;
+    private final String abiSplit;
+    private final Class<?> constants;
+    private final Set<Class<?>> shadows;
+    private final Set<String> instrumentedPackages;
+    private final Set<String> libraries;
+
+    public EnvironmentIdentifier(Config config) {
+      this.sdk = new ArrayList<>();
+      for (int sdkVersion : config.sdk()) {
+        sdk.add(sdkVersion);
+      }
+      this.manifest = config.manifest();
+      this.qualifiers = config.qualifiers();
+      this.resourceDir = config.resourceDir();
+      this.assetDir = config.assetDir();
+      this.buildDir = config.buildDir();
+      this.packageName = config.packageName();
+      this.abiSplit = config.abiSplit();
+      this.constants = config.constants();
+      this.shadows = new HashSet<Class<?>>(Arrays.asList(config.shadows()));
+      this.instrumentedPackages = new HashSet<>(Arrays.asList(config.instrumentedPackages()));
+      this.libraries = new HashSet<>(Arrays.asList(config.libraries()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      EnvironmentIdentifier that = (EnvironmentIdentifier) o;
+
+      return sdk.equals(that.sdk)
+          && Objects.equals(manifest, that.manifest)
+          && Objects.equals(qualifiers, that.qualifiers)
+          && Objects.equals(resourceDir, that.resourceDir)
+          && Objects.equals(assetDir, that.assetDir)
+          && Objects.equals(buildDir, that.buildDir)
+          && Objects.equals(packageName, that.packageName)
+          && Objects.equals(abiSplit, that.abiSplit)
+          && Objects.equals(constants, that.constants)
+          && shadows.equals(that.shadows)
+          && instrumentedPackages.equals(that.instrumentedPackages)
+          && libraries.equals(that.libraries);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(sdk, manifest, qualifiers, resourceDir, assetDir, buildDir, packageName, abiSplit,
+          constants, shadows, instrumentedPackages, libraries);
+    }
+  }
+
   private static <A extends Annotation> A defaultsFor(Class<A> annotation) {
     return annotation.cast(
         Proxy.newProxyInstance(annotation.getClassLoader(), new Class[] { annotation },
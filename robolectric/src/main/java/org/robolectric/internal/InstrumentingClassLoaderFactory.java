@@ -7,8 +7,6 @@ import org.robolectric.internal.dependency.DependencyResolver;
 import org.robolectric.util.Pair;
 
 import java.net.URL;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 public class InstrumentingClassLoaderFactory {
 
@@ -18,13 +16,13 @@ public class InstrumentingClassLoaderFactory {
   /** We need to set the cache size of class loaders more than the number of supported APIs as different tests may have different configurations. */
   private static final int CACHE_SIZE = SdkConfig.getSupportedApis().size() * CACHE_SIZE_FACTOR;
 
-  // Simple LRU Cache. SdkEnvironments are unique across InstrumentingClassloaderConfig and SdkConfig
-  private static final LinkedHashMap<Pair<InstrumentationConfiguration, SdkConfig>, SdkEnvironment> sdkToEnvironment = new LinkedHashMap<Pair<InstrumentationConfiguration, SdkConfig>, SdkEnvironment>() {
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<Pair<InstrumentationConfiguration, SdkConfig>, SdkEnvironment> eldest) {
-      return size() > CACHE_SIZE;
-    }
-  };
+  // SdkEnvironments are unique across InstrumentingClassloaderConfig and SdkConfig
+  private static final SdkEnvironmentCache<Pair<InstrumentationConfiguration, SdkConfig>> sdkToEnvironment =
+      new SdkEnvironmentCache<>(CACHE_SIZE, SdkEnvironmentCache.getConfiguredMaxRetainedBytes());
+
+  static {
+    sdkToEnvironment.logStatisticsOnExit();
+  }
 
   private final InstrumentationConfiguration instrumentationConfig;
   private final DependencyResolver dependencyResolver;
@@ -34,20 +32,41 @@ public class InstrumentingClassLoaderFactory {
     this.dependencyResolver = dependencyResolver;
   }
 
-  public synchronized SdkEnvironment getSdkEnvironment(SdkConfig sdkConfig) {
+  /**
+   * @return The estimated retained size of the largest cached environment, and at least a typical size.
+   */
+  public static long estimateEnvironmentSize() {
+    return sdkToEnvironment.estimateLargestEnvironmentSize();
+  }
+
+  /**
+   * Returns the environment for {@code sdkConfig}, marked as in use so that it isn't evicted until
+   * {@link SdkEnvironment#endUse()} is called.
+   */
+  public SdkEnvironment beginUsingSdkEnvironment(SdkConfig sdkConfig) {
+    synchronized (sdkToEnvironment) {
+      SdkEnvironment sdkEnvironment = getSdkEnvironment(sdkConfig);
+      sdkEnvironment.beginUse();
+      return sdkEnvironment;
+    }
+  }
+
+  public SdkEnvironment getSdkEnvironment(SdkConfig sdkConfig) {
 
     Pair<InstrumentationConfiguration, SdkConfig> key = Pair.create(instrumentationConfig, sdkConfig);
 
-    SdkEnvironment sdkEnvironment = sdkToEnvironment.get(key);
-    if (sdkEnvironment == null) {
-      URL[] urls = dependencyResolver.getLocalArtifactUrls(
-          sdkConfig.getAndroidSdkDependency(),
-          sdkConfig.getCoreShadowsDependency());
+    synchronized (sdkToEnvironment) {
+      SdkEnvironment sdkEnvironment = sdkToEnvironment.get(key);
+      if (sdkEnvironment == null) {
+        URL[] urls = dependencyResolver.getLocalArtifactUrls(
+            sdkConfig.getAndroidSdkDependency(),
+            sdkConfig.getCoreShadowsDependency());
 
-      ClassLoader robolectricClassLoader = new InstrumentingClassLoader(instrumentationConfig, urls);
-      sdkEnvironment = new SdkEnvironment(sdkConfig, robolectricClassLoader);
-      sdkToEnvironment.put(key, sdkEnvironment);
+        ClassLoader robolectricClassLoader = new InstrumentingClassLoader(instrumentationConfig, urls);
+        sdkEnvironment = new SdkEnvironment(sdkConfig, robolectricClassLoader);
+        sdkToEnvironment.put(key, sdkEnvironment);
+      }
+      return sdkEnvironment;
     }
-    return sdkEnvironment;
   }
 }
@@ -1,5 +1,6 @@
 package org.robolectric.internal;
 
+import org.robolectric.internal.bytecode.InstrumentingClassLoader;
 import org.robolectric.internal.bytecode.ShadowInvalidator;
 import org.robolectric.internal.dependency.DependencyResolver;
 import org.robolectric.internal.bytecode.ShadowMap;
@@ -10,16 +11,46 @@ import org.robolectric.res.ResourceExtractor;
 import org.robolectric.res.ResourceLoader;
 import org.robolectric.res.ResourcePath;
 
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.net.URL;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class SdkEnvironment {
+  /**
+   * Notified when an environment is released, so that anything built on its resources can be dropped too.
+   */
+  public interface ReleaseListener {
+    /**
+     * @param systemResourceLoader The environment's system resource loader, or null if it never created one.
+     */
+    void onRelease(SdkEnvironment sdkEnvironment, ResourceLoader systemResourceLoader);
+  }
+
+  private static final List<ReleaseListener> releaseListeners = new CopyOnWriteArrayList<>();
+
+  /** Parsed system resources, shared between environments which use the same android-all jar. */
+  private static final Map<String, SoftReference<PackageResourceLoader>> systemResourceTablesByJar = new HashMap<>();
+
+  /** Rough retained size of an instrumented class: bytecode, class metadata and reflection data. */
+  private static final long ESTIMATED_BYTES_PER_CLASS = 16 * 1024;
+
+  /** Rough retained size of a parsed resource, including its names, qualifiers and XML. */
+  private static final long ESTIMATED_BYTES_PER_RESOURCE = 2 * 1024;
+
+  /** Rough retained size of an environment tests have run in, for use before any environment is measured. */
+  public static final long TYPICAL_RETAINED_SIZE = 128 * 1024 * 1024;
+
   private final SdkConfig sdkConfig;
   private final ClassLoader robolectricClassLoader;
   private final ShadowInvalidator shadowInvalidator;
   public final Map<ShadowMap, ShadowWrangler> classHandlersByShadowMap = new HashMap<>();
   private ShadowMap shadowMap = ShadowMap.EMPTY;
   private ResourceLoader systemResourceLoader;
+  private int users;
 
   public SdkEnvironment(SdkConfig sdkConfig, ClassLoader robolectricClassLoader) {
     this.sdkConfig = sdkConfig;
@@ -28,15 +59,42 @@ public class SdkEnvironment {
   }
 
   public PackageResourceLoader createSystemResourceLoader(DependencyResolver dependencyResolver) {
-    Fs systemResFs = Fs.fromJar(dependencyResolver.getLocalArtifactUrl(sdkConfig.getAndroidSdkDependency()));
     ResourceExtractor resourceExtractor;
     try {
       resourceExtractor = new ResourceExtractor(getRobolectricClassLoader().loadClass("com.android.internal.R"), getRobolectricClassLoader().loadClass("android.R"));
     } catch (ClassNotFoundException e) {
       throw new RuntimeException(e);
     }
-    ResourcePath resourcePath = new ResourcePath(resourceExtractor.getProcessedRFile(), resourceExtractor.getPackageName(), systemResFs.join("res"), systemResFs.join("assets"));
-    return new PackageResourceLoader(resourcePath, resourceExtractor);
+    return new PackageResourceLoader(resourceExtractor, getSystemResourceTables(dependencyResolver));
+  }
+
+  /**
+   * Returns a loader for the system resources in this SDK's android-all jar, shared by every environment using
+   * the same jar. Its tables don't refer to any class loader; each environment pairs them with a
+   * {@link ResourceExtractor} for its own R classes.
+   */
+  private PackageResourceLoader getSystemResourceTables(DependencyResolver dependencyResolver) {
+    URL androidAllUrl = dependencyResolver.getLocalArtifactUrl(sdkConfig.getAndroidSdkDependency());
+    String key = androidAllUrl.toString();
+    synchronized (systemResourceTablesByJar) {
+      SoftReference<PackageResourceLoader> reference = systemResourceTablesByJar.get(key);
+      PackageResourceLoader systemResourceTables = reference == null ? null : reference.get();
+      if (systemResourceTables == null) {
+        Fs systemResFs = Fs.fromJar(androidAllUrl);
+        ResourcePath resourcePath = new ResourcePath(null, "android", systemResFs.join("res"), systemResFs.join("assets"));
+        systemResourceTables = new PackageResourceLoader(resourcePath, new ResourceExtractor());
+        systemResourceTablesByJar.put(key, new SoftReference<>(systemResourceTables));
+      }
+      return systemResourceTables;
+    }
+  }
+
+  public static void addReleaseListener(ReleaseListener releaseListener) {
+    releaseListeners.add(releaseListener);
+  }
+
+  public static void removeReleaseListener(ReleaseListener releaseListener) {
+    releaseListeners.remove(releaseListener);
   }
 
   public synchronized ResourceLoader getSystemResourceLoader(DependencyResolver dependencyResolver) {
@@ -46,6 +104,58 @@ public class SdkEnvironment {
     return systemResourceLoader;
   }
 
+  /**
+   * Estimates how much memory this environment retains, based on the number of classes its class loader has
+   * instrumented and the number of system resources it has parsed.
+   *
+   * @return Estimated retained size in bytes.
+   */
+  public synchronized long estimateRetainedSize() {
+    long size = 0;
+    if (robolectricClassLoader instanceof InstrumentingClassLoader) {
+      size += ((InstrumentingClassLoader) robolectricClassLoader).getAcquiredClassCount() * ESTIMATED_BYTES_PER_CLASS;
+    }
+    if (systemResourceLoader instanceof PackageResourceLoader) {
+      size += ((PackageResourceLoader) systemResourceLoader).getResourceCount() * ESTIMATED_BYTES_PER_RESOURCE;
+    }
+    return size;
+  }
+
+  /**
+   * Marks this environment as in use by a test, so that it isn't released while the test runs.
+   */
+  public synchronized void beginUse() {
+    users++;
+  }
+
+  public synchronized void endUse() {
+    users--;
+  }
+
+  public synchronized boolean isInUse() {
+    return users > 0;
+  }
+
+  /**
+   * Drops this environment's resources and class handlers and closes its class loader, so they can be
+   * reclaimed without waiting for every reference to the environment to go away. The environment must not
+   * be used afterwards. {@link ReleaseListener}s are notified first.
+   */
+  public synchronized void release() {
+    for (ReleaseListener releaseListener : releaseListeners) {
+      releaseListener.onRelease(this, systemResourceLoader);
+    }
+    systemResourceLoader = null;
+    classHandlersByShadowMap.clear();
+    if (robolectricClassLoader instanceof InstrumentingClassLoader) {
+      try {
+        ((InstrumentingClassLoader) robolectricClassLoader).close();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
   public Class<?> bootstrappedClass(Class<?> testClass) {
     try {
       return robolectricClassLoader.loadClass(testClass.getName());
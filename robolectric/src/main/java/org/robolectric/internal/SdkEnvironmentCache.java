@@ -0,0 +1,156 @@
+package org.robolectric.internal;
+
+import org.robolectric.util.Logger;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of {@link SdkEnvironment}s, bounded both by entry count and by an estimate of the
+ * memory the environments retain. Evicted environments are released immediately.
+ *
+ * <p>
+ * The memory budget can be set in megabytes with the property: {@code robolectric.sdkEnvironmentCache.maxMemoryMb}.
+ * By default, half of the maximum heap size is used.
+ * </p>
+ *
+ * @param <K> Key type.
+ */
+public class SdkEnvironmentCache<K> {
+  private static final String MAX_MEMORY_MB = "robolectric.sdkEnvironmentCache.maxMemoryMb";
+
+  private final int maxEntries;
+  private final long maxRetainedBytes;
+  private final LinkedHashMap<K, SdkEnvironment> environments = new LinkedHashMap<>(16, 0.75f, true);
+  /** Estimated size of each environment when it was last measured, and their total. */
+  private final Map<K, Long> estimatedSizes = new HashMap<>();
+  private long estimatedTotalSize;
+  /** True if environments in use kept the cache over its limits the last time it was trimmed. */
+  private boolean overLimits;
+  private int hits;
+  private int misses;
+  private int evictions;
+
+  public SdkEnvironmentCache(int maxEntries, long maxRetainedBytes) {
+    this.maxEntries = maxEntries;
+    this.maxRetainedBytes = maxRetainedBytes;
+  }
+
+  /**
+   * @return The configured memory budget for cached environments, in bytes.
+   */
+  public static long getConfiguredMaxRetainedBytes() {
+    String maxMemoryMb = System.getProperty(MAX_MEMORY_MB);
+    if (maxMemoryMb != null) {
+      return Long.parseLong(maxMemoryMb) * 1024 * 1024;
+    }
+    return Runtime.getRuntime().maxMemory() / 2;
+  }
+
+  public synchronized SdkEnvironment get(K key) {
+    SdkEnvironment sdkEnvironment = environments.get(key);
+    if (sdkEnvironment == null) {
+      misses++;
+    } else {
+      hits++;
+      // Environments grow as they are used, so the budget may be exceeded even without new entries.
+      if (measure(key, sdkEnvironment) || overLimits) {
+        trim();
+      }
+    }
+    return sdkEnvironment;
+  }
+
+  public synchronized void put(K key, SdkEnvironment sdkEnvironment) {
+    SdkEnvironment previous = environments.put(key, sdkEnvironment);
+    if (previous != null) {
+      estimatedTotalSize -= estimatedSizes.remove(key);
+    }
+    measure(key, sdkEnvironment);
+    trim();
+  }
+
+  public synchronized int size() {
+    return environments.size();
+  }
+
+  public synchronized long estimateRetainedSize() {
+    long retainedSize = 0;
+    for (SdkEnvironment sdkEnvironment : environments.values()) {
+      retainedSize += sdkEnvironment.estimateRetainedSize();
+    }
+    return retainedSize;
+  }
+
+  public synchronized String getStatistics() {
+    return String.format("SdkEnvironment cache: %d hits, %d misses, %d evictions, %d cached, ~%d MB retained",
+        hits, misses, evictions, environments.size(), estimateRetainedSize() / (1024 * 1024));
+  }
+
+  /**
+   * Logs hit, miss and eviction counts when the JVM exits.
+   */
+  public void logStatisticsOnExit() {
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run() {
+        Logger.info(getStatistics());
+      }
+    }));
+  }
+
+  /**
+   * @return The estimated retained size of the largest cached environment. Environments grow as tests use
+   *     them, so this is never less than {@link SdkEnvironment#TYPICAL_RETAINED_SIZE}.
+   */
+  public synchronized long estimateLargestEnvironmentSize() {
+    long largest = SdkEnvironment.TYPICAL_RETAINED_SIZE;
+    for (SdkEnvironment sdkEnvironment : environments.values()) {
+      largest = Math.max(largest, sdkEnvironment.estimateRetainedSize());
+    }
+    return largest;
+  }
+
+  /**
+   * Updates the recorded size of an environment.
+   *
+   * @return True if its estimated size changed.
+   */
+  private boolean measure(K key, SdkEnvironment sdkEnvironment) {
+    long size = sdkEnvironment.estimateRetainedSize();
+    Long previousSize = estimatedSizes.put(key, size);
+    long change = size - (previousSize == null ? 0 : previousSize);
+    estimatedTotalSize += change;
+    return previousSize == null || change != 0;
+  }
+
+  /**
+   * Evicts the least recently used environments until the cache is within its limits, going by the sizes
+   * recorded when environments were last looked up. The most recently used environment is always kept, since
+   * it is about to be used, and so are environments tests are running in.
+   */
+  private void trim() {
+    Iterator<Map.Entry<K, SdkEnvironment>> iterator = environments.entrySet().iterator();
+    int candidates = environments.size() - 1;
+    while (candidates > 0 && isOverLimits()) {
+      Map.Entry<K, SdkEnvironment> entry = iterator.next();
+      SdkEnvironment eldest = entry.getValue();
+      candidates--;
+      if (eldest.isInUse()) {
+        continue;
+      }
+      estimatedTotalSize -= estimatedSizes.remove(entry.getKey());
+      iterator.remove();
+      eldest.release();
+      evictions++;
+      Logger.debug("Evicted %s from SdkEnvironment cache", eldest.getSdkConfig());
+    }
+    overLimits = isOverLimits();
+  }
+
+  private boolean isOverLimits() {
+    return environments.size() > maxEntries || estimatedTotalSize > maxRetainedBytes;
+  }
+}
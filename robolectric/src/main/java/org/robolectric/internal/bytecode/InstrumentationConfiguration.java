@@ -103,6 +103,9 @@ public class InstrumentationConfiguration {
       classesToNotAcquire.addAll(stringify(
           TestLifecycle.class,
           ShadowWrangler.class,
+          ShadowCallProfiler.class,
+          ShadowCallProfiler.Counter.class,
+          ShadowCallProfiler.Kind.class,
           AndroidManifest.class,
           R.class,
           InstrumentingClassLoader.class,
@@ -89,11 +89,23 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
     BOOTSTRAP_INTRINSIC = new Handle(H_INVOKESTATIC, className, "bootstrapIntrinsic", bootstrapIntrinsic);
   }
 
+  /**
+   * Counted per thread, so that classes loaded in the background, or by tests running in parallel, aren't
+   * charged to the test running on another thread.
+   */
+  private static final ThreadLocal<long[]> instrumentedClassCount = new ThreadLocal<long[]>() {
+    @Override
+    protected long[] initialValue() {
+      return new long[1];
+    }
+  };
+
   private final URLClassLoader urls;
   private final InstrumentationConfiguration config;
   private final Map<String, Class> classes = new HashMap<>();
   private final Map<String, String> classesToRemap;
   private final Set<MethodRef> methodsToIntercept;
+  private int acquiredClassCount;
 
   public InstrumentingClassLoader(InstrumentationConfiguration config, URL... urls) {
     super(InstrumentingClassLoader.class.getClassLoader());
@@ -111,7 +123,7 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
     Class<?> theClass = classes.get(name);
     if (theClass != null) {
       if (theClass == MissingClassMarker.class) {
-        throw new ClassNotFoundException(name);
+        throw new MissingClassException(name);
       } else {
         return theClass;
       }
@@ -132,6 +144,31 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
     return theClass;
   }
 
+  /**
+   * @return The number of classes this class loader has defined itself, rather than delegating to its parent.
+   */
+  public synchronized int getAcquiredClassCount() {
+    return acquiredClassCount;
+  }
+
+  /**
+   * @return The number of classes rewritten by instrumenting class loaders on the calling thread.
+   */
+  public static long getInstrumentedClassCount() {
+    return instrumentedClassCount.get()[0];
+  }
+
+  /**
+   * Releases the jars this class loader reads from and forgets the classes it has loaded. No further classes
+   * can be loaded once the class loader has been closed.
+   *
+   * @throws IOException If the underlying jars couldn't be closed.
+   */
+  public synchronized void close() throws IOException {
+    classes.clear();
+    urls.close();
+  }
+
   @Override
   public InputStream getResourceAsStream(String resName) {
     InputStream fromUrlsClassLoader = urls.getResourceAsStream(resName);
@@ -170,11 +207,14 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
         ClassInfo classInfo = new ClassInfo(className, classNode);
         if (config.shouldInstrument(classInfo)) {
           bytes = getInstrumentedBytes(classNode, config.containsStubs(classInfo));
+          instrumentedClassCount.get()[0]++;
         } else {
           bytes = origClassBytes;
         }
         ensurePackage(className);
-        return defineClass(className, bytes, 0, bytes.length);
+        Class<?> definedClass = defineClass(className, bytes, 0, bytes.length);
+        acquiredClassCount++;
+        return definedClass;
       } catch (Exception e) {
         throw new ClassNotFoundException("couldn't load " + className, e);
       } catch (OutOfMemoryError e) {
@@ -189,7 +229,7 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
   protected byte[] getByteCode(String className) throws ClassNotFoundException {
     String classFilename = className.replace('.', '/') + ".class";
     try (InputStream classBytesStream = getResourceAsStream(classFilename)) {
-      if (classBytesStream == null) throw new ClassNotFoundException(className);
+      if (classBytesStream == null) throw new MissingClassException(className);
 
       return readBytes(classBytesStream);
     } catch (IOException e) {
@@ -1253,4 +1293,19 @@ public class InstrumentingClassLoader extends ClassLoader implements Opcodes {
   private static class MissingClassMarker {
   }
 
+  /**
+   * Thrown for classes that don't exist. Callers such as the layout inflater probe for classes and expect most
+   * lookups to miss, so no stack trace is filled in.
+   */
+  private static class MissingClassException extends ClassNotFoundException {
+    MissingClassException(String className) {
+      super(className);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
 }
@@ -79,6 +79,11 @@ public class InvokeDynamicSupport {
       throw new IllegalArgumentException("Could not find intrinsic for " + callee + ":" + name);
     }
 
+    if (ShadowCallProfiler.ENABLED) {
+      String signature = callee.replace('.', '/') + "/" + name + type.toMethodDescriptorString();
+      mh = ShadowCallProfiler.countCalls(mh, signature, ShadowCallProfiler.Kind.INTERCEPTED);
+    }
+
     return new ConstantCallSite(mh.asType(type));
   }
 
@@ -92,14 +97,24 @@ public class InvokeDynamicSupport {
         RobolectricInternals.findShadowMethod(site.getCaller(), site.getName(), site.type(),
             site.isStatic());
 
+    ShadowCallProfiler.Kind kind;
     if (mh == null) {
       // Call original code and make sure to clean stack traces
       mh = cleanStackTraces(site.getOriginal());
+      kind = ShadowCallProfiler.Kind.REAL;
     } else if (mh == ShadowWrangler.DO_NOTHING) {
       mh = dropArguments(mh, 0, site.type().parameterList());
-    } else if (!site.isStatic()) {
-      Class<?> shadowType = mh.type().parameterType(0);
-      mh = filterArguments(mh, 0, GET_SHADOW.asType(methodType(shadowType, site.thisType())));
+      kind = ShadowCallProfiler.Kind.DO_NOTHING;
+    } else {
+      if (!site.isStatic()) {
+        Class<?> shadowType = mh.type().parameterType(0);
+        mh = filterArguments(mh, 0, GET_SHADOW.asType(methodType(shadowType, site.thisType())));
+      }
+      kind = ShadowCallProfiler.Kind.SHADOW;
+    }
+
+    if (ShadowCallProfiler.ENABLED) {
+      mh = ShadowCallProfiler.countCalls(mh, signatureOf(site), kind);
     }
 
     try {
@@ -113,6 +128,11 @@ public class InvokeDynamicSupport {
     }
   }
 
+  private static String signatureOf(MethodCallSite site) {
+    MethodType type = site.isStatic() ? site.type() : site.type().dropParameterTypes(0, 1);
+    return site.getCaller().getName().replace('.', '/') + "/" + site.getName() + type.toMethodDescriptorString();
+  }
+
   private static MethodHandle bindWithFallback(MethodHandle mh, RoboCallSite site, MethodHandle fallback) {
     SwitchPoint switchPoint = getInvalidator(site.getCaller());
     MethodType type = site.type();
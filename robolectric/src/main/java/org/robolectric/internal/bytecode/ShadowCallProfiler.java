@@ -0,0 +1,211 @@
+package org.robolectric.internal.bytecode;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Counts calls to instrumented methods by signature and by how they were dispatched, and prints the most
+ * frequently called methods when the JVM exits.
+ *
+ * <p>
+ * Profiling is off unless the property {@code robolectric.profileShadows} is {@code true}. When it is off,
+ * nothing is counted and invokedynamic call sites are bound exactly as before. Other properties:
+ * </p>
+ * <ul>
+ *   <li>{@code robolectric.profileShadows.sampleRate}: time one in this many shadow method calls (default
+ *   100, 0 to disable timing). Timing is only available without invokedynamic.</li>
+ *   <li>{@code robolectric.profileShadows.top}: number of methods to report (default 100).</li>
+ * </ul>
+ *
+ * <p>
+ * This class is shared by all class loaders, so it must never be acquired by an
+ * {@link InstrumentingClassLoader}.
+ * </p>
+ */
+public class ShadowCallProfiler {
+  public static final boolean ENABLED = Boolean.getBoolean("robolectric.profileShadows");
+  private static final int SAMPLE_RATE = Integer.getInteger("robolectric.profileShadows.sampleRate", 100);
+  private static final int TOP = Integer.getInteger("robolectric.profileShadows.top", 100);
+  private static final MethodHandle INCREMENT;
+
+  private static final ConcurrentMap<Key, Counter> counters = new ConcurrentHashMap<>();
+
+  static {
+    try {
+      INCREMENT = MethodHandles.lookup().findVirtual(Counter.class, "increment", methodType(void.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      throw new AssertionError(e);
+    }
+
+    if (ENABLED) {
+      Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+        @Override
+        public void run() {
+          report(System.out, TOP);
+        }
+      }));
+    }
+  }
+
+  /**
+   * How a call to an instrumented method was handled.
+   */
+  public enum Kind {
+    SHADOW,
+    REAL,
+    DO_NOTHING,
+    INTERCEPTED
+  }
+
+  /**
+   * @return The counter for a method and dispatch kind.
+   */
+  public static Counter counterFor(String signature, Kind kind) {
+    Key key = new Key(signature, kind);
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      Counter newCounter = new Counter(signature, kind);
+      counter = counters.putIfAbsent(key, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * @return A method handle that counts a call before invoking {@code target}.
+   */
+  public static MethodHandle countCalls(MethodHandle target, String signature, Kind kind) {
+    return MethodHandles.foldArguments(target, INCREMENT.bindTo(counterFor(signature, kind)));
+  }
+
+  /**
+   * @return True if the current call should be timed.
+   */
+  public static boolean shouldSample() {
+    return SAMPLE_RATE > 0 && ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+  }
+
+  /**
+   * Prints the most frequently called methods, most calls first.
+   *
+   * @param out Stream to print to.
+   * @param limit Maximum number of methods to print.
+   */
+  public static void report(PrintStream out, int limit) {
+    List<Counter> ranked = getRankedCounters();
+    out.println("Shadow call profile: " + ranked.size() + " methods");
+    out.println(String.format("%14s  %-11s  %12s  %s", "calls", "kind", "avg ns", "method"));
+    for (Counter counter : ranked.subList(0, Math.min(limit, ranked.size()))) {
+      long averageNanos = counter.getAverageSampledNanos();
+      out.println(String.format("%14d  %-11s  %12s  %s", counter.getCount(), counter.kind,
+          averageNanos < 0 ? "-" : Long.toString(averageNanos), counter.signature));
+    }
+  }
+
+  static List<Counter> getRankedCounters() {
+    List<Counter> ranked = new ArrayList<>(counters.values());
+    Collections.sort(ranked, new Comparator<Counter>() {
+      @Override
+      public int compare(Counter a, Counter b) {
+        return Long.compare(b.getCount(), a.getCount());
+      }
+    });
+    return ranked;
+  }
+
+  static void clear() {
+    counters.clear();
+  }
+
+  /**
+   * Call counter striped by thread, so that threads calling the same method don't contend on one value.
+   */
+  public static class Counter {
+    private static final int STRIPES = 8;
+    // Spread stripes a cache line apart.
+    private static final int PADDING = 8;
+
+    private final String signature;
+    private final Kind kind;
+    private final AtomicLongArray calls = new AtomicLongArray(STRIPES * PADDING);
+    private final AtomicLong sampledCalls = new AtomicLong();
+    private final AtomicLong sampledNanos = new AtomicLong();
+
+    Counter(String signature, Kind kind) {
+      this.signature = signature;
+      this.kind = kind;
+    }
+
+    public void increment() {
+      calls.incrementAndGet((int) (Thread.currentThread().getId() % STRIPES) * PADDING);
+    }
+
+    public void addSample(long nanos) {
+      sampledCalls.incrementAndGet();
+      sampledNanos.addAndGet(nanos);
+    }
+
+    public long getCount() {
+      long count = 0;
+      for (int i = 0; i < STRIPES; i++) {
+        count += calls.get(i * PADDING);
+      }
+      return count;
+    }
+
+    /**
+     * @return Average duration of the timed calls, or -1 if no calls were timed.
+     */
+    public long getAverageSampledNanos() {
+      long samples = sampledCalls.get();
+      return samples == 0 ? -1 : sampledNanos.get() / samples;
+    }
+
+    public String getSignature() {
+      return signature;
+    }
+
+    public Kind getKind() {
+      return kind;
+    }
+  }
+
+  private static class Key {
+    private final String signature;
+    private final Kind kind;
+
+    public Key(String signature, Kind kind) {
+      this.signature = signature;
+      this.kind = kind;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+
+      Key key = (Key) o;
+
+      return kind == key.kind && signature.equals(key.signature);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * signature.hashCode() + kind.hashCode();
+    }
+  }
+}
@@ -128,14 +128,26 @@ public class ShadowWrangler implements ClassHandler {
   @Override
   public Plan methodInvoked(String signature, boolean isStatic, Class<?> theClass) {
     Plan plan = planCache.get(signature);
-    if (plan != null) {
-      return plan;
+    if (plan == null) {
+      plan = calculatePlan(signature, isStatic, theClass);
+      planCache.put(signature, plan);
+    }
+    if (ShadowCallProfiler.ENABLED) {
+      ShadowCallProfiler.counterFor(signature, profilerKindFor(plan)).increment();
     }
-    plan = calculatePlan(signature, isStatic, theClass);
-    planCache.put(signature, plan);
     return plan;
   }
 
+  private static ShadowCallProfiler.Kind profilerKindFor(Plan plan) {
+    if (plan == CALL_REAL_CODE_PLAN) {
+      return ShadowCallProfiler.Kind.REAL;
+    } else if (plan == DO_NOTHING_PLAN) {
+      return ShadowCallProfiler.Kind.DO_NOTHING;
+    } else {
+      return ShadowCallProfiler.Kind.SHADOW;
+    }
+  }
+
   @Override public MethodHandle findShadowMethod(Class<?> caller, String name, MethodType type,
       boolean isStatic) throws IllegalAccessException {
     ShadowConfig shadowConfig = shadowConfigs.get(caller);
@@ -196,7 +208,7 @@ public class ShadowWrangler implements ClassHandler {
         if (shadowClassMismatch && (!shadowConfig.inheritImplementationMethods || strict(invocationProfile))) {
           return CALL_REAL_CODE_PLAN;
         } else {
-          return new ShadowMethodPlan(shadowMethod);
+          return new ShadowMethodPlan(shadowMethod, signature);
         }
       } catch (ClassNotFoundException e) {
         throw new RuntimeException(e);
@@ -270,6 +282,9 @@ public class ShadowWrangler implements ClassHandler {
 
   @Override
   public Object intercept(String signature, Object instance, Object[] params, Class theClass) throws Throwable {
+    if (ShadowCallProfiler.ENABLED) {
+      ShadowCallProfiler.counterFor(signature, ShadowCallProfiler.Kind.INTERCEPTED).increment();
+    }
     final MethodSignature methodSignature = MethodSignature.parse(signature);
     return getInterceptionHandler(methodSignature).call(theClass, instance, params);
   }
@@ -508,13 +523,27 @@ public class ShadowWrangler implements ClassHandler {
 
   private static class ShadowMethodPlan implements Plan {
     private final Method shadowMethod;
+    private final ShadowCallProfiler.Counter profilerCounter;
 
-    public ShadowMethodPlan(Method shadowMethod) {
+    public ShadowMethodPlan(Method shadowMethod, String signature) {
       this.shadowMethod = shadowMethod;
+      this.profilerCounter = ShadowCallProfiler.ENABLED ? ShadowCallProfiler.counterFor(signature, ShadowCallProfiler.Kind.SHADOW) : null;
     }
 
     @Override
     public Object run(Object instance, Object roboData, Object[] params) throws Throwable {
+      if (profilerCounter != null && ShadowCallProfiler.shouldSample()) {
+        long start = System.nanoTime();
+        try {
+          return invokeShadowMethod(roboData, params);
+        } finally {
+          profilerCounter.addSample(System.nanoTime() - start);
+        }
+      }
+      return invokeShadowMethod(roboData, params);
+    }
+
+    private Object invokeShadowMethod(Object roboData, Object[] params) throws Throwable {
       //noinspection UnnecessaryLocalVariable
       Object shadow = roboData;
       try {
@@ -0,0 +1,241 @@
+package org.robolectric.internal.metrics;
+
+import org.robolectric.util.Logger;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Aggregates the metrics of tests per class and for the whole suite as they finish, and writes them as JSON
+ * or CSV along with the slowest 1% of tests. Only the slowest tests are kept, not the metrics of every test.
+ */
+public class MetricsReporter implements RunnerMetricsListener {
+  private static final Comparator<TestMetrics> SLOWEST_TEST_FIRST = new Comparator<TestMetrics>() {
+    @Override
+    public int compare(TestMetrics a, TestMetrics b) {
+      return Long.compare(b.getTotalNanos(), a.getTotalNanos());
+    }
+  };
+
+  private static final Comparator<Aggregate> SLOWEST_CLASS_FIRST = new Comparator<Aggregate>() {
+    @Override
+    public int compare(Aggregate a, Aggregate b) {
+      return Long.compare(b.totalNanos, a.totalNanos);
+    }
+  };
+
+  private final Aggregate suite = new Aggregate("suite");
+  private final Map<String, Aggregate> byClass = new LinkedHashMap<>();
+  /** Slowest tests so far, fastest of them first. */
+  private final PriorityQueue<TestMetrics> slowest = new PriorityQueue<>(11, Collections.reverseOrder(SLOWEST_TEST_FIRST));
+
+  @Override
+  public synchronized void testFinished(TestMetrics metrics) {
+    suite.add(metrics);
+    Aggregate aggregate = byClass.get(metrics.getClassName());
+    if (aggregate == null) {
+      aggregate = new Aggregate(metrics.getClassName());
+      byClass.put(metrics.getClassName(), aggregate);
+    }
+    aggregate.add(metrics);
+
+    if (slowest.size() < Math.max(1, suite.tests / 100)) {
+      slowest.add(metrics);
+    } else if (SLOWEST_TEST_FIRST.compare(metrics, slowest.peek()) < 0) {
+      slowest.poll();
+      slowest.add(metrics);
+    }
+  }
+
+  @Override
+  public void classFinished(Class<?> testClass) {
+  }
+
+  /**
+   * Writes the report to {@code file} when the JVM exits.
+   *
+   * @param file Report file. Written as CSV if its name ends with {@code .csv}, as JSON otherwise.
+   */
+  public void writeOnExit(final File file) {
+    Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+      @Override
+      public void run() {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+          Logger.error("Couldn't create %s for the metrics report", parent);
+          return;
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+          if (file.getName().endsWith(".csv")) {
+            writeCsv(writer);
+          } else {
+            writeJson(writer);
+          }
+        } catch (IOException e) {
+          Logger.error("Couldn't write metrics report to %s: %s", file, e);
+        }
+      }
+    }));
+  }
+
+  public synchronized void writeJson(Writer writer) {
+    PrintWriter out = new PrintWriter(writer);
+    List<Aggregate> classes = aggregateByClass();
+
+    out.println("{");
+    out.print("  \"suite\": ");
+    writeJson(out, suite);
+    out.println(",");
+
+    out.println("  \"slowestTests\": [");
+    writeJsonTests(out, slowestTests());
+    out.println("  ],");
+
+    out.println("  \"classes\": [");
+    for (int i = 0; i < classes.size(); i++) {
+      out.print("    ");
+      writeJson(out, classes.get(i));
+      out.println(i < classes.size() - 1 ? "," : "");
+    }
+    out.println("  ]");
+    out.println("}");
+    out.flush();
+  }
+
+  public synchronized void writeCsv(Writer writer) {
+    PrintWriter out = new PrintWriter(writer);
+    out.print("scope,class,method,tests,totalNanos");
+    for (TestMetrics.Phase phase : TestMetrics.PHASES) {
+      out.print("," + phase.name());
+    }
+    out.println(",classesInstrumented,resourceFilesParsed,resettersInvoked");
+
+    writeCsv(out, "suite", suite);
+    for (Aggregate aggregate : aggregateByClass()) {
+      writeCsv(out, "class", aggregate);
+    }
+    for (TestMetrics test : slowestTests()) {
+      out.print("test," + csvQuote(test.getClassName()) + "," + csvQuote(test.getMethodName()) + ",1," + test.getTotalNanos());
+      for (TestMetrics.Phase phase : TestMetrics.PHASES) {
+        out.print("," + test.getPhaseNanos(phase));
+      }
+      out.println("," + test.getClassesInstrumented() + "," + test.getResourceFilesParsed() + "," + test.getResettersInvoked());
+    }
+    out.flush();
+  }
+
+  /**
+   * @return The slowest 1% of tests, slowest first, and always at least one if any tests have run. Tests are
+   *     picked as they finish, so when the count grows by one, the next test to finish takes the new place.
+   */
+  synchronized List<TestMetrics> slowestTests() {
+    List<TestMetrics> sorted = new ArrayList<>(slowest);
+    Collections.sort(sorted, SLOWEST_TEST_FIRST);
+    return sorted;
+  }
+
+  private List<Aggregate> aggregateByClass() {
+    List<Aggregate> classes = new ArrayList<>(byClass.values());
+    Collections.sort(classes, SLOWEST_CLASS_FIRST);
+    return classes;
+  }
+
+  private static void writeJson(PrintWriter out, Aggregate aggregate) {
+    out.print("{\"name\": " + jsonQuote(aggregate.name) + ", \"tests\": " + aggregate.tests
+        + ", \"totalNanos\": " + aggregate.totalNanos + ", \"phaseNanos\": ");
+    writeJsonPhases(out, aggregate.phaseNanos);
+    out.print(", \"classesInstrumented\": " + aggregate.classesInstrumented
+        + ", \"resourceFilesParsed\": " + aggregate.resourceFilesParsed
+        + ", \"resettersInvoked\": " + aggregate.resettersInvoked + "}");
+  }
+
+  private static void writeJsonTests(PrintWriter out, List<TestMetrics> tests) {
+    for (int i = 0; i < tests.size(); i++) {
+      TestMetrics test = tests.get(i);
+      long[] phaseNanos = new long[TestMetrics.PHASES.length];
+      for (TestMetrics.Phase phase : TestMetrics.PHASES) {
+        phaseNanos[phase.ordinal()] = test.getPhaseNanos(phase);
+      }
+      out.print("    {\"class\": " + jsonQuote(test.getClassName()) + ", \"method\": " + jsonQuote(test.getMethodName())
+          + ", \"totalNanos\": " + test.getTotalNanos() + ", \"phaseNanos\": ");
+      writeJsonPhases(out, phaseNanos);
+      out.print(", \"classesInstrumented\": " + test.getClassesInstrumented()
+          + ", \"resourceFilesParsed\": " + test.getResourceFilesParsed()
+          + ", \"resettersInvoked\": " + test.getResettersInvoked() + "}");
+      out.println(i < tests.size() - 1 ? "," : "");
+    }
+  }
+
+  private static void writeJsonPhases(PrintWriter out, long[] phaseNanos) {
+    out.print("{");
+    for (TestMetrics.Phase phase : TestMetrics.PHASES) {
+      out.print((phase.ordinal() > 0 ? ", " : "") + "\"" + phase.name() + "\": " + phaseNanos[phase.ordinal()]);
+    }
+    out.print("}");
+  }
+
+  private static void writeCsv(PrintWriter out, String scope, Aggregate aggregate) {
+    String className = "suite".equals(scope) ? "" : csvQuote(aggregate.name);
+    out.print(scope + "," + className + ",," + aggregate.tests + "," + aggregate.totalNanos);
+    for (long nanos : aggregate.phaseNanos) {
+      out.print("," + nanos);
+    }
+    out.println("," + aggregate.classesInstrumented + "," + aggregate.resourceFilesParsed + "," + aggregate.resettersInvoked);
+  }
+
+  private static String csvQuote(String value) {
+    return "\"" + value.replace("\"", "\"\"") + "\"";
+  }
+
+  private static String jsonQuote(String value) {
+    StringBuilder builder = new StringBuilder("\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        builder.append('\\').append(c);
+      } else if (c < 0x20) {
+        builder.append(String.format("\\u%04x", (int) c));
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"').toString();
+  }
+
+  private static class Aggregate {
+    private final String name;
+    private final long[] phaseNanos = new long[TestMetrics.PHASES.length];
+    private int tests;
+    private long totalNanos;
+    private long classesInstrumented;
+    private long resourceFilesParsed;
+    private long resettersInvoked;
+
+    public Aggregate(String name) {
+      this.name = name;
+    }
+
+    public void add(TestMetrics test) {
+      tests++;
+      totalNanos += test.getTotalNanos();
+      for (TestMetrics.Phase phase : TestMetrics.PHASES) {
+        phaseNanos[phase.ordinal()] += test.getPhaseNanos(phase);
+      }
+      classesInstrumented += test.getClassesInstrumented();
+      resourceFilesParsed += test.getResourceFilesParsed();
+      resettersInvoked += test.getResettersInvoked();
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.robolectric.internal.metrics;
+
+import org.robolectric.util.Logger;
+
+import java.io.File;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Dispatches {@link TestMetrics} to the registered {@link RunnerMetricsListener}s.
+ *
+ * <p>
+ * Listeners are loaded with {@link ServiceLoader}. In addition, a report of the suite, its classes and its slowest tests can be written when
+ * the JVM exits by setting the property: {@code robolectric.metrics.reportFile = path/to/report.json}.
+ * The report is written as CSV if the file name ends with {@code .csv}, and as JSON otherwise.
+ * </p>
+ */
+public class RunnerMetrics {
+  private static final String REPORT_FILE = "robolectric.metrics.reportFile";
+  private static final List<RunnerMetricsListener> listeners = new CopyOnWriteArrayList<>();
+
+  static {
+    for (RunnerMetricsListener listener : ServiceLoader.load(RunnerMetricsListener.class, RunnerMetrics.class.getClassLoader())) {
+      listeners.add(listener);
+    }
+
+    String reportFile = System.getProperty(REPORT_FILE);
+    if (reportFile != null) {
+      MetricsReporter reporter = new MetricsReporter();
+      reporter.writeOnExit(new File(reportFile));
+      listeners.add(reporter);
+    }
+  }
+
+  /**
+   * @return True if anybody is listening for metrics.
+   */
+  public static boolean isEnabled() {
+    return !listeners.isEmpty();
+  }
+
+  public static void addListener(RunnerMetricsListener listener) {
+    listeners.add(listener);
+  }
+
+  public static void removeListener(RunnerMetricsListener listener) {
+    listeners.remove(listener);
+  }
+
+  public static void testFinished(TestMetrics metrics) {
+    for (RunnerMetricsListener listener : listeners) {
+      try {
+        listener.testFinished(metrics);
+      } catch (RuntimeException e) {
+        Logger.error("Metrics listener %s failed: %s", listener, e);
+      }
+    }
+  }
+
+  public static void classFinished(Class<?> testClass) {
+    for (RunnerMetricsListener listener : listeners) {
+      try {
+        listener.classFinished(testClass);
+      } catch (RuntimeException e) {
+        Logger.error("Metrics listener %s failed: %s", listener, e);
+      }
+    }
+  }
+}
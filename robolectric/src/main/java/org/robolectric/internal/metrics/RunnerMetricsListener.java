@@ -0,0 +1,27 @@
+package org.robolectric.internal.metrics;
+
+/**
+ * Receives timings and counts for each test run by {@link org.robolectric.RobolectricTestRunner}.
+ *
+ * <p>
+ * Implementations are found with {@link java.util.ServiceLoader}, by listing their class names in
+ * {@code META-INF/services/org.robolectric.internal.metrics.RunnerMetricsListener}. Listeners are called on
+ * the thread that ran the test, after it has finished, and must be thread-safe.
+ * </p>
+ */
+public interface RunnerMetricsListener {
+
+  /**
+   * Called after each test has finished, whether or not it passed.
+   *
+   * @param metrics Timings and counts for the test.
+   */
+  void testFinished(TestMetrics metrics);
+
+  /**
+   * Called after every test in a class has finished.
+   *
+   * @param testClass Test class.
+   */
+  void classFinished(Class<?> testClass);
+}
@@ -0,0 +1,102 @@
+package org.robolectric.internal.metrics;
+
+/**
+ * Timings and counts for a single test. Counts only include work done on the thread that ran the test.
+ */
+public class TestMetrics {
+
+  /**
+   * The phases {@link org.robolectric.RobolectricTestRunner} goes through to run a test, in order.
+   */
+  public enum Phase {
+    APP_MANIFEST,
+    SDK_ENVIRONMENT,
+    CONFIGURE_SHADOWS,
+    RESET_STATIC_STATE,
+    SYSTEM_RESOURCE_LOADER,
+    SET_UP_APPLICATION_STATE,
+    TEST_BODY,
+    TEAR_DOWN_APPLICATION,
+    FINAL_RESET_STATIC_STATE
+  }
+
+  static final Phase[] PHASES = Phase.values();
+
+  private final String className;
+  private final String methodName;
+  private final long[] phaseNanos = new long[PHASES.length];
+  private long classesInstrumented;
+  private long resourceFilesParsed;
+  private long resettersInvoked;
+
+  public TestMetrics(String className, String methodName) {
+    this.className = className;
+    this.methodName = methodName;
+  }
+
+  /**
+   * Adds the time since {@code startNanos} to a phase.
+   *
+   * @param phase Phase that has just finished.
+   * @param startNanos Value of {@link System#nanoTime()} when the phase started.
+   */
+  public void recordPhase(Phase phase, long startNanos) {
+    addPhaseNanos(phase, System.nanoTime() - startNanos);
+  }
+
+  public void addPhaseNanos(Phase phase, long nanos) {
+    phaseNanos[phase.ordinal()] += nanos;
+  }
+
+  public void addClassesInstrumented(long count) {
+    classesInstrumented += count;
+  }
+
+  public void addResourceFilesParsed(long count) {
+    resourceFilesParsed += count;
+  }
+
+  public void addResettersInvoked(long count) {
+    resettersInvoked += count;
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
+  public String getMethodName() {
+    return methodName;
+  }
+
+  public long getPhaseNanos(Phase phase) {
+    return phaseNanos[phase.ordinal()];
+  }
+
+  /**
+   * @return Sum of the time spent in every phase, in nanoseconds.
+   */
+  public long getTotalNanos() {
+    long total = 0;
+    for (long nanos : phaseNanos) {
+      total += nanos;
+    }
+    return total;
+  }
+
+  public long getClassesInstrumented() {
+    return classesInstrumented;
+  }
+
+  public long getResourceFilesParsed() {
+    return resourceFilesParsed;
+  }
+
+  public long getResettersInvoked() {
+    return resettersInvoked;
+  }
+
+  @Override
+  public String toString() {
+    return className + "#" + methodName + " (" + getTotalNanos() / 1000000 + "ms)";
+  }
+}
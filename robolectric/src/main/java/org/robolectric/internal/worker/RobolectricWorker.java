@@ -0,0 +1,234 @@
+package org.robolectric.internal.worker;
+
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.robolectric.util.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A long-lived JVM that runs test classes for {@link org.robolectric.RemoteRobolectricTestRunner}s, so that
+ * SDK environments, parsed resources and JIT-compiled code are reused from one test run to the next.
+ *
+ * <p>Start it with the test class path and, optionally, a port:</p>
+ *
+ * <pre>
+ * java -cp &lt;test class path&gt; org.robolectric.internal.worker.RobolectricWorker 7911
+ * </pre>
+ *
+ * <p>and run tests with {@code -Drobolectric.worker.port=7911}. The worker only listens on the loopback
+ * interface, and runs one test class at a time. Static state in the sandbox is reset before each test as usual.
+ * Output written by tests goes to the worker's console.</p>
+ *
+ * <p>Classes the worker has loaded can't be reloaded, so each request carries a hash of the client's class path
+ * and the files on it. A client with a different class path is turned away and runs its tests itself. If the
+ * files on the worker's own class path have changed since it started, the worker turns the client away and
+ * exits, so that it can be restarted with the new classes.</p>
+ *
+ * <p>Parsed resources are kept too, so the client also sends the paths of the manifests and the resource and
+ * asset directories its tests use. The worker hashes each of them the first time it is used, and if a later
+ * client finds one changed, the worker turns the client away and exits in the same way.</p>
+ */
+public class RobolectricWorker {
+  private static final int REQUEST_TIMEOUT_MILLIS = 10000;
+
+  private final ServerSocket serverSocket;
+  private final String classPath;
+  private final String classPathHash;
+  private final Map<String, String> resourceHashesByPath = new HashMap<>();
+
+  public RobolectricWorker(int port) throws IOException {
+    this(port, System.getProperty("java.class.path"));
+  }
+
+  RobolectricWorker(int port, String classPath) throws IOException {
+    this.serverSocket = new ServerSocket(port, 1, InetAddress.getByName(null));
+    this.classPath = classPath;
+    this.classPathHash = WorkerProtocol.classPathHash(classPath);
+  }
+
+  public static void main(String[] args) throws IOException {
+    RobolectricWorker worker = new RobolectricWorker(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+    System.out.println("Robolectric worker listening on port " + worker.getPort());
+    worker.serve();
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Runs test classes for clients, one connection at a time, until the class path goes stale or the worker
+   * is closed.
+   */
+  public void serve() throws IOException {
+    try {
+      while (!serverSocket.isClosed()) {
+        Socket socket;
+        try {
+          socket = serverSocket.accept();
+        } catch (IOException e) {
+          if (serverSocket.isClosed()) {
+            return;
+          }
+          throw e;
+        }
+
+        try {
+          // A client that doesn't finish its request mustn't hold up the others.
+          socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+          if (!handle(socket)) {
+            return;
+          }
+        } catch (IOException e) {
+          Logger.error("Lost connection to Robolectric worker client: " + e);
+        } finally {
+          socket.close();
+        }
+      }
+    } finally {
+      close();
+    }
+  }
+
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  /**
+   * @return False if the worker's class path is stale and it should stop.
+   */
+  private boolean handle(Socket socket) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+    int version = in.readInt();
+    if (version != WorkerProtocol.VERSION) {
+      reply(out, WorkerProtocol.STATUS_ERROR, "Unsupported worker protocol version " + version);
+      return true;
+    }
+    String clientClassPathHash = WorkerProtocol.readString(in);
+    List<String> resourcePaths = WorkerProtocol.readStrings(in);
+    String runnerClassName = WorkerProtocol.readString(in);
+    String testClassName = WorkerProtocol.readString(in);
+
+    if (!clientClassPathHash.equals(classPathHash)) {
+      boolean stale = !WorkerProtocol.classPathHash(classPath).equals(classPathHash);
+      reply(out, WorkerProtocol.STATUS_STALE, stale ? "Worker class path has changed" : "Class path doesn't match the worker's");
+      return !stale;
+    }
+    String changedPath = findChangedResource(resourcePaths);
+    if (changedPath != null) {
+      reply(out, WorkerProtocol.STATUS_STALE, "Resources have changed since the worker parsed them: " + changedPath);
+      return false;
+    }
+
+    Runner runner;
+    try {
+      Class<?> testClass = Class.forName(testClassName);
+      runner = (Runner) Class.forName(runnerClassName).getConstructor(Class.class).newInstance(testClass);
+    } catch (Exception e) {
+      reply(out, WorkerProtocol.STATUS_ERROR, "Couldn't create " + runnerClassName + " for " + testClassName + ": " + e);
+      return true;
+    }
+
+    out.writeByte(WorkerProtocol.STATUS_OK);
+    out.flush();
+
+    RunNotifier notifier = new RunNotifier();
+    notifier.addListener(new ForwardingListener(out));
+    runner.run(notifier);
+    out.writeByte(WorkerProtocol.EVENT_DONE);
+    out.flush();
+    return true;
+  }
+
+  /**
+   * @return The first path whose files have changed since a test first used it, or null if none has.
+   */
+  private String findChangedResource(List<String> resourcePaths) {
+    for (String path : resourcePaths) {
+      String hash = WorkerProtocol.hash(Collections.singletonList(new File(path)));
+      String previousHash = resourceHashesByPath.get(path);
+      if (previousHash == null) {
+        resourceHashesByPath.put(path, hash);
+      } else if (!previousHash.equals(hash)) {
+        return path;
+      }
+    }
+    return null;
+  }
+
+  private static void reply(DataOutputStream out, byte status, String message) throws IOException {
+    out.writeByte(status);
+    WorkerProtocol.writeString(out, message);
+    out.flush();
+  }
+
+  /**
+   * Sends test events to the client. Events are flushed as they happen, so the client reports progress live.
+   */
+  private static class ForwardingListener extends RunListener {
+    private final DataOutputStream out;
+
+    ForwardingListener(DataOutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void testStarted(Description description) throws IOException {
+      send(WorkerProtocol.EVENT_STARTED, description);
+      out.flush();
+    }
+
+    @Override
+    public void testFinished(Description description) throws IOException {
+      send(WorkerProtocol.EVENT_FINISHED, description);
+      out.flush();
+    }
+
+    @Override
+    public void testFailure(Failure failure) throws IOException {
+      send(WorkerProtocol.EVENT_FAILURE, failure.getDescription());
+      WorkerProtocol.writeThrowable(out, failure.getException());
+      out.flush();
+    }
+
+    @Override
+    public void testAssumptionFailure(Failure failure) {
+      try {
+        send(WorkerProtocol.EVENT_ASSUMPTION_FAILURE, failure.getDescription());
+        WorkerProtocol.writeThrowable(out, failure.getException());
+        out.flush();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    @Override
+    public void testIgnored(Description description) throws IOException {
+      send(WorkerProtocol.EVENT_IGNORED, description);
+      out.flush();
+    }
+
+    private void send(byte event, Description description) throws IOException {
+      out.writeByte(event);
+      WorkerProtocol.writeString(out, description.getDisplayName());
+    }
+  }
+}
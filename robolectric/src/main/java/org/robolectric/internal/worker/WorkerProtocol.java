@@ -0,0 +1,199 @@
+package org.robolectric.internal.worker;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Messages exchanged between a {@link org.robolectric.RemoteRobolectricTestRunner} and a {@link RobolectricWorker}.
+ *
+ * <p>The client sends a {@link #VERSION}, the hash of its class path, the paths of the manifests and the resource
+ * and asset directories the tests use, the name of the runner to use and the name of the test class. The worker
+ * answers with a status and, if it can run the class, runs it straight away, streaming test events that each name
+ * their description, and finishes with {@link #EVENT_DONE}. The client sends its request only when it runs the
+ * class, so the connection is never held open while the client waits for JUnit.</p>
+ */
+public class WorkerProtocol {
+  public static final int VERSION = 3;
+
+  public static final byte STATUS_OK = 0;
+  public static final byte STATUS_STALE = 1;
+  public static final byte STATUS_ERROR = 2;
+
+  public static final byte EVENT_STARTED = 1;
+  public static final byte EVENT_FINISHED = 2;
+  public static final byte EVENT_FAILURE = 3;
+  public static final byte EVENT_ASSUMPTION_FAILURE = 4;
+  public static final byte EVENT_IGNORED = 5;
+  public static final byte EVENT_DONE = 6;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+  private static final int MAX_COUNT = 1024 * 1024;
+
+  /**
+   * Hashes the entries of a class path along with the size and modification time of every file they contain, so
+   * that a worker notices when classes it has already loaded were recompiled.
+   *
+   * @param classPath Class path, separated by {@link File#pathSeparator}.
+   * @return Hex-encoded SHA-1 of the class path and its files.
+   */
+  public static String classPathHash(String classPath) {
+    List<File> entries = new ArrayList<>();
+    for (String entry : classPath.split(File.pathSeparator)) {
+      if (!entry.isEmpty()) {
+        entries.add(new File(entry));
+      }
+    }
+    return hash(entries);
+  }
+
+  /**
+   * Hashes files and directories along with the size and modification time of every file they contain.
+   *
+   * @return Hex-encoded SHA-1 of the files.
+   */
+  public static String hash(Collection<File> files) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+    for (File file : files) {
+      hashFile(digest, file);
+    }
+
+    StringBuilder hex = new StringBuilder();
+    for (byte b : digest.digest()) {
+      hex.append(String.format("%02x", b));
+    }
+    return hex.toString();
+  }
+
+  private static void hashFile(MessageDigest digest, File file) {
+    digest.update(file.getAbsolutePath().getBytes(UTF_8));
+    if (file.isDirectory()) {
+      String[] names = file.list();
+      if (names != null) {
+        Arrays.sort(names);
+        for (String name : names) {
+          hashFile(digest, new File(file, name));
+        }
+      }
+    } else {
+      digest.update((file.length() + ":" + file.lastModified() + ";").getBytes(UTF_8));
+    }
+  }
+
+  /**
+   * Strings are written as a length and UTF-8 bytes, since stack traces can be longer than
+   * {@link DataOutputStream#writeUTF(String)} allows.
+   */
+  public static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = (value == null ? "" : value).getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  public static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[readLength(in, MAX_STRING_LENGTH)];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  public static void writeStrings(DataOutputStream out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  public static List<String> readStrings(DataInputStream in) throws IOException {
+    int count = readLength(in, MAX_COUNT);
+    List<String> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      values.add(readString(in));
+    }
+    return values;
+  }
+
+  /**
+   * Reads a length, so that a corrupt or hostile stream can't make the reader allocate an arbitrary amount.
+   */
+  private static int readLength(DataInputStream in, int max) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > max) {
+      throw new IOException("Invalid length " + length + ", expected at most " + max);
+    }
+    return length;
+  }
+
+  public static void writeThrowable(DataOutputStream out, Throwable throwable) throws IOException {
+    writeString(out, throwable.getClass().getName());
+    writeString(out, throwable.getMessage());
+    StackTraceElement[] stackTrace = throwable.getStackTrace();
+    out.writeInt(stackTrace.length);
+    for (StackTraceElement element : stackTrace) {
+      writeString(out, element.getClassName());
+      writeString(out, element.getMethodName());
+      writeString(out, element.getFileName());
+      out.writeInt(element.getLineNumber());
+    }
+    out.writeBoolean(throwable.getCause() != null && throwable.getCause() != throwable);
+    if (throwable.getCause() != null && throwable.getCause() != throwable) {
+      writeThrowable(out, throwable.getCause());
+    }
+  }
+
+  /**
+   * Reads a throwable written by {@link #writeThrowable(DataOutputStream, Throwable)}. Its class may not be
+   * loadable outside the worker's sandbox, so it is rebuilt as a {@link RemoteException}.
+   */
+  public static RemoteException readThrowable(DataInputStream in) throws IOException {
+    String className = readString(in);
+    String message = readString(in);
+    StackTraceElement[] stackTrace = new StackTraceElement[readLength(in, MAX_COUNT)];
+    for (int i = 0; i < stackTrace.length; i++) {
+      String declaringClass = readString(in);
+      String methodName = readString(in);
+      String fileName = readString(in);
+      int lineNumber = in.readInt();
+      stackTrace[i] = new StackTraceElement(declaringClass, methodName, fileName.isEmpty() ? null : fileName, lineNumber);
+    }
+    RemoteException cause = in.readBoolean() ? readThrowable(in) : null;
+
+    RemoteException exception = new RemoteException(className, message.isEmpty() ? null : message, cause);
+    exception.setStackTrace(stackTrace);
+    return exception;
+  }
+
+  /**
+   * An exception thrown in a worker, reported with the class name and stack trace of the original.
+   */
+  public static class RemoteException extends Exception {
+    private final String className;
+
+    public RemoteException(String className, String message, Throwable cause) {
+      super(message, cause);
+      this.className = className;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    @Override
+    public String toString() {
+      return getMessage() == null ? className : className + ": " + getMessage();
+    }
+  }
+}
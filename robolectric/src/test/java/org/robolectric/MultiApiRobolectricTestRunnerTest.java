@@ -2,17 +2,23 @@ package org.robolectric;
 
 import android.os.Build;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.Description;
 import org.junit.runner.RunWith;
 import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
 import org.junit.runner.notification.RunListener;
 import org.junit.runner.notification.RunNotifier;
 import org.junit.runners.JUnit4;
+import org.junit.runners.model.InitializationError;
 import org.robolectric.annotation.Config;
 import org.robolectric.internal.SdkConfig;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -30,6 +36,11 @@ public class MultiApiRobolectricTestRunnerTest {
     numSupportedApis = SdkConfig.getSupportedApis().size();
   }
 
+  @After
+  public void tearDown() {
+    System.clearProperty("robolectric.multiApi.threads");
+  }
+
   @Test
   public void createChildrenForEachSupportedApi() throws Throwable {
     MultiApiRobolectricTestRunner runner = new MultiApiRobolectricTestRunner(TestWithNoConfig.class);
@@ -86,6 +97,56 @@ public class MultiApiRobolectricTestRunnerTest {
     verify(runListener, times(5)).testFinished(any(Description.class));
   }
 
+  @Test
+  public void parallelApiVersions_shouldReportEachTestBetweenItsStartAndFinish() throws Throwable {
+    System.setProperty("robolectric.multiApi.threads", "2");
+    MultiApiRobolectricTestRunner runner = new MultiApiRobolectricTestRunner(TestWithMethodConfig.class);
+
+    final List<String> events = new ArrayList<>();
+    RunNotifier runNotifier = new RunNotifier();
+    runNotifier.addListener(new RunListener() {
+      @Override
+      public void testStarted(Description description) {
+        events.add("started " + description.getDisplayName());
+      }
+
+      @Override
+      public void testFinished(Description description) {
+        events.add("finished " + description.getDisplayName());
+      }
+    });
+    runner.run(runNotifier);
+
+    assertThat(events).hasSize(10);
+    for (int i = 0; i < events.size(); i += 2) {
+      assertThat(events.get(i)).startsWith("started ");
+      assertThat(events.get(i + 1)).isEqualTo("finished " + events.get(i).substring("started ".length()));
+    }
+  }
+
+  @Test
+  public void parallelApiVersions_shouldReportApiVersionsThatFailToRun() throws Throwable {
+    System.setProperty("robolectric.multiApi.threads", "2");
+    MultiApiRobolectricTestRunner runner = new MultiApiRobolectricTestRunner(TestWithNoConfig.class) {
+      @Override
+      protected TestRunnerForApiVersion createTestRunner(Integer integer) throws InitializationError {
+        return new TestRunnerForApiVersion(getTestClass().getJavaClass(), integer) {
+          @Override
+          public void run(RunNotifier notifier) {
+            throw new IllegalStateException("can't run");
+          }
+        };
+      }
+    };
+
+    RunNotifier runNotifier = new RunNotifier();
+    RunListener runListener = mock(RunListener.class);
+    runNotifier.addListener(runListener);
+    runner.run(runNotifier);
+
+    verify(runListener, times(numSupportedApis)).testFailure(any(Failure.class));
+  }
+
   @RunWith(MultiApiRobolectricTestRunner.class)
   public class TestWithNoConfig {
 
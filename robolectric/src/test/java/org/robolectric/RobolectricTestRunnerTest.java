@@ -4,8 +4,10 @@ import android.app.Application;
 
 import org.junit.Ignore;
 import org.junit.Test;
+import org.junit.runners.model.FrameworkMethod;
 import org.junit.runners.model.InitializationError;
 import org.robolectric.annotation.Config;
+import org.robolectric.internal.SdkConfig;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.res.PackageResourceLoader;
 import org.robolectric.res.ResourceIndex;
@@ -17,10 +19,13 @@ import org.robolectric.shadows.ShadowViewGroup;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 public class RobolectricTestRunnerTest {
   @Test
@@ -120,6 +125,54 @@ public class RobolectricTestRunnerTest {
     assertConfig(configFor(Test2.class, "withoutAnnotation", properties), new int[0],  "--default", Application.class, "", "", "res", "assets", new Class[] {}, new String[]{}, new String[]{}, null);
   }
 
+  @Test
+  public void getChildren_shouldGroupTestsWithTheSameConfig() throws Exception {
+    List<String> names = new ArrayList<>();
+    for (FrameworkMethod child : new RobolectricTestRunner(TestWithMixedConfigs.class).getChildren()) {
+      names.add(child.getName());
+    }
+
+    assertThat(names).hasSize(5);
+    assertContiguous(names, "sdk16a", "sdk16b");
+    assertContiguous(names, "sdk18a", "sdk18b");
+  }
+
+  @Test
+  public void getAppResourceLoader_shouldNotReuseLoadersBuiltOnOtherSystemResources() throws Exception {
+    RobolectricTestRunner runner = new RobolectricTestRunner(Test2.class) {
+      @Override
+      protected ResourceLoader createAppResourceLoader(ResourceLoader systemResourceLoader, AndroidManifest appManifest) {
+        return mock(ResourceLoader.class);
+      }
+    };
+    AndroidManifest appManifest = mock(AndroidManifest.class);
+    SdkConfig sdkConfig = new SdkConfig(18);
+    ResourceLoader systemResourceLoader = mock(ResourceLoader.class);
+
+    ResourceLoader appResourceLoader = runner.getAppResourceLoader(sdkConfig, systemResourceLoader, appManifest);
+
+    assertThat(runner.getAppResourceLoader(sdkConfig, systemResourceLoader, appManifest)).isSameAs(appResourceLoader);
+    assertThat(runner.getAppResourceLoader(sdkConfig, mock(ResourceLoader.class), appManifest)).isNotSameAs(appResourceLoader);
+  }
+
+  @Test
+  public void getConfig_shouldReadConfigPropertiesOnce() throws Exception {
+    final int[] reads = new int[1];
+    final Properties properties = properties("sdk: 18");
+    RobolectricTestRunner runner = new RobolectricTestRunner(TestWithMixedConfigs.class) {
+      @Override
+      protected Properties getConfigProperties() {
+        reads[0]++;
+        return properties;
+      }
+    };
+
+    runner.getChildren();
+    runner.getConfig(Test2.class.getMethod("withoutAnnotation"));
+
+    assertThat(reads[0]).isEqualTo(1);
+  }
+
   @Test
   public void rememberThatSomeTestRunnerMethodsShouldBeOverridable() throws Exception {
     @SuppressWarnings("unused")
@@ -164,6 +217,10 @@ public class RobolectricTestRunnerTest {
     return new RobolectricTestRunner(testClass).getConfig(info);
   }
 
+  private void assertContiguous(List<String> names, String first, String second) {
+    assertThat(Math.abs(names.indexOf(first) - names.indexOf(second))).isEqualTo(1);
+  }
+
   private void assertConfig(Config config, int[] sdk, String manifest, Class<? extends Application> application, String packageName, String qualifiers, String resourceDir, String assetsDir, Class<?>[] shadows, String[] instrumentedPackages, String[] libraries, Class<?> constants) {
     assertThat(stringify(config)).isEqualTo(stringify(sdk, manifest, application, packageName, qualifiers, resourceDir, assetsDir, shadows, instrumentedPackages, libraries, constants));
   }
@@ -233,6 +290,29 @@ public class RobolectricTestRunnerTest {
     }
   }
 
+  @Ignore
+  public static class TestWithMixedConfigs {
+    @Test @Config(sdk = 16)
+    public void sdk16a() throws Exception {
+    }
+
+    @Test @Config(sdk = 18)
+    public void sdk18a() throws Exception {
+    }
+
+    @Test
+    public void withoutAnnotation() throws Exception {
+    }
+
+    @Test @Config(sdk = 16)
+    public void sdk16b() throws Exception {
+    }
+
+    @Test @Config(sdk = 18)
+    public void sdk18b() throws Exception {
+    }
+  }
+
   public static class BuildConfigConstants {}
   public static class BuildConfigConstants2 {}
   public static class BuildConfigConstants3 {}
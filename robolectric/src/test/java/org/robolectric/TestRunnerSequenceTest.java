@@ -9,12 +9,18 @@ import org.junit.runners.model.InitializationError;
 import org.robolectric.annotation.Config;
 import org.robolectric.internal.bytecode.InstrumentationConfiguration;
 import org.robolectric.internal.SdkEnvironment;
+import org.robolectric.internal.metrics.RunnerMetrics;
+import org.robolectric.internal.metrics.RunnerMetricsListener;
+import org.robolectric.internal.metrics.TestMetrics;
 import org.robolectric.manifest.AndroidManifest;
 import org.robolectric.res.FsFile;
 import org.robolectric.util.Transcript;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.junit.Assert.assertTrue;
 import static org.robolectric.util.TestUtil.resourceFile;
@@ -72,6 +78,37 @@ public class TestRunnerSequenceTest {
     assertTrue(robolectricTestRunner.allStateIsCleared());
   }
 
+  @Test public void shouldReportMetricsForEachTestToListeners() throws Exception {
+    StateHolder.transcript = new Transcript();
+    final List<TestMetrics> finishedTests = new ArrayList<>();
+    final List<Class<?>> finishedClasses = new ArrayList<>();
+    RunnerMetricsListener listener = new RunnerMetricsListener() {
+      @Override public void testFinished(TestMetrics metrics) {
+        finishedTests.add(metrics);
+      }
+
+      @Override public void classFinished(Class<?> testClass) {
+        finishedClasses.add(testClass);
+      }
+    };
+
+    RunnerMetrics.addListener(listener);
+    try {
+      assertNoFailures(run(new Runner(SimpleTest.class)));
+    } finally {
+      RunnerMetrics.removeListener(listener);
+    }
+
+    assertThat(finishedTests).hasSize(1);
+    TestMetrics metrics = finishedTests.get(0);
+    assertThat(metrics.getClassName()).isEqualTo(SimpleTest.class.getName());
+    assertThat(metrics.getMethodName()).isEqualTo("shouldDoNothingMuch");
+    assertThat(metrics.getPhaseNanos(TestMetrics.Phase.TEST_BODY)).isGreaterThan(0);
+    assertThat(metrics.getPhaseNanos(TestMetrics.Phase.SET_UP_APPLICATION_STATE)).isGreaterThan(0);
+    assertThat(metrics.getResettersInvoked()).isGreaterThan(0);
+    assertThat(finishedClasses).containsExactly(SimpleTest.class);
+  }
+
   public static class SimpleTest {
     @Test public void shouldDoNothingMuch() throws Exception {
       StateHolder.transcript.add("TEST!");
@@ -0,0 +1,92 @@
+package org.robolectric.internal;
+
+import org.junit.Test;
+import org.robolectric.res.ResourceLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SdkEnvironmentCacheTest {
+  private final ClassLoader classLoader = getClass().getClassLoader();
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEnvironment() throws Exception {
+    SdkEnvironmentCache<String> cache = new SdkEnvironmentCache<>(2, Long.MAX_VALUE);
+    SdkEnvironment a = new SdkEnvironment(new SdkConfig(16), classLoader);
+    SdkEnvironment b = new SdkEnvironment(new SdkConfig(17), classLoader);
+    SdkEnvironment c = new SdkEnvironment(new SdkConfig(18), classLoader);
+
+    cache.put("a", a);
+    cache.put("b", b);
+    assertThat(cache.get("a")).isSameAs(a);
+    cache.put("c", c);
+
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get("b")).isNull();
+    assertThat(cache.get("a")).isSameAs(a);
+    assertThat(cache.get("c")).isSameAs(c);
+  }
+
+  @Test
+  public void shouldAlwaysKeepMostRecentlyUsedEnvironment() throws Exception {
+    SdkEnvironmentCache<String> cache = new SdkEnvironmentCache<>(10, -1);
+    SdkEnvironment a = new SdkEnvironment(new SdkConfig(16), classLoader);
+
+    cache.put("a", a);
+
+    assertThat(cache.get("a")).isSameAs(a);
+  }
+
+  @Test
+  public void shouldEvictWhenOverMemoryBudget() throws Exception {
+    SdkEnvironmentCache<String> cache = new SdkEnvironmentCache<>(10, -1);
+
+    cache.put("a", new SdkEnvironment(new SdkConfig(16), classLoader));
+    cache.put("b", new SdkEnvironment(new SdkConfig(17), classLoader));
+
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get("a")).isNull();
+    assertThat(cache.getStatistics()).startsWith("SdkEnvironment cache: 0 hits, 1 misses, 1 evictions");
+  }
+
+  @Test
+  public void shouldNotifyReleaseListenersOfEvictedEnvironments() throws Exception {
+    final List<SdkEnvironment> released = new ArrayList<>();
+    SdkEnvironment.ReleaseListener releaseListener = new SdkEnvironment.ReleaseListener() {
+      @Override
+      public void onRelease(SdkEnvironment sdkEnvironment, ResourceLoader systemResourceLoader) {
+        released.add(sdkEnvironment);
+      }
+    };
+    SdkEnvironment.addReleaseListener(releaseListener);
+    try {
+      SdkEnvironmentCache<String> cache = new SdkEnvironmentCache<>(1, Long.MAX_VALUE);
+      SdkEnvironment a = new SdkEnvironment(new SdkConfig(16), classLoader);
+
+      cache.put("a", a);
+      cache.put("b", new SdkEnvironment(new SdkConfig(17), classLoader));
+
+      assertThat(released).containsExactly(a);
+    } finally {
+      SdkEnvironment.removeReleaseListener(releaseListener);
+    }
+  }
+
+  @Test
+  public void shouldNotEvictEnvironmentsInUse() throws Exception {
+    SdkEnvironmentCache<String> cache = new SdkEnvironmentCache<>(1, Long.MAX_VALUE);
+    SdkEnvironment a = new SdkEnvironment(new SdkConfig(16), classLoader);
+    a.beginUse();
+
+    cache.put("a", a);
+    cache.put("b", new SdkEnvironment(new SdkConfig(17), classLoader));
+    assertThat(cache.size()).isEqualTo(2);
+
+    a.endUse();
+    cache.get("b");
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.get("a")).isNull();
+  }
+}
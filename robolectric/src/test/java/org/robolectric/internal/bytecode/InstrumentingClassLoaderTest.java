@@ -124,6 +124,44 @@ public class InstrumentingClassLoaderTest {
     }
   }
 
+  @Test
+  public void missingClasses_shouldThrowWithoutStackTraces() throws Exception {
+    ClassLoader classLoader = new InstrumentingClassLoader(InstrumentationConfiguration.newBuilder().build());
+    String missingClassName = AnUninstrumentedClass.class.getPackage().getName() + ".AMissingClass";
+    for (int i = 0; i < 2; i++) {
+      try {
+        classLoader.loadClass(missingClassName);
+        fail("class shouldn't be found!");
+      } catch (ClassNotFoundException e) {
+        assertThat(e.getMessage()).isEqualTo(missingClassName);
+        assertThat(e.getStackTrace()).isEmpty();
+      }
+    }
+  }
+
+  @Test
+  public void getInstrumentedClassCount_shouldOnlyCountClassesInstrumentedOnCallingThread() throws Exception {
+    final ClassLoader classLoader = new InstrumentingClassLoader(InstrumentationConfiguration.newBuilder().build());
+    long before = InstrumentingClassLoader.getInstrumentedClassCount();
+
+    Thread otherThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          classLoader.loadClass(AClassWithStaticMethod.class.getName());
+        } catch (ClassNotFoundException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    otherThread.start();
+    otherThread.join();
+    assertEquals(before, InstrumentingClassLoader.getInstrumentedClassCount());
+
+    classLoader.loadClass(AnExampleClass.class.getName());
+    assertEquals(before + 1, InstrumentingClassLoader.getInstrumentedClassCount());
+  }
+
   @Test
   public void shouldPerformClassLoadAndInstrumentLoadForInstrumentedClasses() throws Exception {
     ClassLoader classLoader = new InstrumentingClassLoader(InstrumentationConfiguration.newBuilder().build());
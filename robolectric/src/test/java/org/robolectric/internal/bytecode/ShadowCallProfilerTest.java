@@ -0,0 +1,84 @@
+package org.robolectric.internal.bytecode;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.invoke.MethodType.methodType;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShadowCallProfilerTest {
+  @After
+  public void tearDown() throws Exception {
+    ShadowCallProfiler.clear();
+  }
+
+  @Test
+  public void counterFor_shouldReturnTheSameCounterForTheSameMethodAndKind() throws Exception {
+    ShadowCallProfiler.Counter counter = ShadowCallProfiler.counterFor("android/view/View/getId()I", ShadowCallProfiler.Kind.SHADOW);
+
+    assertThat(ShadowCallProfiler.counterFor("android/view/View/getId()I", ShadowCallProfiler.Kind.SHADOW)).isSameAs(counter);
+    assertThat(ShadowCallProfiler.counterFor("android/view/View/getId()I", ShadowCallProfiler.Kind.REAL)).isNotSameAs(counter);
+  }
+
+  @Test
+  public void counter_shouldSumCallsFromAllThreads() throws Exception {
+    final ShadowCallProfiler.Counter counter = ShadowCallProfiler.counterFor("android/view/View/getId()I", ShadowCallProfiler.Kind.SHADOW);
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            counter.increment();
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(counter.getCount()).isEqualTo(4000);
+  }
+
+  @Test
+  public void countCalls_shouldCountEachInvocation() throws Throwable {
+    MethodHandle target = MethodHandles.lookup().findStatic(ShadowCallProfilerTest.class, "twice", methodType(int.class, int.class));
+    MethodHandle counted = ShadowCallProfiler.countCalls(target, "Foo/twice(I)I", ShadowCallProfiler.Kind.REAL);
+
+    assertThat((int) counted.invokeExact(3)).isEqualTo(6);
+    assertThat((int) counted.invokeExact(4)).isEqualTo(8);
+    assertThat(ShadowCallProfiler.counterFor("Foo/twice(I)I", ShadowCallProfiler.Kind.REAL).getCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void report_shouldRankMethodsByCalls() throws Exception {
+    increment(ShadowCallProfiler.counterFor("Foo/rare()V", ShadowCallProfiler.Kind.DO_NOTHING), 1);
+    increment(ShadowCallProfiler.counterFor("Foo/common()V", ShadowCallProfiler.Kind.SHADOW), 10);
+    ShadowCallProfiler.counterFor("Foo/common()V", ShadowCallProfiler.Kind.SHADOW).addSample(500);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ShadowCallProfiler.report(new PrintStream(bytes, true), 10);
+    String[] lines = bytes.toString().split("\n");
+
+    assertThat(lines[0]).isEqualTo("Shadow call profile: 2 methods");
+    assertThat(lines[2]).matches("\\s+10  SHADOW\\s+500  Foo/common\\(\\)V");
+    assertThat(lines[3]).matches("\\s+1  DO_NOTHING\\s+-  Foo/rare\\(\\)V");
+  }
+
+  private static int twice(int value) {
+    return value * 2;
+  }
+
+  private static void increment(ShadowCallProfiler.Counter counter, int times) {
+    for (int i = 0; i < times; i++) {
+      counter.increment();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package org.robolectric.internal.metrics;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsReporterTest {
+  @Test
+  public void writeCsv_shouldWriteSuiteClassAndSlowestTestRows() throws Exception {
+    MetricsReporter reporter = new MetricsReporter();
+    reporter.testFinished(testMetrics("com.example.FooTest", "first", 100, 2));
+    reporter.testFinished(testMetrics("com.example.FooTest", "second", 300, 0));
+    reporter.testFinished(testMetrics("com.example.BarTest", "only", 50, 1));
+
+    StringWriter writer = new StringWriter();
+    reporter.writeCsv(writer);
+    String[] lines = writer.toString().split("\n");
+
+    assertThat(lines).hasSize(5);
+    assertThat(lines[0]).startsWith("scope,class,method,tests,totalNanos,APP_MANIFEST,");
+    assertThat(lines[1]).startsWith("suite,,,3,450,");
+    assertThat(lines[2]).startsWith("class,\"com.example.FooTest\",,2,400,");
+    assertThat(lines[2]).endsWith(",2,0,0");
+    assertThat(lines[3]).startsWith("class,\"com.example.BarTest\",,1,50,");
+    assertThat(lines[4]).startsWith("test,\"com.example.FooTest\",\"second\",1,300,");
+  }
+
+  @Test
+  public void writeJson_shouldIncludeSlowestTests() throws Exception {
+    MetricsReporter reporter = new MetricsReporter();
+    reporter.testFinished(testMetrics("com.example.FooTest", "fast", 100, 0));
+    reporter.testFinished(testMetrics("com.example.FooTest", "slow \"quoted\"", 900, 0));
+
+    StringWriter writer = new StringWriter();
+    reporter.writeJson(writer);
+    String json = writer.toString();
+
+    assertThat(json).contains("\"suite\": {\"name\": \"suite\", \"tests\": 2, \"totalNanos\": 1000");
+    assertThat(json).contains("\"slowestTests\": [\n    {\"class\": \"com.example.FooTest\", \"method\": \"slow \\\"quoted\\\"\"");
+  }
+
+  @Test
+  public void slowestTests_shouldReturnTheSlowestOnePercent() throws Exception {
+    MetricsReporter reporter = new MetricsReporter();
+    for (int i = 0; i < 200; i++) {
+      reporter.testFinished(testMetrics("com.example.FooTest", "test" + i, i, 0));
+    }
+
+    assertThat(reporter.slowestTests()).extracting("methodName").containsExactly("test199", "test198");
+  }
+
+  private static TestMetrics testMetrics(String className, String methodName, long testBodyNanos, long classesInstrumented) {
+    TestMetrics metrics = new TestMetrics(className, methodName);
+    metrics.addPhaseNanos(TestMetrics.Phase.TEST_BODY, testBodyNanos);
+    metrics.addClassesInstrumented(classesInstrumented);
+    return metrics;
+  }
+}
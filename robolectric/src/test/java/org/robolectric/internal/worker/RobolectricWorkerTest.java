@@ -0,0 +1,203 @@
+package org.robolectric.internal.worker;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runner.Runner;
+import org.junit.runner.notification.Failure;
+import org.junit.runner.notification.RunListener;
+import org.junit.runner.notification.RunNotifier;
+import org.junit.runners.BlockJUnit4ClassRunner;
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RemoteRobolectricTestRunner;
+import org.robolectric.test.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RobolectricWorkerTest {
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private RobolectricWorker worker;
+  private Thread workerThread;
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty("robolectric.worker.port");
+    if (worker != null) {
+      worker.close();
+      workerThread.join();
+    }
+  }
+
+  @Test
+  public void shouldReportEventsOfTestsRunInWorker() throws Exception {
+    startWorker(System.getProperty("java.class.path"));
+
+    List<String> events = run(new PlainRemoteRunner(Sample.class));
+
+    assertThat(events).contains(
+        "started passes(" + Sample.class.getName() + ")",
+        "finished passes(" + Sample.class.getName() + ")",
+        "failure fails(" + Sample.class.getName() + "): java.lang.AssertionError: expected failure");
+    assertThat(Sample.ranInThread).isEqualTo(workerThread);
+  }
+
+  @Test
+  public void shouldRunRunnersThatWereAllCreatedBeforeAnyRan() throws Exception {
+    startWorker(System.getProperty("java.class.path"));
+
+    Runner first = new PlainRemoteRunner(Sample.class);
+    Runner second = new PlainRemoteRunner(Sample.class);
+
+    assertThat(run(first)).contains("finished passes(" + Sample.class.getName() + ")");
+    Sample.ranInThread = null;
+    assertThat(run(second)).contains("finished passes(" + Sample.class.getName() + ")");
+    assertThat(Sample.ranInThread).isEqualTo(workerThread);
+  }
+
+  @Test
+  public void shouldRunTestsLocallyWhenClassPathDoesNotMatchWorker() throws Exception {
+    startWorker(System.getProperty("java.class.path") + java.io.File.pathSeparator + "other.jar");
+
+    List<String> events = run(new PlainRemoteRunner(Sample.class));
+
+    assertThat(events).contains("finished passes(" + Sample.class.getName() + ")");
+    assertThat(Sample.ranInThread).isEqualTo(Thread.currentThread());
+  }
+
+  @Test
+  public void shouldRunTestsLocallyWithoutWorker() throws Exception {
+    List<String> events = run(new PlainRemoteRunner(Sample.class));
+
+    assertThat(events).contains("finished passes(" + Sample.class.getName() + ")");
+    assertThat(Sample.ranInThread).isEqualTo(Thread.currentThread());
+  }
+
+  @Test
+  public void shouldStopWhenResourcesChangeAfterTheyWereUsed() throws Exception {
+    startWorker(System.getProperty("java.class.path"));
+    File resDir = temporaryFolder.newFolder("res");
+    File strings = new File(resDir, "strings.xml");
+    write(strings, "<resources/>");
+    List<String> resourcePaths = Collections.singletonList(resDir.getAbsolutePath());
+
+    assertThat(request(resourcePaths)).isEqualTo(WorkerProtocol.STATUS_OK);
+    assertThat(request(resourcePaths)).isEqualTo(WorkerProtocol.STATUS_OK);
+
+    write(strings, "<resources><string name=\"changed\">changed</string></resources>");
+    assertThat(request(resourcePaths)).isEqualTo(WorkerProtocol.STATUS_STALE);
+    workerThread.join();
+  }
+
+  @Test(expected = IOException.class)
+  public void readString_shouldRejectLengthsBeyondLimit() throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    new DataOutputStream(bytes).writeInt(Integer.MAX_VALUE);
+
+    WorkerProtocol.readString(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+  }
+
+  /**
+   * Asks the worker to run {@link Sample} with the given resources, and hangs up once it replies.
+   *
+   * @return The worker's status.
+   */
+  private byte request(List<String> resourcePaths) throws IOException {
+    try (Socket socket = new Socket(InetAddress.getByName(null), worker.getPort())) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      out.writeInt(WorkerProtocol.VERSION);
+      WorkerProtocol.writeString(out, WorkerProtocol.classPathHash(System.getProperty("java.class.path")));
+      WorkerProtocol.writeStrings(out, resourcePaths);
+      WorkerProtocol.writeString(out, BlockJUnit4ClassRunner.class.getName());
+      WorkerProtocol.writeString(out, Sample.class.getName());
+      out.flush();
+      return new DataInputStream(new BufferedInputStream(socket.getInputStream())).readByte();
+    }
+  }
+
+  private static void write(File file, String contents) throws IOException {
+    try (FileOutputStream out = new FileOutputStream(file)) {
+      out.write(contents.getBytes("UTF-8"));
+    }
+  }
+
+  private void startWorker(String classPath) throws IOException {
+    worker = new RobolectricWorker(0, classPath);
+    workerThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          worker.serve();
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    });
+    workerThread.start();
+    System.setProperty("robolectric.worker.port", Integer.toString(worker.getPort()));
+  }
+
+  private static List<String> run(Runner runner) {
+    final List<String> events = new ArrayList<>();
+    RunNotifier notifier = new RunNotifier();
+    notifier.addListener(new RunListener() {
+      @Override
+      public void testStarted(Description description) {
+        events.add("started " + description.getDisplayName());
+      }
+
+      @Override
+      public void testFinished(Description description) {
+        events.add("finished " + description.getDisplayName());
+      }
+
+      @Override
+      public void testFailure(Failure failure) {
+        events.add("failure " + failure.getDescription().getDisplayName() + ": " + failure.getException());
+      }
+    });
+    runner.run(notifier);
+    return events;
+  }
+
+  public static class PlainRemoteRunner extends RemoteRobolectricTestRunner {
+    public PlainRemoteRunner(Class<?> testClass) throws InitializationError {
+      super(testClass);
+    }
+
+    @Override
+    protected Class<? extends Runner> getRunnerClass() {
+      return BlockJUnit4ClassRunner.class;
+    }
+  }
+
+  public static class Sample {
+    static volatile Thread ranInThread;
+
+    @Test
+    public void passes() {
+      ranInThread = Thread.currentThread();
+    }
+
+    @Test
+    public void fails() {
+      throw new AssertionError("expected failure");
+    }
+  }
+}
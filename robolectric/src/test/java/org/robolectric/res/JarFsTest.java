@@ -0,0 +1,99 @@
+package org.robolectric.res;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.robolectric.util.Util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JarFsTest {
+  private static final byte[] CONTENTS = "<resources><string name=\"hello\">Hello</string></resources>".getBytes();
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private File jar;
+  private File cacheDir;
+
+  @Before
+  public void setUp() throws Exception {
+    jar = temporaryFolder.newFile("test.jar");
+    cacheDir = temporaryFolder.newFolder("cache");
+    writeJar(CONTENTS);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    System.clearProperty("robolectric.jarFs.mappedCache");
+    System.clearProperty("robolectric.jarFs.cacheDir");
+  }
+
+  @Test
+  public void shouldReadEntriesFromJar() throws Exception {
+    FsFile file = Fs.fromJar(jar.toURI().toURL()).join("res/values/strings.xml");
+
+    assertThat(file.getBytes()).isEqualTo(CONTENTS);
+    assertThat(Util.readBytes(file.getInputStream())).isEqualTo(CONTENTS);
+    assertThat(cacheDir.list()).isEmpty();
+  }
+
+  @Test
+  public void withMappedCache_shouldReadEntriesFromCacheFile() throws Exception {
+    System.setProperty("robolectric.jarFs.mappedCache", "true");
+    System.setProperty("robolectric.jarFs.cacheDir", cacheDir.getPath());
+
+    FsFile file = Fs.fromJar(jar.toURI().toURL()).join("res/values/strings.xml");
+
+    ByteBuffer buffer = file.getByteBuffer();
+    assertThat(buffer.isReadOnly()).isTrue();
+    assertThat(buffer.remaining()).isEqualTo(CONTENTS.length);
+    assertThat(file.getBytes()).isEqualTo(CONTENTS);
+    assertThat(Util.readBytes(file.getInputStream())).isEqualTo(CONTENTS);
+    assertThat(cacheDir.list()).hasSize(1);
+  }
+
+  @Test
+  public void withMappedCache_shouldReadEntriesOfRebuiltJarOfSameLength() throws Exception {
+    System.setProperty("robolectric.jarFs.mappedCache", "true");
+    System.setProperty("robolectric.jarFs.cacheDir", cacheDir.getPath());
+    assertThat(Fs.fromJar(jar.toURI().toURL()).join("res/values/strings.xml").getBytes()).isEqualTo(CONTENTS);
+    long length = jar.length();
+    long lastModified = jar.lastModified();
+
+    byte[] rebuiltContents = new String(CONTENTS).replace("Hello", "Howdy").getBytes();
+    writeJar(rebuiltContents);
+    assertThat(jar.setLastModified(lastModified + 2000)).isTrue();
+    assertThat(jar.length()).isEqualTo(length);
+
+    assertThat(Fs.fromJar(jar.toURI().toURL()).join("res/values/strings.xml").getBytes()).isEqualTo(rebuiltContents);
+    assertThat(cacheDir.list()).hasSize(2);
+  }
+
+  /**
+   * Stores the entry uncompressed, so that jars with contents of the same length have the same length.
+   */
+  private void writeJar(byte[] contents) throws Exception {
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    JarEntry jarEntry = new JarEntry("res/values/strings.xml");
+    jarEntry.setMethod(ZipEntry.STORED);
+    jarEntry.setSize(contents.length);
+    jarEntry.setCompressedSize(contents.length);
+    jarEntry.setCrc(crc.getValue());
+    try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+      out.putNextEntry(jarEntry);
+      out.write(contents);
+      out.closeEntry();
+    }
+  }
+}
@@ -53,4 +53,32 @@ public class PackageResourceLoaderTest {
     assertThat(value).describedAs("Item color from gradle output is not loaded").isNotNull();
     assertThat(value.asString()).isEqualTo("1.0");
   }
+
+  @Test
+  public void shouldShareResourcesWithTablesOwner() {
+    PackageResourceLoader owner = new PackageResourceLoader(gradleAppResources());
+    ResourceIndex resourceIndex = new ResourceExtractor(gradleAppResources());
+    PackageResourceLoader loader = new PackageResourceLoader(resourceIndex, owner);
+
+    TypedResource value = loader.getValue(new ResName("org.robolectric.gradleapp", "string", "from_gradle_output"), "");
+    assertThat(value.asString()).isEqualTo("string example taken from gradle output directory");
+    assertThat(owner.getValue(new ResName("org.robolectric.gradleapp", "string", "from_gradle_output"), "")).isSameAs(value);
+    assertThat(loader.getResourceIndex()).isSameAs(resourceIndex);
+  }
+
+  @Test
+  public void whenLoadingLazily_shouldOnlyLoadXmlResourcesWhenTheirTypeIsLookedUp() {
+    System.setProperty("robolectric.resources.lazyLoading", "true");
+    try {
+      PackageResourceLoader loader = new PackageResourceLoader(testResources());
+
+      assertThat(loader.getValue(new ResName(TEST_PACKAGE, "string", "hello"), "").asString()).isEqualTo("Hello");
+      int resourceCountAfterValues = loader.getResourceCount();
+
+      assertThat(loader.getXml(new ResName(TEST_PACKAGE, "layout", "activity_main"), "")).isNotNull();
+      assertThat(loader.getResourceCount()).isGreaterThan(resourceCountAfterValues);
+    } finally {
+      System.clearProperty("robolectric.resources.lazyLoading");
+    }
+  }
 }
@@ -473,6 +473,85 @@ public class ShadowBitmapTest {
     bitmapOriginal.copyPixelsFromBuffer(buffer);
   }
 
+  @Test
+  public void copyShouldSharePixelsUntilEitherBitmapIsWritten() {
+    Bitmap original = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+    original.setPixel(1, 1, Color.RED);
+
+    Bitmap copy = original.copy(Bitmap.Config.ARGB_8888, true);
+    assertThat(copy.getWidth()).isEqualTo(10);
+    assertThat(copy.getHeight()).isEqualTo(10);
+    assertThat(copy.getPixel(1, 1)).isEqualTo(Color.RED);
+
+    copy.setPixel(1, 1, Color.BLUE);
+    original.setPixel(2, 2, Color.GREEN);
+    assertThat(original.getPixel(1, 1)).isEqualTo(Color.RED);
+    assertThat(copy.getPixel(1, 1)).isEqualTo(Color.BLUE);
+    assertThat(copy.getPixel(2, 2)).isZero();
+  }
+
+  @Test
+  public void shouldKeepOnlyTheBitsStoredByPackedConfigs() {
+    Bitmap rgb565 = Bitmap.createBitmap(2, 2, Bitmap.Config.RGB_565);
+    rgb565.setPixel(0, 0, Color.RED);
+    rgb565.setPixel(1, 0, 0x80123456);
+    assertThat(rgb565.getPixel(0, 0)).isEqualTo(Color.RED);
+    assertThat(rgb565.getPixel(1, 0)).isEqualTo(0xff103452);
+    assertThat(rgb565.getPixel(1, 1)).isZero();
+
+    Bitmap alpha8 = Bitmap.createBitmap(2, 2, Bitmap.Config.ALPHA_8);
+    alpha8.setPixel(0, 0, 0x80123456);
+    assertThat(alpha8.getPixel(0, 0)).isEqualTo(0x80000000);
+  }
+
+  @Test
+  public void copyShouldConvertPixelsToTheNewConfig() {
+    Bitmap original = Bitmap.createBitmap(2, 2, Bitmap.Config.ARGB_8888);
+    original.setPixel(0, 0, 0x80123456);
+
+    Bitmap copy = original.copy(Bitmap.Config.ALPHA_8, true);
+    assertThat(copy.getPixel(0, 0)).isEqualTo(0x80000000);
+    assertThat(original.getPixel(0, 0)).isEqualTo(0x80123456);
+  }
+
+  @Test
+  public void setPixelsShouldCopyTheGivenRegion() {
+    Bitmap bitmap = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+    int[] colors = {0, 0, 1, 2, 0, 3, 4};
+    bitmap.setPixels(colors, 2, 3, 1, 2, 2, 2);
+
+    assertThat(bitmap.getPixel(1, 2)).isEqualTo(1);
+    assertThat(bitmap.getPixel(2, 2)).isEqualTo(2);
+    assertThat(bitmap.getPixel(1, 3)).isEqualTo(3);
+    assertThat(bitmap.getPixel(2, 3)).isEqualTo(4);
+    assertThat(bitmap.getPixel(0, 0)).isZero();
+
+    colors[2] = 99;
+    assertThat(bitmap.getPixel(1, 2)).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldDescribeLongChainsOfTransformations() {
+    Bitmap bitmap = create("Original bitmap");
+    StringBuilder expected = new StringBuilder("Original bitmap");
+    for (int i = 1; i <= 500; i++) {
+      bitmap = Bitmap.createScaledBitmap(bitmap, i, i, false);
+      expected.append(" scaled to ").append(i).append(" x ").append(i);
+    }
+
+    assertThat(shadowOf(bitmap).getDescription()).isEqualTo(expected.toString());
+  }
+
+  @Test
+  public void derivedBitmapDescriptionShouldNotChangeWithItsSource() {
+    Bitmap original = create("Original bitmap");
+    Bitmap scaled = Bitmap.createScaledBitmap(original, 100, 200, false);
+    shadowOf(original).appendDescription(" and more");
+
+    assertThat(shadowOf(scaled).getDescription()).isEqualTo("Original bitmap scaled to 100 x 200");
+    assertThat(shadowOf(original).getDescription()).isEqualTo("Original bitmap and more");
+  }
+
   private static Bitmap create(String name) {
     Bitmap bitmap = Shadow.newInstanceOf(Bitmap.class);
     shadowOf(bitmap).appendDescription(name);
@@ -6,6 +6,8 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.RectF;
@@ -17,6 +19,7 @@ import org.robolectric.internal.Shadow;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.robolectric.Shadows.shadowOf;
 import static org.robolectric.shadows.ShadowPath.Point.Type.LINE_TO;
 
@@ -349,4 +352,114 @@ public class ShadowCanvasTest {
     assertThat(shadowCanvas.getDrawnRect(1).rect).isEqualTo(rect1);
     assertThat(shadowCanvas.getDrawnRect(1).paint.getColor()).isEqualTo(Color.BLACK);
   }
+
+  @Test
+  public void drawRect_shouldSnapshotPaintWhenItChanges() throws Exception {
+    Canvas canvas = new Canvas();
+    Paint paint = new Paint();
+    paint.setColor(Color.WHITE);
+
+    canvas.drawRect(0f, 0f, 1f, 1f, paint);
+    canvas.drawRect(0f, 0f, 2f, 2f, paint);
+    paint.setColor(Color.BLACK);
+    canvas.drawRect(0f, 0f, 3f, 3f, paint);
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+
+    assertThat(shadowCanvas.getDrawnRect(0).paint.getColor()).isEqualTo(Color.WHITE);
+    assertThat(shadowCanvas.getDrawnRect(1).paint.getColor()).isEqualTo(Color.WHITE);
+    assertThat(shadowCanvas.getDrawnRect(2).paint.getColor()).isEqualTo(Color.BLACK);
+  }
+
+  @Test
+  public void drawRect_shouldSnapshotPaintWhenAnyPropertyChanges() throws Exception {
+    Canvas canvas = new Canvas();
+    Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    paint.setStrokeCap(Paint.Cap.ROUND);
+
+    canvas.drawRect(0f, 0f, 1f, 1f, paint);
+    canvas.drawRect(0f, 0f, 2f, 2f, paint);
+    PorterDuffXfermode xfermode = new PorterDuffXfermode(PorterDuff.Mode.SRC);
+    paint.setXfermode(xfermode);
+    canvas.drawRect(0f, 0f, 3f, 3f, paint);
+    paint.setShadowLayer(1f, 2f, 3f, Color.RED);
+    canvas.drawRect(0f, 0f, 4f, 4f, paint);
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+
+    assertThat(shadowCanvas.getDrawnRect(1).paint).isSameAs(shadowCanvas.getDrawnRect(0).paint);
+    assertThat(shadowCanvas.getDrawnRect(1).paint.getStrokeCap()).isEqualTo(Paint.Cap.ROUND);
+    assertThat(shadowCanvas.getDrawnRect(1).paint.getXfermode()).isNull();
+    assertThat(shadowCanvas.getDrawnRect(2).paint.getXfermode()).isSameAs(xfermode);
+    assertThat(shadowOf(shadowCanvas.getDrawnRect(2).paint).getShadowRadius()).isEqualTo(0f);
+    assertThat(shadowOf(shadowCanvas.getDrawnRect(3).paint).getShadowRadius()).isEqualTo(1f);
+  }
+
+  @Test
+  public void drawRect_shouldSnapshotPaintWhenLetterSpacingChanges() throws Exception {
+    Canvas canvas = new Canvas();
+    Paint paint = new Paint();
+
+    canvas.drawRect(0f, 0f, 1f, 1f, paint);
+    shadowOf(paint).setLetterSpacing(0.5f);
+    canvas.drawRect(0f, 0f, 2f, 2f, paint);
+    canvas.drawRect(0f, 0f, 3f, 3f, paint);
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+
+    assertThat(shadowOf(shadowCanvas.getDrawnRect(0).paint).getLetterSpacing()).isEqualTo(0f);
+    assertThat(shadowOf(shadowCanvas.getDrawnRect(1).paint).getLetterSpacing()).isEqualTo(0.5f);
+    assertThat(shadowCanvas.getDrawnRect(2).paint).isSameAs(shadowCanvas.getDrawnRect(1).paint);
+  }
+
+  @Test
+  public void recordingModeFromProperty_shouldFallBackToFullForUnknownModes() throws Exception {
+    assertThat(ShadowCanvas.RecordingMode.fromProperty(null)).isEqualTo(ShadowCanvas.RecordingMode.FULL);
+    assertThat(ShadowCanvas.RecordingMode.fromProperty("counts")).isEqualTo(ShadowCanvas.RecordingMode.COUNTS);
+    assertThat(ShadowCanvas.RecordingMode.fromProperty("count")).isEqualTo(ShadowCanvas.RecordingMode.FULL);
+  }
+
+  @Test
+  public void getDrawCommand_shouldReturnCommandsInDrawingOrder() throws Exception {
+    Canvas canvas = new Canvas();
+    canvas.drawLine(0f, 1f, 2f, 3f, new Paint());
+    canvas.drawCircle(1f, 2f, 3f, new Paint());
+    canvas.drawLine(4f, 5f, 6f, 7f, new Paint());
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+
+    assertThat(shadowCanvas.getDrawCommandCount()).isEqualTo(3);
+    assertThat(shadowCanvas.getDrawCommand(0)).isEqualTo(ShadowCanvas.DrawCommand.LINE);
+    assertThat(shadowCanvas.getDrawCommand(1)).isEqualTo(ShadowCanvas.DrawCommand.CIRCLE);
+    assertThat(shadowCanvas.getDrawCommand(2)).isEqualTo(ShadowCanvas.DrawCommand.LINE);
+    assertThat(shadowCanvas.getDrawCount(ShadowCanvas.DrawCommand.LINE)).isEqualTo(2);
+    assertThat(shadowCanvas.getDrawnLine(1).startX).isEqualTo(4f);
+  }
+
+  @Test
+  public void countsRecordingMode_shouldOnlyCountDrawCalls() throws Exception {
+    ShadowCanvas.setRecordingMode(ShadowCanvas.RecordingMode.COUNTS);
+    Canvas canvas = new Canvas(targetBitmap);
+    canvas.drawLine(0f, 1f, 2f, 3f, new Paint());
+    canvas.drawPath(new Path(), new Paint());
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+
+    assertThat(shadowCanvas.getLinePaintHistoryCount()).isEqualTo(1);
+    assertThat(shadowCanvas.hasDrawnPath()).isTrue();
+    assertThat(shadowCanvas.getDrawCommandCount()).isEqualTo(0);
+    assertThat(shadowCanvas.getDescription()).isEmpty();
+    try {
+      shadowCanvas.getDrawnLine(0);
+      fail("expected IllegalStateException");
+    } catch (IllegalStateException expected) {
+    }
+  }
+
+  @Test
+  public void offRecordingMode_shouldNotRecordAnything() throws Exception {
+    ShadowCanvas.setRecordingMode(ShadowCanvas.RecordingMode.OFF);
+    Canvas canvas = new Canvas(targetBitmap);
+    canvas.drawBitmap(imageBitmap, 1, 2, new Paint());
+    canvas.drawCircle(1f, 2f, 3f, new Paint());
+    ShadowCanvas shadowCanvas = shadowOf(canvas);
+
+    assertThat(shadowCanvas.getCirclePaintHistoryCount()).isEqualTo(0);
+    assertThat(shadowCanvas.getDescription()).isEmpty();
+  }
 }
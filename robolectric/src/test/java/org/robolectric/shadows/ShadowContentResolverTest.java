@@ -680,6 +680,54 @@ public class ShadowContentResolverTest {
     assertThat(co2.changed).isFalse();
   }
 
+  @Test
+  public void shouldNotifyAncestorObserversThatWantDescendants() throws Exception {
+    TestContentObserver descendants = new TestContentObserver(null);
+    TestContentObserver exactOnly = new TestContentObserver(null);
+    contentResolver.registerContentObserver(EXTERNAL_CONTENT_URI, true, descendants);
+    contentResolver.registerContentObserver(EXTERNAL_CONTENT_URI, false, exactOnly);
+
+    contentResolver.notifyChange(uri21, null);
+    assertThat(descendants.changed).isTrue();
+    assertThat(exactOnly.changed).isFalse();
+  }
+
+  @Test
+  public void shouldNotifyDescendantObservers() throws Exception {
+    TestContentObserver co = new TestContentObserver(null);
+    contentResolver.registerContentObserver(uri21, false, co);
+
+    contentResolver.notifyChange(EXTERNAL_CONTENT_URI, null);
+    assertThat(co.changed).isTrue();
+  }
+
+  @Test
+  public void shouldPostNotificationsToSchedulerWhenEnabled() throws Exception {
+    TestContentObserver co = new TestContentObserver(null);
+    contentResolver.registerContentObserver(uri21, true, co);
+    shadowContentResolver.setPostNotifications(true);
+    RuntimeEnvironment.getMasterScheduler().pause();
+
+    contentResolver.notifyChange(uri21, null);
+    assertThat(co.changed).isFalse();
+
+    RuntimeEnvironment.getMasterScheduler().advanceToLastPostedRunnable();
+    assertThat(co.changed).isTrue();
+  }
+
+  @Test
+  public void shouldKeepOnlyTheMostRecentNotifiedUrisWhenLimited() throws Exception {
+    shadowContentResolver.setMaxNotifiedUris(2);
+    for (int i = 0; i < 10; i++) {
+      contentResolver.notifyChange(Uri.parse("content://" + AUTHORITY + "/" + i), null);
+    }
+
+    List<ShadowContentResolver.NotifiedUri> notifiedUris = shadowContentResolver.getNotifiedUris();
+    assertThat(notifiedUris.size()).isEqualTo(2);
+    assertThat(notifiedUris.get(0).uri.getLastPathSegment()).isEqualTo("8");
+    assertThat(notifiedUris.get(1).uri.getLastPathSegment()).isEqualTo("9");
+  }
+
   @Test
   public void getProvider_shouldCreateProviderFromManifest() {
     AndroidManifest manifest = ShadowApplication.getInstance().getAppManifest();
@@ -62,6 +62,17 @@ public class ShadowLayoutInflaterTest {
     assertSame(context, view.getContext());
   }
 
+  @Test
+  public void testCreatesViewsFromEveryPackageWhenInflatedAgain() throws Exception {
+    for (int i = 0; i < 2; i++) {
+      ViewGroup media = (ViewGroup) inflate("media");
+      assertThat(media.getChildAt(1).getClass()).isEqualTo(View.class);
+
+      ViewGroup webViewHolder = (ViewGroup) inflate("webview_holder");
+      assertInstanceOf(WebView.class, webViewHolder.getChildAt(0));
+    }
+  }
+
   @Test
   public void testChoosesLayoutBasedOnDefaultScreenSize() throws Exception {
     ViewGroup view = (ViewGroup) inflate("different_screen_sizes");
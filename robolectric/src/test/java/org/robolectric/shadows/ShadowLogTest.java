@@ -186,6 +186,46 @@ public class ShadowLogTest {
     assertUniformLogsForTag( "tag3", 1 );
   }
 
+  @Test
+  public void getLogsForTag_shouldIncludeItemsLoggedAfterThePreviousQuery() throws Exception {
+    Log.d("tag1", "1");
+    assertThat(ShadowLog.getLogsForTag("tag1")).hasSize(1);
+    assertThat(ShadowLog.getLogsForTag("tag2")).isNull();
+
+    Log.d("tag2", "2");
+    Log.d("tag1", "3");
+
+    assertUniformLogsForTag("tag1", 2);
+    assertUniformLogsForTag("tag2", 1);
+  }
+
+  @Test
+  public void shouldKeepEveryItemByDefault() throws Exception {
+    for (int i = 0; i <= 10000; i++) {
+      Log.d("tag", Integer.toString(i));
+    }
+
+    List<LogItem> items = ShadowLog.getLogs();
+    assertThat(items).hasSize(10001);
+    assertThat(items.get(0).msg).isEqualTo("0");
+    assertThat(items.get(10000).msg).isEqualTo("10000");
+    assertThat(ShadowLog.getDroppedLogCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void getLogs_shouldReturnListThatClearsTheLog() throws Exception {
+    List<LogItem> items = ShadowLog.getLogs();
+    Log.d("tag", "0");
+    assertThat(items).hasSize(1);
+
+    ShadowLog.getLogs().clear();
+    assertThat(ShadowLog.getLogs()).isEmpty();
+    assertThat(ShadowLog.getLogsForTag("tag")).isNull();
+
+    Log.d("tag", "1");
+    assertUniformLogsForTag("tag", 1);
+  }
+
   private void assertUniformLogsForTag( String tag, int count ) {
     List<LogItem> tag1Items = ShadowLog.getLogsForTag( tag );
     assertThat(tag1Items.size()).isEqualTo(count);
@@ -8,6 +8,7 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatatypeMismatchException;
+import android.database.sqlite.SQLiteOpenHelper;
 import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
 import com.almworks.sqlite4java.SQLiteConnection;
@@ -23,8 +24,11 @@ import org.robolectric.util.ReflectionHelpers;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 @RunWith(TestRunners.MultiApiWithDefaults.class)
 @Config(sdk = {
@@ -136,6 +140,132 @@ public class ShadowSQLiteConnectionTest {
     assertThat(statementsMap).as("statements after").isEmpty();
   }
 
+  @Test
+  public void independentConnections_runOnDifferentWorkers() {
+    File otherPath = RuntimeEnvironment.application.getDatabasePath("other.db");
+    long otherPtr = ShadowSQLiteConnection.nativeOpen(otherPath.getPath(), 0, "other connection", false, false);
+
+    assertThat(workerThread(otherPtr)).isNotSameAs(workerThread(ptr));
+  }
+
+  @Test
+  public void reset_keepsWorkerThreads() {
+    Thread worker = workerThread(ptr);
+    ShadowSQLiteConnection.reset();
+
+    Set<Thread> workers = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      workers.add(workerThread(ShadowSQLiteConnection.nativeOpen(databasePath.getPath(), 0, "test connection", false, false)));
+    }
+    assertThat(workers).contains(worker);
+    assertThat(worker.isAlive()).isTrue();
+  }
+
+  private Thread workerThread(long connectionPtr) {
+    return CONNECTIONS.execute(connectionPtr, "get worker thread", new Callable<Thread>() {
+      @Override
+      public Thread call() {
+        return Thread.currentThread();
+      }
+    });
+  }
+
+  @Test
+  public void useTemplate_copiesTemplateInsteadOfCreatingDatabase() {
+    TemplateHelper.creations = 0;
+    ShadowSQLiteConnection.TemplateBuilder builder = new ShadowSQLiteConnection.TemplateBuilder() {
+      @Override
+      public void build() {
+        new TemplateHelper().getWritableDatabase().close();
+      }
+    };
+    ShadowSQLiteConnection.useTemplate(TemplateHelper.NAME, builder);
+    assertThat(TemplateHelper.creations).isEqualTo(1);
+
+    // As the next test would, start without the database.
+    ShadowSQLiteConnection.reset();
+    assertThat(RuntimeEnvironment.application.deleteDatabase(TemplateHelper.NAME)).isTrue();
+    ShadowSQLiteConnection.useTemplate(TemplateHelper.NAME, builder);
+
+    SQLiteDatabase templateDatabase = new TemplateHelper().getReadableDatabase();
+    assertThat(TemplateHelper.creations).isEqualTo(1);
+    assertThat(simpleQueryForList(templateDatabase, "SELECT name FROM item")).containsExactly("from template");
+    templateDatabase.close();
+  }
+
+  private static class TemplateHelper extends SQLiteOpenHelper {
+    static final String NAME = "template.db";
+    static int creations;
+
+    TemplateHelper() {
+      super(RuntimeEnvironment.application, NAME, null, 1);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+      creations++;
+      db.execSQL("CREATE TABLE item (name TEXT)");
+      db.execSQL("INSERT INTO item (name) VALUES ('from template')");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+    }
+  }
+
+  @Test
+  public void finalizedStatement_isReusedForTheSameSql() {
+    final Map<Long, Object> statementsMap = ReflectionHelpers.getField(CONNECTIONS, "statementsMap");
+    long statementPtr = ShadowSQLiteConnection.nativePrepareStatement(ptr, "SELECT name FROM routine");
+    Object statement = statementsMap.get(statementPtr);
+    ShadowSQLiteConnection.nativeFinalizeStatement(ptr, statementPtr);
+
+    long reusedPtr = ShadowSQLiteConnection.nativePrepareStatement(ptr, "SELECT name FROM routine");
+    assertThat(reusedPtr).isNotEqualTo(statementPtr);
+    assertThat(statementsMap.get(reusedPtr)).isSameAs(statement);
+  }
+
+  @Test
+  public void resetStatement_releasesLocksOfQueryThatReturnedARow() {
+    database.execSQL("INSERT INTO routine (name) VALUES ('first')");
+    assertThat(database.compileStatement("SELECT name FROM routine").simpleQueryForString()).isEqualTo("first");
+
+    database.execSQL("DROP TABLE routine");
+  }
+
+  @Test
+  public void finalizedStatement_isResetBeforeItIsReused() {
+    database.execSQL("INSERT INTO routine (name) VALUES ('first')");
+    long statementPtr = ShadowSQLiteConnection.nativePrepareStatement(ptr, "SELECT name FROM routine");
+    ShadowSQLiteConnection.nativeExecuteForString(ptr, statementPtr);
+    ShadowSQLiteConnection.nativeFinalizeStatement(ptr, statementPtr);
+
+    long dropPtr = ShadowSQLiteConnection.nativePrepareStatement(ptr, "DROP TABLE routine");
+    ShadowSQLiteConnection.nativeExecute(ptr, dropPtr);
+  }
+
+  @Test
+  public void bindings_areAppliedWhenStatementIsExecuted() {
+    long statementPtr = ShadowSQLiteConnection.nativePrepareStatement(ptr, "INSERT INTO routine(name, lastUsed) VALUES (?, ?)");
+    assertThat(ShadowSQLiteConnection.nativeGetParameterCount(ptr, statementPtr)).isEqualTo(2);
+    assertThat(ShadowSQLiteConnection.nativeIsReadOnly(ptr, statementPtr)).isFalse();
+
+    for (int i = 0; i < 3; i++) {
+      ShadowSQLiteConnection.nativeResetStatementAndClearBindings(ptr, statementPtr);
+      ShadowSQLiteConnection.nativeBindString(ptr, statementPtr, 1, "routine " + i);
+      ShadowSQLiteConnection.nativeBindLong(ptr, statementPtr, 2, i);
+      assertThat(ShadowSQLiteConnection.nativeExecuteForLastInsertedRowId(ptr, statementPtr)).isEqualTo(i + 1);
+    }
+    ShadowSQLiteConnection.nativeResetStatementAndClearBindings(ptr, statementPtr);
+    ShadowSQLiteConnection.nativeBindString(ptr, statementPtr, 1, "unused");
+    ShadowSQLiteConnection.nativeBindNull(ptr, statementPtr, 2);
+    ShadowSQLiteConnection.nativeExecute(ptr, statementPtr);
+    ShadowSQLiteConnection.nativeFinalizeStatement(ptr, statementPtr);
+
+    assertThat(simpleQueryForList(database, "SELECT name FROM routine WHERE lastUsed = 2")).containsExactly("routine 2");
+    assertThat(simpleQueryForList(database, "SELECT name FROM routine WHERE lastUsed IS NULL")).containsExactly("unused");
+  }
+
   @Test
   public void error_resultsInSpecificExceptionWithCause() {
     try {
@@ -1,6 +1,7 @@
 package org.robolectric.shadows;
 
 import android.app.Activity;
+import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.drawable.ColorDrawable;
 import android.os.Bundle;
@@ -130,6 +131,26 @@ public class ShadowThemeTest {
         .isEqualTo("#ffff0000");
   }
 
+  @Test public void shouldResolveTheSameValuesWhenALayoutIsInflatedAgain() throws Exception {
+    TestActivity activity = buildActivity(TestActivityWithAnotherTheme.class).create().get();
+    for (int i = 0; i < 2; i++) {
+      View view = activity.getLayoutInflater().inflate(R.layout.styles_button_layout, null);
+      Button theButton = (Button) view.findViewById(R.id.button);
+      assertThat(((ColorDrawable) theButton.getBackground()).getColor()).isEqualTo(0xffff0000);
+      assertThat(theButton.getMinWidth()).isEqualTo(42);
+    }
+  }
+
+  @Test public void obtainStyledAttributes_shouldSeeStylesAppliedAfterAnEarlierCall() throws Exception {
+    TestActivity activity = buildActivity(TestActivity.class).create().get();
+    Resources.Theme theme = activity.getTheme();
+    int[] attrs = {android.R.attr.buttonStyle};
+    assertThat(theme.obtainStyledAttributes(attrs).getResourceId(0, 0)).isEqualTo(R.style.Widget_Robolectric_Button);
+
+    theme.applyStyle(R.style.Theme_AnotherTheme, true);
+    assertThat(theme.obtainStyledAttributes(attrs).getResourceId(0, 0)).isEqualTo(R.style.Widget_AnotherTheme_Button);
+  }
+
   public static class TestActivity extends Activity {
     @Override protected void onCreate(Bundle savedInstanceState) {
       super.onCreate(savedInstanceState);
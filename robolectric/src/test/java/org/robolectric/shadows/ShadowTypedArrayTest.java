@@ -151,4 +151,17 @@ public class ShadowTypedArrayTest {
     assertThat(typedArray.getIndexCount()).isEqualTo(1);
     assertThat(typedArray.getIndex(0)).isEqualTo(1);
   }
+
+  @Test public void recycle_shouldNotLeakValuesIntoLaterTypedArrays() throws Exception {
+    TypedArray first = shadowOf(resources).createTypedArray(
+        asList(new Attribute(TestUtil.TEST_PACKAGE + ":attr/responses", "@array/greetings", TestUtil.TEST_PACKAGE)),
+        new int[]{R.attr.responses});
+    first.recycle();
+
+    TypedArray second = shadowOf(resources).createTypedArray(
+        Arrays.<Attribute>asList(),
+        new int[]{R.attr.responses});
+    assertThat(second.hasValue(0)).isFalse();
+    assertThat(second.getIndexCount()).isEqualTo(0);
+  }
 }
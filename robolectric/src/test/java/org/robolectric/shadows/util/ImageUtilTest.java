@@ -0,0 +1,101 @@
+package org.robolectric.shadows.util;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.TestRunners;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(TestRunners.WithDefaults.class)
+public class ImageUtilTest {
+  @Test
+  public void shouldReadSizeOfPng() throws Exception {
+    assertSize(resource("res/drawable/an_image.png"), 64, 53);
+  }
+
+  @Test
+  public void shouldReadSizeOfGif() throws Exception {
+    assertSize(resource("res/drawable/an_other_image.gif"), 32, 18);
+  }
+
+  @Test
+  public void shouldReadSizeOfJpeg() throws Exception {
+    assertSize(resource("res/drawable/fourth_image.jpg"), 160, 107);
+  }
+
+  @Test
+  public void shouldReadSizeOfJpegWithMetadataLongerThanHeaderLimit() throws Exception {
+    ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+    ImageIO.write(new BufferedImage(30, 20, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+    byte[] image = jpeg.toByteArray();
+
+    // Start of image, then an APP1 segment of the largest size a segment can have, then the rest of the image.
+    ByteArrayOutputStream withMetadata = new ByteArrayOutputStream();
+    withMetadata.write(image, 0, 2);
+    withMetadata.write(new byte[] {(byte) 0xff, (byte) 0xe1, (byte) 0xff, (byte) 0xff});
+    withMetadata.write(new byte[0xffff - 2]);
+    withMetadata.write(image, 2, image.length - 2);
+
+    assertSize(new ByteArrayInputStream(withMetadata.toByteArray()), 30, 20);
+  }
+
+  @Test
+  public void shouldReadSizeOfLosslessWebp() throws Exception {
+    byte[] header = bytes("RIFF", 0, 0, 0, 0, "WEBPVP8L", 0, 0, 0, 0, 0x2f, 0x2b, 0xc1, 0x31, 0x00);
+    assertSize(new ByteArrayInputStream(header), 300, 200);
+  }
+
+  @Test
+  public void shouldReadSizeOfExtendedWebp() throws Exception {
+    byte[] header = bytes("RIFF", 0, 0, 0, 0, "WEBPVP8X", 0, 0, 0, 0, 0, 0, 0, 0, 0x2b, 0x01, 0x00, 0xc7, 0x00, 0x00);
+    assertSize(new ByteArrayInputStream(header), 300, 200);
+  }
+
+  @Test
+  public void shouldReadSizeOfBmp() throws Exception {
+    byte[] header = bytes("BM", 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 40, 0, 0, 0, 0x2c, 0x01, 0, 0, 0x38, 0xff, 0xff, 0xff);
+    assertSize(new ByteArrayInputStream(header), 300, 200);
+  }
+
+  @Test
+  public void shouldReturnNullForUnknownData() throws Exception {
+    byte[] data = {23, -125, 0, 52, 23, 18, 76, 43};
+    assertThat(ImageUtil.getImageSizeFromStream(new ByteArrayInputStream(data))).isNull();
+  }
+
+  @Test
+  public void shouldReturnNullForTruncatedHeader() throws Exception {
+    byte[] header = bytes("RIFF", 0, 0, 0, 0, "WEBPVP8L", 0, 0, 0, 0, 0x2f);
+    assertThat(ImageUtil.getImageSizeFromStream(new ByteArrayInputStream(header))).isNull();
+  }
+
+  private InputStream resource(String name) {
+    return getClass().getClassLoader().getResourceAsStream(name);
+  }
+
+  private static void assertSize(InputStream is, int width, int height) {
+    Point size = ImageUtil.getImageSizeFromStream(is);
+    assertThat(size.x).isEqualTo(width);
+    assertThat(size.y).isEqualTo(height);
+  }
+
+  private static byte[] bytes(Object... parts) {
+    StringBuilder builder = new StringBuilder();
+    for (Object part : parts) {
+      builder.append(part instanceof String ? (String) part : String.valueOf((char) (int) (Integer) part));
+    }
+    byte[] bytes = new byte[builder.length()];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) builder.charAt(i);
+    }
+    return bytes;
+  }
+}
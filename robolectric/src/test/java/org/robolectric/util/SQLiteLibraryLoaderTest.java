@@ -64,6 +64,18 @@ public class SQLiteLibraryLoaderTest {
     assertThat(extractedPath.lastModified()).isEqualTo(time);
   }
 
+  @Test
+  public void shouldExtractIntoDirectoryNamedAfterLibraryContent() {
+    File extractedPath = loader.getNativeLibraryPath();
+    assertThat(extractedPath.getParentFile().getParentFile().getName()).isEqualTo("robolectric-libs");
+    assertThat(extractedPath.getParentFile().getName()).matches("(crc|sha1)-[0-9a-f-]+");
+
+    loader.doLoad();
+    for (String name : extractedPath.getParentFile().list()) {
+      assertThat(name).doesNotEndWith(".tmp");
+    }
+  }
+
   @Test
   public void shouldRewriteExistingLibraryIfThereAreChanges() throws Exception {
     loader.getNativeLibraryPath().getParentFile().mkdirs();